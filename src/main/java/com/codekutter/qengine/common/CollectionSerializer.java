@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Ehcache serializer for reference lists (required by the off-heap tier).
+ * Values are written with an explicit binary encoding, in collection order,
+ * and read back as an ArrayList.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *     int     : magic
+ *     int     : format version
+ *     int     : value count
+ *     values  : byte type tag, followed by the value
+ *               (Boolean : byte, Short : short, Integer : int, Long : long,
+ *                Float : float, Double : double, String : int length + UTF-8 bytes,
+ *                Date/java.sql.Date : long millis, Timestamp : long millis + int nanos,
+ *                Enum : class name + constant name as Strings, NULL : tag only)
+ * </pre>
+ */
+@SuppressWarnings("rawtypes")
+public class CollectionSerializer implements Serializer<Collection> {
+    public static final int MAGIC = 0x5145434c;
+    public static final int VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte SHORT = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte STRING = 7;
+    private static final byte DATE = 8;
+    private static final byte SQL_DATE = 9;
+    private static final byte TIMESTAMP = 10;
+    private static final byte ENUM = 11;
+
+    @Override
+    public ByteBuffer serialize(Collection collection) throws SerializerException {
+        int size = 3 * Integer.BYTES;
+        for (Object value : collection) {
+            size += size(value);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(collection.size());
+        try {
+            for (Object value : collection) {
+                write(buffer, value);
+            }
+        } catch (BufferOverflowException ex) {
+            // The collection was modified while being serialized.
+            throw new SerializerException(ex);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public Collection read(ByteBuffer buffer) throws ClassNotFoundException, SerializerException {
+        ByteBuffer data = buffer.duplicate();
+        try {
+            if (data.getInt() != MAGIC) {
+                throw new SerializerException("Invalid serialized collection: magic mismatch.");
+            }
+            int version = data.getInt();
+            if (version != VERSION) {
+                throw new SerializerException(String.format("Serialized collection version mismatch. [version=%d]", version));
+            }
+            int count = data.getInt();
+            List<Object> values = new ArrayList<>(count);
+            for (int ii = 0; ii < count; ii++) {
+                values.add(read(data, data.get()));
+            }
+            return values;
+        } catch (BufferUnderflowException ex) {
+            throw new SerializerException(ex);
+        }
+    }
+
+    @Override
+    public boolean equals(Collection collection, ByteBuffer buffer) throws ClassNotFoundException, SerializerException {
+        List<Object> values = new ArrayList<>(collection.size());
+        for (Object value : collection) {
+            values.add(value);
+        }
+        return values.equals(read(buffer));
+    }
+
+    private static int size(Object value) throws SerializerException {
+        if (value == null) {
+            return 1;
+        } else if (value instanceof Boolean) {
+            return 1 + 1;
+        } else if (value instanceof Short) {
+            return 1 + Short.BYTES;
+        } else if (value instanceof Integer || value instanceof Float) {
+            return 1 + Integer.BYTES;
+        } else if (value instanceof Long || value instanceof Double) {
+            return 1 + Long.BYTES;
+        } else if (value instanceof String) {
+            return 1 + size((String) value);
+        } else if (value instanceof Timestamp) {
+            return 1 + Long.BYTES + Integer.BYTES;
+        } else if (value instanceof Date) {
+            return 1 + Long.BYTES;
+        } else if (value instanceof Enum) {
+            Enum<?> e = (Enum<?>) value;
+            return 1 + size(e.getDeclaringClass().getName()) + size(e.name());
+        }
+        throw new SerializerException(String.format("Value type not supported. [type=%s]", value.getClass().getCanonicalName()));
+    }
+
+    private static int size(String value) {
+        return Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void write(ByteBuffer buffer, Object value) {
+        if (value == null) {
+            buffer.put(NULL);
+        } else if (value instanceof Boolean) {
+            buffer.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof Short) {
+            buffer.put(SHORT).putShort((Short) value);
+        } else if (value instanceof Integer) {
+            buffer.put(INTEGER).putInt((Integer) value);
+        } else if (value instanceof Long) {
+            buffer.put(LONG).putLong((Long) value);
+        } else if (value instanceof Float) {
+            buffer.put(FLOAT).putFloat((Float) value);
+        } else if (value instanceof Double) {
+            buffer.put(DOUBLE).putDouble((Double) value);
+        } else if (value instanceof String) {
+            write(buffer.put(STRING), (String) value);
+        } else if (value instanceof Timestamp) {
+            Timestamp ts = (Timestamp) value;
+            buffer.put(TIMESTAMP).putLong(ts.getTime()).putInt(ts.getNanos());
+        } else if (value instanceof java.sql.Date) {
+            buffer.put(SQL_DATE).putLong(((Date) value).getTime());
+        } else if (value instanceof Date) {
+            buffer.put(DATE).putLong(((Date) value).getTime());
+        } else {
+            Enum<?> e = (Enum<?>) value;
+            write(buffer.put(ENUM), e.getDeclaringClass().getName());
+            write(buffer, e.name());
+        }
+    }
+
+    private static void write(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object read(ByteBuffer buffer, byte tag) throws ClassNotFoundException, SerializerException {
+        switch (tag) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case SHORT:
+                return buffer.getShort();
+            case INTEGER:
+                return buffer.getInt();
+            case LONG:
+                return buffer.getLong();
+            case FLOAT:
+                return buffer.getFloat();
+            case DOUBLE:
+                return buffer.getDouble();
+            case STRING:
+                return readString(buffer);
+            case DATE:
+                return new Date(buffer.getLong());
+            case SQL_DATE:
+                return new java.sql.Date(buffer.getLong());
+            case TIMESTAMP:
+                Timestamp ts = new Timestamp(buffer.getLong());
+                ts.setNanos(buffer.getInt());
+                return ts;
+            case ENUM:
+                ClassLoader loader = Thread.currentThread().getContextClassLoader();
+                Class<?> type = Class.forName(readString(buffer), false,
+                        (loader != null ? loader : CollectionSerializer.class.getClassLoader()));
+                if (!type.isEnum()) {
+                    throw new SerializerException(String.format("Not an enum type. [type=%s]", type.getCanonicalName()));
+                }
+                return Enum.valueOf((Class<? extends Enum>) type, readString(buffer));
+            default:
+                throw new SerializerException(String.format("Invalid value type tag. [tag=%d]", tag));
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
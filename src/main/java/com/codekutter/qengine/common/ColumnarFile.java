@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.utils.Reflector;
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simple column oriented binary file, each column is stored in a contiguous region so
+ * reading a single column only maps the pages of that column.
+ * <p>
+ * File layout:
+ * <pre>
+ *     int    : magic
+ *     int    : format version
+ *     int    : column count
+ *     long   : row count
+ *     int    : directory size
+ *     directory (per column):
+ *         int    : name length
+ *         byte[] : name (UTF-8)
+ *         byte   : column type (1 = long, 2 = double, 3 = string)
+ *         long   : data offset
+ *         long   : data size
+ *     data (per column, 8 byte aligned):
+ *         long[] : null bitmap
+ *         values : long/double per row, or (int length, UTF-8 bytes) per row for strings
+ * </pre>
+ * Integral and date values are stored as long (dates as epoch milliseconds).
+ */
+public class ColumnarFile {
+    public static final int MAGIC = 0x51434F4C;
+    public static final int VERSION = 1;
+    public static final String FILE_EXTENSION = ".qcol";
+
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_STRING = 3;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private ColumnarFile() {
+    }
+
+    /**
+     * Write the columns to the file, all columns must have the same number of rows.
+     *
+     * @param file    - Output file
+     * @param columns - Column values by name (column order is preserved)
+     * @throws IOException
+     */
+    public static void write(@NonNull File file, @NonNull Map<String, ? extends Collection<?>> columns) throws IOException {
+        Preconditions.checkArgument(!columns.isEmpty());
+        long rows = -1;
+        List<byte[]> names = new ArrayList<>(columns.size());
+        List<ByteBuffer> data = new ArrayList<>(columns.size());
+        List<Byte> types = new ArrayList<>(columns.size());
+        int directorySize = 0;
+        for (Map.Entry<String, ? extends Collection<?>> column : columns.entrySet()) {
+            Collection<?> values = column.getValue();
+            if (rows < 0) {
+                rows = values.size();
+            } else if (rows != values.size()) {
+                throw new IOException(String.format("Column size mismatch. [column=%s][expected=%d][size=%d]", column.getKey(), rows, values.size()));
+            }
+            byte type = type(column.getKey(), values);
+            byte[] name = column.getKey().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            types.add(type);
+            data.add(encode(type, values));
+            directorySize += Integer.BYTES + name.length + 1 + 2 * Long.BYTES;
+        }
+        ByteBuffer header = ByteBuffer.allocate(align(HEADER_SIZE + directorySize));
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(columns.size());
+        header.putLong(rows);
+        header.putInt(directorySize);
+        long offset = header.capacity();
+        for (int ii = 0; ii < names.size(); ii++) {
+            header.putInt(names.get(ii).length);
+            header.put(names.get(ii));
+            header.put(types.get(ii));
+            header.putLong(offset);
+            header.putLong(data.get(ii).remaining());
+            offset += align(data.get(ii).remaining());
+        }
+        header.position(0);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(channel, header);
+            ByteBuffer padding = ByteBuffer.allocate(Long.BYTES);
+            for (ByteBuffer buffer : data) {
+                int pad = align(buffer.remaining()) - buffer.remaining();
+                write(channel, buffer);
+                padding.clear().limit(pad);
+                write(channel, padding);
+            }
+        }
+    }
+
+    /**
+     * Read a single column, only the region of the column is mapped.
+     *
+     * @param file   - Columnar file
+     * @param column - Column name
+     * @param type   - Value type
+     * @return - Column values (NULL values are skipped)
+     * @throws IOException
+     */
+    public static <T> List<T> read(@NonNull File file, @NonNull String column, @NonNull Class<T> type) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_SIZE, channel.size()));
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(String.format("Invalid columnar file. [file=%s]", file.getAbsolutePath()));
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("Columnar file version not supported. [file=%s][version=%d]", file.getAbsolutePath(), version));
+            }
+            int count = header.getInt();
+            long rows = header.getLong();
+            int directorySize = header.getInt();
+            MappedByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, directorySize);
+            for (int ii = 0; ii < count; ii++) {
+                byte[] name = new byte[directory.getInt()];
+                directory.get(name);
+                byte ct = directory.get();
+                long offset = directory.getLong();
+                long size = directory.getLong();
+                if (column.equals(new String(name, StandardCharsets.UTF_8))) {
+                    if (rows > Integer.MAX_VALUE || size > Integer.MAX_VALUE) {
+                        throw new IOException(String.format("Column too large. [file=%s][column=%s]", file.getAbsolutePath(), column));
+                    }
+                    MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                    return decode(ct, data, (int) rows, type);
+                }
+            }
+            throw new IOException(String.format("Column not found. [file=%s][column=%s]", file.getAbsolutePath(), column));
+        } catch (ParseException | RuntimeException ex) {
+            throw new IOException(String.format("Error reading column. [file=%s][column=%s]", file.getAbsolutePath(), column), ex);
+        }
+    }
+
+    private static byte type(String column, Collection<?> values) throws IOException {
+        byte type = 0;
+        for (Object value : values) {
+            byte vt;
+            if (value == null) {
+                continue;
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                    || value instanceof Byte || value instanceof Date) {
+                vt = TYPE_LONG;
+            } else if (value instanceof Double || value instanceof Float) {
+                vt = TYPE_DOUBLE;
+            } else if (value instanceof String || value instanceof Enum || value instanceof Boolean) {
+                vt = TYPE_STRING;
+            } else {
+                throw new IOException(String.format("Value type not supported. [column=%s][type=%s]", column, value.getClass().getCanonicalName()));
+            }
+            if (type == 0) {
+                type = vt;
+            } else if (type != vt) {
+                throw new IOException(String.format("Mixed value types in column. [column=%s]", column));
+            }
+        }
+        return (type == 0 ? TYPE_LONG : type);
+    }
+
+    private static ByteBuffer encode(byte type, Collection<?> values) {
+        int rows = values.size();
+        int bitmap = ((rows + 63) >>> 6) * Long.BYTES;
+        List<byte[]> strings = null;
+        int size = bitmap;
+        if (type == TYPE_STRING) {
+            strings = new ArrayList<>(rows);
+            for (Object value : values) {
+                byte[] bytes = (value != null ? (value instanceof Enum ? ((Enum<?>) value).name() : value.toString()).getBytes(StandardCharsets.UTF_8) : null);
+                strings.add(bytes);
+                size += Integer.BYTES + (bytes != null ? bytes.length : 0);
+            }
+        } else {
+            size += rows * Long.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        long[] nulls = new long[bitmap / Long.BYTES];
+        buffer.position(bitmap);
+        int row = 0;
+        for (Object value : values) {
+            if (value == null) {
+                nulls[row >>> 6] |= (1L << row);
+            }
+            if (type == TYPE_LONG) {
+                buffer.putLong(value == null ? 0 : (value instanceof Date ? ((Date) value).getTime() : ((Number) value).longValue()));
+            } else if (type == TYPE_DOUBLE) {
+                buffer.putDouble(value == null ? 0 : ((Number) value).doubleValue());
+            } else {
+                byte[] bytes = strings.get(row);
+                buffer.putInt(bytes != null ? bytes.length : -1);
+                if (bytes != null) {
+                    buffer.put(bytes);
+                }
+            }
+            row++;
+        }
+        buffer.position(0);
+        for (long word : nulls) {
+            buffer.putLong(word);
+        }
+        buffer.position(0);
+        return buffer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> decode(byte ct, ByteBuffer data, int rows, Class<T> type) throws ParseException {
+        long[] nulls = new long[(rows + 63) >>> 6];
+        for (int ii = 0; ii < nulls.length; ii++) {
+            nulls[ii] = data.getLong();
+        }
+        List<T> values = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            boolean isNull = (nulls[row >>> 6] & (1L << row)) != 0;
+            Object value;
+            if (ct == TYPE_LONG) {
+                long lv = data.getLong();
+                value = (isNull ? null : fromLong(lv, type));
+            } else if (ct == TYPE_DOUBLE) {
+                double dv = data.getDouble();
+                value = (isNull ? null : fromDouble(dv, type));
+            } else {
+                int length = data.getInt();
+                if (length < 0) {
+                    value = null;
+                } else {
+                    byte[] bytes = new byte[length];
+                    data.get(bytes);
+                    String sv = new String(bytes, StandardCharsets.UTF_8);
+                    value = (type == String.class ? sv : Reflector.parseValue(type, sv));
+                }
+            }
+            if (value != null) {
+                values.add((T) value);
+            }
+        }
+        return values;
+    }
+
+    private static Object fromLong(long value, Class<?> type) throws ParseException {
+        if (type == Long.class) {
+            return value;
+        } else if (type == Integer.class) {
+            try {
+                return Math.toIntExact(value);
+            } catch (ArithmeticException ex) {
+                throw new ParseException(String.format("Value out of range for integer. [value=%d]", value), 0);
+            }
+        } else if (type == Short.class) {
+            if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                throw new ParseException(String.format("Value out of range for short. [value=%d]", value), 0);
+            }
+            return (short) value;
+        } else if (type == Date.class) {
+            return new Date(value);
+        } else if (type == java.sql.Date.class) {
+            return new java.sql.Date(value);
+        } else if (type == Timestamp.class) {
+            return new Timestamp(value);
+        } else if (type == String.class) {
+            return String.valueOf(value);
+        }
+        return Reflector.parseValue(type, (Object) value);
+    }
+
+    private static Object fromDouble(double value, Class<?> type) throws ParseException {
+        if (type == Double.class) {
+            return value;
+        } else if (type == Float.class) {
+            return (float) value;
+        } else if (type == String.class) {
+            return String.valueOf(value);
+        }
+        return Reflector.parseValue(type, (Object) value);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+}
@@ -26,16 +26,36 @@ package com.codekutter.qengine.common;
 import com.codekutter.qengine.utils.LogUtils;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.NonNull;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 
-import java.util.HashMap;
+import javax.sql.DataSource;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class ConnectionManager {
     private static final ConnectionManager __instance = new ConnectionManager();
-    private final Map<String, SessionFactory> hibernateFactory = new HashMap<>();
+    private static final long EVICTION_INTERVAL = 30 * 1000;
+    public static final int DEFAULT_MAX_IDLE_LOADERS = 4;
+    private final Map<String, SessionFactory> hibernateFactory = new ConcurrentHashMap<>();
+    private final Map<String, SessionPool> pools = new ConcurrentHashMap<>();
+    private final Map<String, DataSource> dataSources = new ConcurrentHashMap<>();
+    /**
+     * Idle JDBC loaders per connection, each holding a connection and its prepared statement cache.
+     */
+    private final Map<String, JdbcLoaders> jdbcLoaders = new ConcurrentHashMap<>();
+    private final Map<String, File> fileSources = new ConcurrentHashMap<>();
+    private ScheduledExecutorService evictor;
 
     private ConnectionManager() {
     }
@@ -50,6 +70,60 @@ public class ConnectionManager {
         return this;
     }
 
+    /**
+     * Pool stateless sessions for the named connection, data loaders for the connection
+     * borrow sessions from the pool instead of opening a new session.
+     *
+     * @param name      - Connection name
+     * @param maxActive - Maximum borrowed sessions
+     * @param maxIdle   - Maximum idle sessions retained
+     * @param maxWait   - Maximum time (in milliseconds) to wait for a session
+     * @return - Session Pool
+     * @throws ConfigurationException
+     */
+    public SessionPool addHibernatePool(@NonNull String name, int maxActive, int maxIdle, long maxWait) throws ConfigurationException {
+        SessionFactory sf = hibernateFactory.get(name);
+        if (sf == null) {
+            throw new ConfigurationException(String.format("Hibernate connection not found. [name=%s]", name));
+        }
+        SessionPool pool = new SessionPool(name, sf, maxActive, maxIdle, maxWait);
+        synchronized (this) {
+            SessionPool previous = pools.put(name, pool);
+            if (previous != null) {
+                previous.close();
+            }
+            if (evictor == null) {
+                evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("session-pool-evictor-%d")
+                        .build());
+                evictor.scheduleWithFixedDelay(this::evict, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Get the session pool for the named connection.
+     *
+     * @param name - Connection name
+     * @return - Session Pool or NULL if not pooled
+     */
+    public SessionPool getHibernatePool(@NonNull String name) {
+        return pools.get(name);
+    }
+
+    private void evict() {
+        for (SessionPool pool : pools.values()) {
+            try {
+                pool.evict();
+                LogUtils.debug(getClass(), String.format("Session pool %s", pool));
+            } catch (Throwable t) {
+                LogUtils.error(getClass(), t);
+            }
+        }
+    }
+
     public Session getHibernateSession(@NonNull String name) {
         SessionFactory sf = hibernateFactory.get(name);
         if (sf != null) {
@@ -60,6 +134,10 @@ public class ConnectionManager {
     }
 
     public <T> HibernateDataLoader<T> getHibernateDataLoader(@NonNull String name) {
+        SessionPool pool = pools.get(name);
+        if (pool != null) {
+            return new HibernateDataLoader<T>().withPool(pool);
+        }
         Session session = getHibernateSession(name);
         if (session != null) {
             HibernateDataLoader<T> loader = new HibernateDataLoader<>();
@@ -68,15 +146,130 @@ public class ConnectionManager {
         return null;
     }
 
+    public ConnectionManager addJdbcDataSource(@NonNull String name, @NonNull DataSource dataSource) {
+        return addJdbcDataSource(name, dataSource, DEFAULT_MAX_IDLE_LOADERS);
+    }
+
+    /**
+     * Register a JDBC data source as a connection. Loaders for the connection are reused,
+     * closed loaders keep their connection and prepared statements for the next reader.
+     *
+     * @param name       - Connection name
+     * @param dataSource - Data Source
+     * @param maxIdle    - Maximum idle loaders retained
+     * @return - Self
+     */
+    public ConnectionManager addJdbcDataSource(@NonNull String name, @NonNull DataSource dataSource, int maxIdle) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(name));
+        Preconditions.checkArgument(maxIdle >= 0);
+        dataSources.put(name, dataSource);
+        JdbcLoaders previous = jdbcLoaders.put(name, new JdbcLoaders(dataSource, maxIdle));
+        if (previous != null) {
+            previous.close();
+        }
+        return this;
+    }
+
+    /**
+     * Get a data loader for the named JDBC connection, closing the loader returns it for reuse.
+     *
+     * @param name - Connection name
+     * @return - JDBC Data Loader or NULL if not found
+     */
+    public <T> JdbcDataLoader<T> getJdbcDataLoader(@NonNull String name) {
+        JdbcLoaders loaders = jdbcLoaders.get(name);
+        if (loaders != null) {
+            return loaders.get();
+        }
+        return null;
+    }
+
+    /**
+     * Register a directory of flat files (CSV or columnar) as a connection.
+     *
+     * @param name      - Connection name
+     * @param directory - Directory
+     * @return - Self
+     */
+    public ConnectionManager addFileSource(@NonNull String name, @NonNull File directory) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(name));
+        Preconditions.checkArgument(directory.isDirectory());
+        fileSources.put(name, directory);
+        return this;
+    }
+
+    public <T> FileDataLoader<T> getFileDataLoader(@NonNull String name) {
+        File directory = fileSources.get(name);
+        if (directory != null) {
+            return (FileDataLoader<T>) new FileDataLoader<T>().withConnection(directory);
+        }
+        return null;
+    }
+
     @SuppressWarnings("unchecked")
     public <C, T> QueryDataLoader<C, T> getDataLoader(@NonNull String name, @NonNull ConnectionTypes connectionType) {
         if (connectionType == ConnectionTypes.Hibernate) {
             return (QueryDataLoader<C, T>) getHibernateDataLoader(name);
+        } else if (connectionType == ConnectionTypes.Jdbc) {
+            return (QueryDataLoader<C, T>) getJdbcDataLoader(name);
+        } else if (connectionType == ConnectionTypes.File) {
+            return (QueryDataLoader<C, T>) getFileDataLoader(name);
         }
         return null;
     }
 
+    /**
+     * Idle loaders of a JDBC connection (most recently used first).
+     */
+    private static final class JdbcLoaders {
+        private final DataSource dataSource;
+        private final int maxIdle;
+        private final Deque<JdbcDataLoader<?>> idle = new ArrayDeque<>();
+        private boolean closed = false;
+
+        private JdbcLoaders(DataSource dataSource, int maxIdle) {
+            this.dataSource = dataSource;
+            this.maxIdle = maxIdle;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> JdbcDataLoader<T> get() {
+            JdbcDataLoader<?> loader;
+            synchronized (this) {
+                loader = idle.pollFirst();
+            }
+            if (loader == null) {
+                loader = new JdbcDataLoader<>(dataSource).releaser(this::release);
+            }
+            return (JdbcDataLoader<T>) loader;
+        }
+
+        private void release(JdbcDataLoader<?> loader) {
+            synchronized (this) {
+                if (!closed && !loader.failed() && idle.size() < maxIdle) {
+                    idle.offerFirst(loader);
+                    return;
+                }
+            }
+            loader.destroy();
+        }
+
+        private void close() {
+            List<JdbcDataLoader<?>> loaders;
+            synchronized (this) {
+                closed = true;
+                loaders = new ArrayList<>(idle);
+                idle.clear();
+            }
+            for (JdbcDataLoader<?> loader : loaders) {
+                loader.destroy();
+            }
+        }
+    }
+
     public enum ConnectionTypes {
-        Hibernate
+        Hibernate,
+        Jdbc,
+        File
     }
 }
@@ -41,7 +41,43 @@ public class ExternalDataList {
     private ConnectionManager.ConnectionTypes connectionType;
     private String query;
     private Collection<Object> params;
+    /**
+     * Query selecting (key, value) rows for a collection of keys (see QueryDataLoader.readBatch()),
+     * lists sharing the batch query are loaded together by ReferenceDataManager.preload(). Reloads
+     * also use the batch query, together with the other loaded lists of the group. The list query
+     * is not required if the batch query is set.
+     */
+    private String batchQuery;
+    /**
+     * Key of this list in the batch query results.
+     */
+    private Object batchKey;
     private boolean cached = true;
+    /**
+     * Time (in milliseconds) after which cached values expire and reads block on a reload.
+     * Never expires if <= 0.
+     */
+    private long ttl = -1;
+    /**
+     * Time (in milliseconds) after which a read triggers a background reload,
+     * the current values are returned till the reload completes. Disabled if <= 0.
+     */
+    private long refreshAfter = -1;
+    /**
+     * Schedule the background reload (after refreshAfter) instead of waiting for a read.
+     */
+    private boolean refreshAhead = false;
+    /**
+     * Store the loaded values and lookup index outside the Java heap (numeric, date and string lists).
+     * Values of off-heap lists are read back from the index: duplicates are dropped, the load
+     * order is not kept and timestamps are truncated to milliseconds.
+     */
+    private boolean offHeap = false;
+    /**
+     * Persist the loaded values to a snapshot file (see ReferenceDataManager.snapshots()),
+     * used to warm start before the data store is queried.
+     */
+    private boolean snapshot = false;
 
     public ExternalDataList(@NonNull String name, @NonNull DataType.BasicDataType dataType) {
         this.name = name;
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.utils.Reflector;
+import com.google.common.base.Strings;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Data loader for flat files in a directory (the connection). The query is the file path
+ * (relative to the directory) and the projected column, separated by '#':
+ * <pre>
+ *     countries.csv#code
+ *     countries.qcol#code
+ * </pre>
+ * CSV files are streamed through a file channel, the column is the header name or
+ * the (1-based) column index if the file has no header. Columnar files (see ColumnarFile)
+ * are memory mapped and only the projected column is read.
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public class FileDataLoader<T> implements QueryDataLoader<File, T> {
+    public static final String COLUMN_SEPARATOR = "#";
+
+    private File directory;
+    private char delimiter = ',';
+    private boolean header = true;
+
+    @Override
+    public QueryDataLoader<File, T> withConnection(@NonNull File connection) {
+        this.directory = connection;
+        return this;
+    }
+
+    @Override
+    public Collection<T> read(@NonNull String query, @NonNull Class<T> type, Object... params) throws DataStoreException {
+        return read(query, type, (params != null ? Arrays.asList(params) : null));
+    }
+
+    @Override
+    public Collection<T> read(@NonNull String query, @NonNull Class<T> type, Collection<Object> params) throws DataStoreException {
+        List<T> result;
+        try (Stream<T> stream = stream(query, type, params)) {
+            result = stream.collect(Collectors.toList());
+        } catch (UncheckedIOException ex) {
+            throw new DataStoreException(ex.getCause());
+        }
+        if (!result.isEmpty()) {
+            return result;
+        }
+        return null;
+    }
+
+    /**
+     * Stream the projected column, CSV files are read incrementally.
+     */
+    @Override
+    public Stream<T> stream(@NonNull String query, @NonNull Class<T> type, Collection<Object> params) throws DataStoreException {
+        checkParams(params);
+        String[] parts = split(query);
+        File file = file(parts[0]);
+        if (parts[0].endsWith(ColumnarFile.FILE_EXTENSION)) {
+            try {
+                return ColumnarFile.read(file, parts[1], type).stream();
+            } catch (IOException ex) {
+                throw new DataStoreException(ex);
+            }
+        }
+        BufferedReader reader = null;
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+            int column = column(reader, parts[1], file);
+            BufferedReader input = reader;
+            return input.lines()
+                    .filter(line -> !line.isEmpty())
+                    .map(line -> value(parse(line), column, type, file))
+                    .filter(Objects::nonNull)
+                    .onClose(() -> {
+                        try {
+                            input.close();
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+        } catch (IOException ex) {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    ex.addSuppressed(e);
+                }
+            }
+            throw new DataStoreException(String.format("Error reading file. [file=%s]", file.getAbsolutePath()), ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        // No resources held between reads.
+    }
+
+    private int column(BufferedReader reader, String column, File file) throws IOException {
+        if (header) {
+            String line = reader.readLine();
+            if (line != null) {
+                List<String> names = parse(line);
+                for (int ii = 0; ii < names.size(); ii++) {
+                    if (names.get(ii).trim().equalsIgnoreCase(column)) {
+                        return ii;
+                    }
+                }
+            }
+        }
+        try {
+            int index = Integer.parseInt(column);
+            if (index > 0) {
+                return index - 1;
+            }
+        } catch (NumberFormatException ex) {
+            // Not a column index
+        }
+        throw new IOException(String.format("Column not found. [file=%s][column=%s]", file.getAbsolutePath(), column));
+    }
+
+    private T value(List<String> fields, int column, Class<T> type, File file) {
+        if (column >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(column);
+        if (Strings.isNullOrEmpty(value)) {
+            return null;
+        }
+        try {
+            return Reflector.parseValue(type, (type == String.class ? value : value.trim()));
+        } catch (ParseException | RuntimeException ex) {
+            throw new UncheckedIOException(new IOException(String.format("Invalid value. [file=%s][value=%s]", file.getAbsolutePath(), value), ex));
+        }
+    }
+
+    /**
+     * Split a CSV line, fields may be quoted and quotes inside quoted fields are escaped by doubling.
+     */
+    private List<String> parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int ii = 0; ii < line.length(); ii++) {
+            char c = line.charAt(ii);
+            if (quoted) {
+                if (c == '"') {
+                    if (ii + 1 < line.length() && line.charAt(ii + 1) == '"') {
+                        field.append('"');
+                        ii++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private String[] split(String query) throws DataStoreException {
+        int index = query.lastIndexOf(COLUMN_SEPARATOR);
+        if (index <= 0 || index == query.length() - 1) {
+            throw new DataStoreException(String.format("Invalid file query, expected <file>%s<column>. [query=%s]", COLUMN_SEPARATOR, query));
+        }
+        return new String[]{query.substring(0, index), query.substring(index + 1)};
+    }
+
+    private File file(String path) throws DataStoreException {
+        if (directory == null) {
+            throw new DataStoreException("Connection not set.");
+        }
+        // Resolved against the connection directory, paths escaping it are rejected.
+        Path base = directory.toPath().toAbsolutePath().normalize();
+        Path resolved = base.resolve(path).normalize();
+        if (!resolved.startsWith(base)) {
+            throw new DataStoreException(String.format("File path outside of the connection directory. [path=%s]", path));
+        }
+        File file = resolved.toFile();
+        if (!file.exists()) {
+            throw new DataStoreException(String.format("File not found. [path=%s]", file.getAbsolutePath()));
+        }
+        return file;
+    }
+
+    private void checkParams(Collection<Object> params) throws DataStoreException {
+        if (params != null && !params.isEmpty()) {
+            throw new DataStoreException("Query parameters not supported for file sources.");
+        }
+    }
+}
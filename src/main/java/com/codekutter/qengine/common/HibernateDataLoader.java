@@ -23,15 +23,50 @@
 
 package com.codekutter.qengine.common;
 
+import com.google.common.base.Preconditions;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.experimental.Accessors;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 
 import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+@Getter
+@Accessors(fluent = true)
 public class HibernateDataLoader<T> implements QueryDataLoader<Session, T> {
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
     private Session session;
+    private SessionPool pool;
+    /**
+     * JDBC fetch size for streamed reads.
+     */
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    /**
+     * Number of streamed rows after which the session is cleared (not used with stateless sessions).
+     */
+    private int clearInterval = DEFAULT_FETCH_SIZE;
+    /**
+     * Stream using a stateless session, results are not held in the persistence context.
+     */
+    private boolean stateless = true;
 
     @Override
     public QueryDataLoader<Session, T> withConnection(@NonNull Session connection) {
@@ -39,27 +74,58 @@ public class HibernateDataLoader<T> implements QueryDataLoader<Session, T> {
         return this;
     }
 
+    public HibernateDataLoader<T> fetchSize(int fetchSize) {
+        Preconditions.checkArgument(fetchSize > 0);
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public HibernateDataLoader<T> clearInterval(int clearInterval) {
+        Preconditions.checkArgument(clearInterval > 0);
+        this.clearInterval = clearInterval;
+        return this;
+    }
+
+    public HibernateDataLoader<T> stateless(boolean stateless) {
+        this.stateless = stateless;
+        return this;
+    }
+
+    /**
+     * Read using sessions borrowed from the pool, a session is held only for the duration of a read.
+     *
+     * @param pool - Session Pool
+     * @return - Self
+     */
+    public HibernateDataLoader<T> withPool(@NonNull SessionPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
     @Override
     public Collection<T> read(@NonNull String query, @NonNull Class<T> type, Object... params) throws DataStoreException {
-        if (params == null || params.length <= 0) {
-            return execute(query, type);
-        } else {
-            return execute(query, type, params);
-        }
+        return read(query, type, (params != null ? Arrays.asList(params) : null));
     }
 
     @Override
     public Collection<T> read(@NonNull String query, @NonNull Class<T> type, Collection<Object> params) throws DataStoreException {
-        if (params == null || params.isEmpty()) {
-            return execute(query, type);
-        } else {
-            return execute(query, type, params);
+        if (pool != null) {
+            StatelessSession ss = pool.borrow();
+            boolean failed = true;
+            try {
+                Collection<T> result = execute(ss.createQuery(query, type), params);
+                failed = false;
+                return result;
+            } finally {
+                pool.release(ss, failed);
+            }
         }
+        Preconditions.checkState(session != null, "Connection not set.");
+        return execute(session.createQuery(query, type), params);
     }
 
-    @SuppressWarnings("unchecked")
-    private Collection<T> execute(String query, Class<T> type) throws DataStoreException {
-        Query qq = session.createQuery(query, type);
+    private Collection<T> execute(org.hibernate.query.Query<T> qq, Collection<Object> params) {
+        bind(qq, params);
         List<T> result = qq.getResultList();
         if (result != null && !result.isEmpty()) {
             return result;
@@ -67,32 +133,156 @@ public class HibernateDataLoader<T> implements QueryDataLoader<Session, T> {
         return null;
     }
 
-    @SuppressWarnings("unchecked")
-    private Collection<T> execute(@NonNull String query, @NonNull Class<T> type, Object... params) throws DataStoreException {
-        Query qq = session.createQuery(query, type);
-        for (int ii = 0; ii < params.length; ii++) {
-            qq.setParameter(ii, params[ii]);
+    private void bind(Query qq, Collection<Object> params) {
+        if (params != null) {
+            int ii = 0;
+            for (Object param : params) {
+                qq.setParameter(ii, param);
+                ii++;
+            }
         }
-        List<T> result = qq.getResultList();
-        if (result != null && !result.isEmpty()) {
+    }
+
+    @Override
+    public <K> Map<K, Collection<T>> readBatch(@NonNull String query, @NonNull Class<T> type,
+                                               @NonNull Collection<K> keys, int chunkSize) throws DataStoreException {
+        Preconditions.checkArgument(chunkSize > 0);
+        Map<K, Collection<T>> result = new HashMap<>();
+        for (K key : keys) {
+            result.put(key, new ArrayList<>());
+        }
+        if (result.isEmpty()) {
             return result;
         }
-        return null;
+        List<K> distinct = new ArrayList<>(result.keySet());
+        StatelessSession ss = null;
+        boolean failed = false;
+        try {
+            if (pool != null) {
+                ss = pool.borrow();
+            } else {
+                Preconditions.checkState(session != null, "Connection not set.");
+            }
+            for (int ii = 0; ii < distinct.size(); ii += chunkSize) {
+                List<K> chunk = distinct.subList(ii, Math.min(ii + chunkSize, distinct.size()));
+                org.hibernate.query.Query<?> qq = (ss != null ? ss.createQuery(query) : session.createQuery(query));
+                qq.setParameterList(BATCH_KEYS_PARAM, chunk);
+                for (Object row : qq.getResultList()) {
+                    if (!(row instanceof Object[]) || ((Object[]) row).length < 2) {
+                        throw new DataStoreException(String.format("Batch query must select (key, value) rows. [query=%s]", query));
+                    }
+                    Object[] values = (Object[]) row;
+                    Collection<T> target = result.get(values[0]);
+                    if (target != null && values[1] != null) {
+                        target.add(type.cast(values[1]));
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            failed = true;
+            throw new DataStoreException(String.format("Error executing batch query. [query=%s]", query), ex);
+        } finally {
+            if (ss != null) {
+                pool.release(ss, failed);
+            }
+        }
+        return result;
     }
 
-    @SuppressWarnings("unchecked")
-    private Collection<T> execute(@NonNull String query, @NonNull Class<T> type, Collection<Object> params) throws DataStoreException {
-        Query qq = session.createQuery(query, type);
-        int ii = 0;
-        for (Object param : params) {
-            qq.setParameter(ii, param);
-            ii++;
+    /**
+     * HQL has no UNION, the tuples are read with a query each on a single (borrowed) session.
+     */
+    @Override
+    public List<Collection<T>> readUnion(@NonNull String query, @NonNull Class<T> type,
+                                         @NonNull List<? extends Collection<Object>> params, int chunkSize) throws DataStoreException {
+        Preconditions.checkArgument(chunkSize > 0);
+        List<Collection<T>> result = new ArrayList<>(params.size());
+        StatelessSession ss = null;
+        boolean failed = false;
+        try {
+            if (pool != null) {
+                ss = pool.borrow();
+            } else {
+                Preconditions.checkState(session != null, "Connection not set.");
+            }
+            for (Collection<Object> tuple : params) {
+                Collection<T> values = execute(ss != null ? ss.createQuery(query, type) : session.createQuery(query, type), tuple);
+                result.add(values != null ? values : new ArrayList<>());
+            }
+        } catch (RuntimeException ex) {
+            failed = true;
+            throw new DataStoreException(String.format("Error executing query. [query=%s]", query), ex);
+        } finally {
+            if (ss != null) {
+                pool.release(ss, failed);
+            }
         }
-        List<T> result = qq.getResultList();
-        if (result != null && !result.isEmpty()) {
-            return result;
+        return result;
+    }
+
+    /**
+     * Stream the query results using a forward-only cursor. Rows are fetched in batches
+     * of the fetch size, the stream must be closed to release the cursor.
+     *
+     * @param query  - Query string
+     * @param type   - Result type
+     * @param params - Query parameters
+     * @return - Stream of results
+     * @throws DataStoreException
+     */
+    @Override
+    public Stream<T> stream(@NonNull String query, @NonNull Class<T> type, Collection<Object> params) throws DataStoreException {
+        Preconditions.checkState(pool != null || session != null, "Connection not set.");
+        StatelessSession ss = null;
+        ScrollableResults results = null;
+        try {
+            org.hibernate.query.Query<T> qq;
+            if (pool != null) {
+                ss = pool.borrow();
+                qq = ss.createQuery(query, type);
+            } else if (stateless) {
+                ss = session.getSessionFactory().openStatelessSession();
+                qq = ss.createQuery(query, type);
+            } else {
+                qq = session.createQuery(query, type);
+                qq.setReadOnly(true);
+                qq.setCacheMode(CacheMode.IGNORE);
+            }
+            qq.setFetchSize(fetchSize);
+            bind(qq, params);
+            results = qq.scroll(ScrollMode.FORWARD_ONLY);
+            ScrollableResults cursor = results;
+            StatelessSession owned = ss;
+            AtomicBoolean released = new AtomicBoolean(false);
+            // Released when the results are exhausted or the stream is closed, whichever is first.
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    cursor.close();
+                    if (owned != null) {
+                        releaseSession(owned, false);
+                    }
+                }
+            };
+            Iterator<T> iterator = new ResultIterator<>(results, (ss != null ? null : session), clearInterval, release);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .onClose(release);
+        } catch (RuntimeException ex) {
+            if (results != null) {
+                results.close();
+            }
+            if (ss != null) {
+                releaseSession(ss, true);
+            }
+            throw new DataStoreException(String.format("Error streaming query results. [query=%s]", query), ex);
+        }
+    }
+
+    private void releaseSession(StatelessSession ss, boolean failed) {
+        if (pool != null) {
+            pool.release(ss, failed);
+        } else {
+            ss.close();
         }
-        return null;
     }
 
     @Override
@@ -102,4 +292,51 @@ public class HibernateDataLoader<T> implements QueryDataLoader<Session, T> {
             session = null;
         }
     }
+
+    /**
+     * Iterator over a scrollable cursor, clears the session periodically to keep the
+     * persistence context bounded. The cursor is released once the results are exhausted.
+     */
+    private static final class ResultIterator<T> implements Iterator<T> {
+        private final ScrollableResults results;
+        private final Session session;
+        private final int clearInterval;
+        private final Runnable onExhausted;
+        private boolean fetched = false;
+        private boolean hasNext = false;
+        private long count = 0;
+
+        private ResultIterator(ScrollableResults results, Session session, int clearInterval, Runnable onExhausted) {
+            this.results = results;
+            this.session = session;
+            this.clearInterval = clearInterval;
+            this.onExhausted = onExhausted;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!fetched) {
+                if (session != null && count > 0 && count % clearInterval == 0) {
+                    session.clear();
+                }
+                hasNext = results.next();
+                fetched = true;
+                if (!hasNext) {
+                    onExhausted.run();
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            fetched = false;
+            count++;
+            return (T) results.get(0);
+        }
+    }
 }
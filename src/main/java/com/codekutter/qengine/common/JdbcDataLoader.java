@@ -0,0 +1,549 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.utils.LogUtils;
+import com.google.common.base.Preconditions;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Data loader for plain SQL queries over JDBC. Values are read from the first column
+ * of the result set with the typed getter for the result type.
+ * <p>
+ * Prepared statements are cached (LRU) per loader for the lifetime of its connection,
+ * a loader is not thread-safe and should be reused for consecutive reads by a thread.
+ * Loaders obtained from the ConnectionManager are returned to the connection's idle
+ * loaders on close(), keeping the connection and the statement cache.
+ */
+@Getter
+@Accessors(fluent = true)
+public class JdbcDataLoader<T> implements QueryDataLoader<Connection, T> {
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+    public static final String UNION_TUPLE_COLUMN = "QE_TUPLE";
+
+    private static final Pattern KEYS_PATTERN = Pattern.compile(":" + BATCH_KEYS_PARAM + "(?!\\w)");
+
+    private final DataSource dataSource;
+    private Connection connection;
+    @Getter(AccessLevel.NONE)
+    private boolean resetReadOnly = false;
+    @Getter(AccessLevel.NONE)
+    private boolean failed = false;
+    @Getter(AccessLevel.NONE)
+    private Consumer<JdbcDataLoader<?>> releaser;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > statementCacheSize) {
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public JdbcDataLoader() {
+        this.dataSource = null;
+    }
+
+    /**
+     * Loader with a connection opened from the data source on first use.
+     *
+     * @param dataSource - JDBC Data Source
+     */
+    public JdbcDataLoader(@NonNull DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Hand the loader to the releaser on close() instead of closing it.
+     *
+     * @param releaser - Release handler
+     * @return - Self
+     */
+    JdbcDataLoader<T> releaser(Consumer<JdbcDataLoader<?>> releaser) {
+        this.releaser = releaser;
+        return this;
+    }
+
+    /**
+     * Has a read failed since the connection was opened (the connection may be unusable).
+     *
+     * @return - Failed?
+     */
+    boolean failed() {
+        return failed;
+    }
+
+    @Override
+    public QueryDataLoader<Connection, T> withConnection(@NonNull Connection connection) {
+        this.connection = connection;
+        return this;
+    }
+
+    public JdbcDataLoader<T> fetchSize(int fetchSize) {
+        Preconditions.checkArgument(fetchSize > 0);
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public JdbcDataLoader<T> statementCacheSize(int statementCacheSize) {
+        Preconditions.checkArgument(statementCacheSize >= 0);
+        this.statementCacheSize = statementCacheSize;
+        return this;
+    }
+
+    @Override
+    public Collection<T> read(@NonNull String query, @NonNull Class<T> type, Object... params) throws DataStoreException {
+        return read(query, type, (params != null ? Arrays.asList(params) : null));
+    }
+
+    @Override
+    public Collection<T> read(@NonNull String query, @NonNull Class<T> type, Collection<Object> params) throws DataStoreException {
+        Extractor<T> extractor = extractor(type);
+        try {
+            PreparedStatement ps = prepare(query);
+            bind(ps, params);
+            List<T> result = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    T value = extractor.get(rs, 1);
+                    if (value != null) {
+                        result.add(value);
+                    }
+                }
+            }
+            if (!result.isEmpty()) {
+                return result;
+            }
+            return null;
+        } catch (SQLException ex) {
+            failed = true;
+            evict(query);
+            throw new DataStoreException(String.format("Error executing query. [query=%s]", query), ex);
+        }
+    }
+
+    /**
+     * Read the first (integral) column of the results into a primitive array, NULL values are skipped.
+     *
+     * @param query  - SQL query
+     * @param params - Query parameters
+     * @return - Values
+     * @throws DataStoreException
+     */
+    public long[] readLongs(@NonNull String query, Collection<Object> params) throws DataStoreException {
+        try {
+            PreparedStatement ps = prepare(query);
+            bind(ps, params);
+            long[] values = new long[Math.max(fetchSize, 16)];
+            int size = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long value = rs.getLong(1);
+                    if (rs.wasNull()) {
+                        continue;
+                    }
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, values.length * 2);
+                    }
+                    values[size++] = value;
+                }
+            }
+            return Arrays.copyOf(values, size);
+        } catch (SQLException ex) {
+            failed = true;
+            evict(query);
+            throw new DataStoreException(String.format("Error executing query. [query=%s]", query), ex);
+        }
+    }
+
+    /**
+     * Batch read, the query must select (key, value) columns and contain the
+     * :keys placeholder, which is expanded to the bind markers for each chunk.
+     */
+    @Override
+    public <K> Map<K, Collection<T>> readBatch(@NonNull String query, @NonNull Class<T> type,
+                                               @NonNull Collection<K> keys, int chunkSize) throws DataStoreException {
+        Preconditions.checkArgument(chunkSize > 0);
+        Matcher matcher = KEYS_PATTERN.matcher(query);
+        if (!matcher.find()) {
+            throw new DataStoreException(String.format("Batch query must contain the :%s placeholder. [query=%s]", BATCH_KEYS_PARAM, query));
+        }
+        Extractor<T> extractor = extractor(type);
+        Map<K, Collection<T>> result = new HashMap<>();
+        for (K key : keys) {
+            result.put(key, new ArrayList<>());
+        }
+        List<K> distinct = new ArrayList<>(result.keySet());
+        if (distinct.isEmpty()) {
+            return result;
+        }
+        // Every read of a chunk size binds the same statement, short chunks are padded with their last key.
+        int size = chunkSize;
+        String sql = matcher.replaceAll(Matcher.quoteReplacement(String.join(", ", Collections.nCopies(size, "?"))));
+        for (int ii = 0; ii < distinct.size(); ii += size) {
+            List<K> chunk = distinct.subList(ii, Math.min(ii + size, distinct.size()));
+            List<Object> params = new ArrayList<>(chunk);
+            while (params.size() < size) {
+                params.add(chunk.get(chunk.size() - 1));
+            }
+            try {
+                PreparedStatement ps = prepare(sql);
+                bind(ps, params);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Collection<T> target = result.get(key(rs.getObject(1), chunk.get(0)));
+                        T value = extractor.get(rs, 2);
+                        if (target != null && value != null) {
+                            target.add(value);
+                        }
+                    }
+                }
+            } catch (SQLException ex) {
+                failed = true;
+                evict(sql);
+                throw new DataStoreException(String.format("Error executing batch query. [query=%s]", query), ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Union read, each chunk of tuples is folded into a single query of the form
+     * SELECT n, q.* FROM (query) q UNION ALL ..., with the parameters of the tuples bound in order.
+     */
+    @Override
+    public List<Collection<T>> readUnion(@NonNull String query, @NonNull Class<T> type,
+                                         @NonNull List<? extends Collection<Object>> params, int chunkSize) throws DataStoreException {
+        Preconditions.checkArgument(chunkSize > 0);
+        Extractor<T> extractor = extractor(type);
+        List<Collection<T>> result = new ArrayList<>(params.size());
+        for (int ii = 0; ii < params.size(); ii++) {
+            result.add(new ArrayList<>());
+        }
+        for (int ii = 0; ii < params.size(); ii += chunkSize) {
+            int size = Math.min(chunkSize, params.size() - ii);
+            StringBuilder sql = new StringBuilder();
+            List<Object> values = new ArrayList<>();
+            for (int jj = 0; jj < size; jj++) {
+                if (jj > 0) {
+                    sql.append(" UNION ALL ");
+                }
+                sql.append("SELECT ").append(jj).append(" AS ").append(UNION_TUPLE_COLUMN)
+                        .append(", q.* FROM (").append(query).append(") q");
+                Collection<Object> tuple = params.get(ii + jj);
+                if (tuple != null) {
+                    values.addAll(tuple);
+                }
+            }
+            String folded = sql.toString();
+            try {
+                PreparedStatement ps = prepare(folded);
+                bind(ps, values);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int index = rs.getInt(1);
+                        T value = extractor.get(rs, 2);
+                        if (value != null && index >= 0 && index < size) {
+                            result.get(ii + index).add(value);
+                        }
+                    }
+                }
+            } catch (SQLException ex) {
+                failed = true;
+                evict(folded);
+                throw new DataStoreException(String.format("Error executing union query. [query=%s]", query), ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stream the query results, rows are fetched in batches of the fetch size.
+     * The statement is not cached, it is closed with the stream.
+     */
+    @Override
+    public Stream<T> stream(@NonNull String query, @NonNull Class<T> type, Collection<Object> params) throws DataStoreException {
+        Extractor<T> extractor = extractor(type);
+        PreparedStatement ps = null;
+        try {
+            ps = open().prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            bind(ps, params);
+            ResultSet rs = ps.executeQuery();
+            PreparedStatement statement = ps;
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new ResultIterator<>(rs, extractor), Spliterator.ORDERED), false)
+                    .onClose(() -> closeQuietly(statement));
+        } catch (SQLException ex) {
+            failed = true;
+            closeQuietly(ps);
+            throw new DataStoreException(String.format("Error executing query. [query=%s]", query), ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (releaser != null) {
+            releaser.accept(this);
+            return;
+        }
+        destroy();
+    }
+
+    /**
+     * Close the cached statements and the connection opened by the loader.
+     */
+    void destroy() {
+        for (PreparedStatement ps : statements.values()) {
+            closeQuietly(ps);
+        }
+        statements.clear();
+        if (connection != null && dataSource != null) {
+            // Connections opened by the loader are closed, passed connections are owned by the caller.
+            try {
+                if (resetReadOnly) {
+                    // Do not leak the read-only state to other users of pooled connections.
+                    connection.setReadOnly(false);
+                }
+                connection.close();
+            } catch (SQLException ex) {
+                LogUtils.warn(getClass(), String.format("Error closing connection. [error=%s]", ex.getLocalizedMessage()));
+            }
+            connection = null;
+            resetReadOnly = false;
+            failed = false;
+        }
+    }
+
+    private Connection open() throws DataStoreException {
+        if (connection == null) {
+            if (dataSource == null) {
+                throw new DataStoreException("Connection not set.");
+            }
+            try {
+                connection = dataSource.getConnection();
+                if (!connection.isReadOnly()) {
+                    connection.setReadOnly(true);
+                    resetReadOnly = true;
+                }
+            } catch (SQLException ex) {
+                throw new DataStoreException(ex);
+            }
+        }
+        return connection;
+    }
+
+    private PreparedStatement prepare(String query) throws DataStoreException, SQLException {
+        PreparedStatement ps = statements.get(query);
+        if (ps == null || ps.isClosed()) {
+            ps = open().prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            if (statementCacheSize > 0) {
+                statements.put(query, ps);
+            }
+        } else {
+            ps.clearParameters();
+        }
+        return ps;
+    }
+
+    private void evict(String query) {
+        PreparedStatement ps = statements.remove(query);
+        if (ps != null) {
+            closeQuietly(ps);
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Collection<Object> params) throws SQLException {
+        if (params == null) {
+            return;
+        }
+        int index = 1;
+        for (Object param : params) {
+            if (param instanceof Date && !(param instanceof java.sql.Date) && !(param instanceof Timestamp)) {
+                param = new Timestamp(((Date) param).getTime());
+            } else if (param instanceof Enum) {
+                param = ((Enum<?>) param).name();
+            }
+            ps.setObject(index++, param);
+        }
+    }
+
+    /**
+     * Map the key read from the result set to the type of the requested keys
+     * (drivers may return a different numeric type for the key column).
+     */
+    private static Object key(Object value, Object sample) {
+        if (value instanceof Number && sample instanceof Number && value.getClass() != sample.getClass()) {
+            Number number = (Number) value;
+            if (sample instanceof Long) {
+                return number.longValue();
+            } else if (sample instanceof Integer) {
+                return number.intValue();
+            } else if (sample instanceof Short) {
+                return number.shortValue();
+            } else if (sample instanceof Double) {
+                return number.doubleValue();
+            } else if (sample instanceof Float) {
+                return number.floatValue();
+            }
+        }
+        return value;
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        if (ps == null) return;
+        try {
+            ps.close();
+        } catch (SQLException ex) {
+            LogUtils.warn(JdbcDataLoader.class, String.format("Error closing statement. [error=%s]", ex.getLocalizedMessage()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Extractor<T> extractor(Class<T> type) {
+        if (type == Long.class || type == long.class) {
+            return (rs, col) -> {
+                long value = rs.getLong(col);
+                return (rs.wasNull() ? null : (T) Long.valueOf(value));
+            };
+        } else if (type == Integer.class || type == int.class) {
+            return (rs, col) -> {
+                int value = rs.getInt(col);
+                return (rs.wasNull() ? null : (T) Integer.valueOf(value));
+            };
+        } else if (type == Short.class || type == short.class) {
+            return (rs, col) -> {
+                short value = rs.getShort(col);
+                return (rs.wasNull() ? null : (T) Short.valueOf(value));
+            };
+        } else if (type == Double.class || type == double.class) {
+            return (rs, col) -> {
+                double value = rs.getDouble(col);
+                return (rs.wasNull() ? null : (T) Double.valueOf(value));
+            };
+        } else if (type == Float.class || type == float.class) {
+            return (rs, col) -> {
+                float value = rs.getFloat(col);
+                return (rs.wasNull() ? null : (T) Float.valueOf(value));
+            };
+        } else if (type == Boolean.class || type == boolean.class) {
+            return (rs, col) -> {
+                boolean value = rs.getBoolean(col);
+                return (rs.wasNull() ? null : (T) Boolean.valueOf(value));
+            };
+        } else if (type == String.class) {
+            return (rs, col) -> (T) rs.getString(col);
+        } else if (type == BigDecimal.class) {
+            return (rs, col) -> (T) rs.getBigDecimal(col);
+        } else if (type == java.sql.Date.class) {
+            return (rs, col) -> (T) rs.getDate(col);
+        } else if (type == Timestamp.class) {
+            return (rs, col) -> (T) rs.getTimestamp(col);
+        } else if (type == Date.class) {
+            return (rs, col) -> {
+                Timestamp value = rs.getTimestamp(col);
+                return (value == null ? null : (T) new Date(value.getTime()));
+            };
+        }
+        return (rs, col) -> rs.getObject(col, type);
+    }
+
+    @FunctionalInterface
+    private interface Extractor<T> {
+        T get(ResultSet rs, int column) throws SQLException;
+    }
+
+    private static final class ResultIterator<T> implements Iterator<T> {
+        private final ResultSet rs;
+        private final Extractor<T> extractor;
+        private T next;
+        private boolean done = false;
+
+        private ResultIterator(ResultSet rs, Extractor<T> extractor) {
+            this.rs = rs;
+            this.extractor = extractor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null && !done) {
+                    if (rs.next()) {
+                        next = extractor.get(rs, 1);
+                    } else {
+                        done = true;
+                    }
+                }
+                return next != null;
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = next;
+            next = null;
+            return value;
+        }
+    }
+}
@@ -24,25 +24,294 @@
 package com.codekutter.qengine.common;
 
 import com.codekutter.qengine.model.ClassIndex;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.NonNull;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Cache of class indexes. Lookups of built indexes are lock-free; each type is built
+ * once, concurrent requests for a type wait on the future of the thread building it.
+ * A plain computeIfAbsent can't be used here, as setup recursively requests indexes
+ * for referenced types. Nested builds never wait on another thread (cross references
+ * could deadlock), they build a private copy instead.
+ */
 public class QueryCacheManager {
+    public static final long DEFAULT_RESULT_CACHE_SIZE = 1024;
+    public static final long DEFAULT_RESULT_TTL = 5 * 60 * 1000;
+    public static final long DEFAULT_CLASS_INDEX_SIZE = 4096;
     private static final QueryCacheManager __instance = new QueryCacheManager();
-    private final Map<Class<?>, ClassIndex<?>> classIndex = new HashMap<>();
+    private volatile Cache<Class<?>, ClassIndex<?>> classIndex = classIndexCache(DEFAULT_CLASS_INDEX_SIZE);
+    /**
+     * Weak-keyed store: values are held by the class itself, so they don't
+     * prevent the class (and its class loader) from being unloaded.
+     */
+    private final ClassValue<AtomicReference<ClassIndex<?>>> weakIndex = new ClassValue<AtomicReference<ClassIndex<?>>>() {
+        @Override
+        protected AtomicReference<ClassIndex<?>> computeValue(Class<?> type) {
+            return new AtomicReference<>();
+        }
+    };
+    // Types being built, completed when the index is published.
+    private final Map<Class<?>, CompletableFuture<ClassIndex<?>>> pending = new ConcurrentHashMap<>();
+    private final ThreadLocal<Builds> builds = ThreadLocal.withInitial(Builds::new);
+    private volatile boolean weakKeys = false;
+    /**
+     * Memoized subquery results, keyed by the query and bound parameters.
+     */
+    private final AtomicReference<Cache<Object, Object>> queryResults = new AtomicReference<>(resultCache(DEFAULT_RESULT_CACHE_SIZE, DEFAULT_RESULT_TTL));
 
     public static QueryCacheManager get() {
         return __instance;
     }
 
+    /**
+     * Use weak keys for class indexes built from now on. Enable when entity
+     * classes are loaded by redeployable class loaders.
+     *
+     * @param weakKeys - Use weak keys?
+     * @return - Self
+     */
+    public QueryCacheManager weakKeys(boolean weakKeys) {
+        this.weakKeys = weakKeys;
+        return this;
+    }
+
+    public boolean weakKeys() {
+        return weakKeys;
+    }
+
+    /**
+     * Bound the number of (strongly held) class indexes, least recently used indexes are evicted.
+     *
+     * @param maxSize - Maximum number of cached indexes
+     * @return - Self
+     */
+    public QueryCacheManager classIndexCacheSize(long maxSize) {
+        Preconditions.checkArgument(maxSize > 0);
+        Cache<Class<?>, ClassIndex<?>> cache = classIndexCache(maxSize);
+        cache.putAll(classIndex.asMap());
+        classIndex = cache;
+        return this;
+    }
+
+    /**
+     * Configure the subquery result cache, cached results are dropped.
+     *
+     * @param maxSize - Maximum number of cached results
+     * @param ttl     - Time (in milliseconds) after which a result expires
+     * @return - Self
+     */
+    public QueryCacheManager queryResultCache(long maxSize, long ttl) {
+        Preconditions.checkArgument(maxSize > 0);
+        Preconditions.checkArgument(ttl > 0);
+        // Swap atomically, each replaced cache is invalidated exactly once.
+        queryResults.getAndSet(resultCache(maxSize, ttl)).invalidateAll();
+        return this;
+    }
+
+    /**
+     * Get the cached subquery result, or load it. Concurrent requests for the
+     * same key share a single load.
+     *
+     * @param key    - Query and bound parameters (must implement equals/hashCode)
+     * @param loader - Result loader (must not return NULL)
+     * @return - Result
+     * @throws DataStoreException
+     */
     @SuppressWarnings("unchecked")
-    public <T> ClassIndex<T> getClassIndex(Class<T> type) {
-        if (!classIndex.containsKey(type)) {
-            ClassIndex<T> index = new ClassIndex<>(type);
+    public <V> V getQueryResult(@NonNull Object key, @NonNull Callable<V> loader) throws DataStoreException {
+        try {
+            return (V) queryResults.get().get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof DataStoreException) {
+                throw (DataStoreException) cause;
+            }
+            throw new DataStoreException(cause);
+        }
+    }
+
+    public void invalidateQueryResults() {
+        queryResults.get().invalidateAll();
+    }
+
+    public CacheStats queryResultStats() {
+        return queryResults.get().stats();
+    }
+
+    private static Cache<Object, Object> resultCache(long maxSize, long ttl) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    private static Cache<Class<?>, ClassIndex<?>> classIndexCache(long maxSize) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> ClassIndex<T> getClassIndex(@NonNull Class<T> type) {
+        ClassIndex<?> index = find(type);
+        if (index != null) {
+            return (ClassIndex<T>) index;
+        }
+        Builds current = builds.get();
+        index = current.building.get(type);
+        if (index != null) {
+            current.recursive(type);
+            return (ClassIndex<T>) index;
+        }
+        CompletableFuture<ClassIndex<?>> future = new CompletableFuture<>();
+        CompletableFuture<ClassIndex<?>> owner = pending.putIfAbsent(type, future);
+        if (owner != null) {
+            if (current.building.isEmpty()) {
+                return (ClassIndex<T>) await(type, owner);
+            }
+            return build(type, current, false);
+        }
+        try {
+            // Re-check, the index may have been published before the future was registered.
+            index = find(type);
+            if (index == null) {
+                index = build(type, current, true);
+            }
+            future.complete(index);
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            pending.remove(type, future);
+        }
+        return (ClassIndex<T>) index;
+    }
+
+    /**
+     * Check if the index for the type is cached.
+     *
+     * @param type - Indexed type
+     * @return - Is cached?
+     */
+    public boolean cached(@NonNull Class<?> type) {
+        return find(type) != null;
+    }
+
+    private ClassIndex<?> await(Class<?> type, CompletableFuture<ClassIndex<?>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(String.format("Error building class index. [type=%s]", type.getCanonicalName()), cause);
+        }
+    }
+
+    private <T> ClassIndex<T> build(Class<T> type, Builds current, boolean publish) {
+        ClassIndex<T> index = new ClassIndex<>(type);
+        current.building.put(type, index);
+        boolean partial;
+        Set<Class<?>> dependents;
+        try {
             index.setup();
-            classIndex.put(type, index);
+        } finally {
+            current.building.remove(type);
+            partial = current.partial.remove(type);
+            dependents = current.dependents.remove(type);
+        }
+        if (publish && !partial) {
+            if (weakKeys) {
+                weakIndex.get(type).set(index);
+            } else {
+                classIndex.put(type, index);
+            }
+            // Types that copied this (then partial) index are rebuilt against the complete one.
+            if (dependents != null) {
+                for (Class<?> dependent : dependents) {
+                    getClassIndex(dependent);
+                }
+            }
+        }
+        return index;
+    }
+
+    private ClassIndex<?> find(Class<?> type) {
+        ClassIndex<?> index = classIndex.getIfPresent(type);
+        if (index == null && weakKeys) {
+            index = weakIndex.get(type).get();
+        }
+        return index;
+    }
+
+    /**
+     * Remove the cached index for the specified type.
+     *
+     * @param type - Type to evict.
+     */
+    public void evict(@NonNull Class<?> type) {
+        classIndex.invalidate(type);
+        weakIndex.remove(type);
+    }
+
+    /**
+     * Remove the cached indexes for all types loaded by the specified class loader.
+     *
+     * @param loader - Class loader being discarded.
+     */
+    public void evict(@NonNull ClassLoader loader) {
+        Iterator<Class<?>> iter = classIndex.asMap().keySet().iterator();
+        while (iter.hasNext()) {
+            Class<?> type = iter.next();
+            if (type.getClassLoader() == loader) {
+                iter.remove();
+                weakIndex.remove(type);
+            }
+        }
+    }
+
+    /**
+     * Per-thread build state: indexes being built (in build order), types that copied a
+     * partially built index, and for each recursively referenced type the types that copied it.
+     */
+    private static final class Builds {
+        private final Map<Class<?>, ClassIndex<?>> building = new LinkedHashMap<>();
+        private final Set<Class<?>> partial = new HashSet<>();
+        private final Map<Class<?>, Set<Class<?>>> dependents = new HashMap<>();
+
+        private void recursive(Class<?> type) {
+            boolean after = false;
+            for (Class<?> bt : building.keySet()) {
+                if (after) {
+                    partial.add(bt);
+                    dependents.computeIfAbsent(type, t -> new LinkedHashSet<>()).add(bt);
+                }
+                if (bt.equals(type)) after = true;
+            }
         }
-        return (ClassIndex<T>) classIndex.get(type);
     }
 }
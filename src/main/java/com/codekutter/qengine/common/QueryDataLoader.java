@@ -23,15 +23,83 @@
 
 package com.codekutter.qengine.common;
 
+import com.google.common.base.Preconditions;
 import lombok.NonNull;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface QueryDataLoader<C, T> extends Closeable {
+    String BATCH_KEYS_PARAM = "keys";
+    int DEFAULT_BATCH_SIZE = 500;
+
     QueryDataLoader<C, T> withConnection(@NonNull C connection);
 
     Collection<T> read(@NonNull String query, @NonNull Class<T> type, Object... params) throws DataStoreException;
 
     Collection<T> read(@NonNull String query, @NonNull Class<T> type, Collection<Object> params) throws DataStoreException;
+
+    /**
+     * Read the query results as a stream, loaders backed by a cursor fetch the
+     * rows incrementally. The stream must be closed to release the cursor.
+     *
+     * @param query  - Query string
+     * @param type   - Result type
+     * @param params - Query parameters
+     * @return - Stream of results
+     * @throws DataStoreException
+     */
+    default Stream<T> stream(@NonNull String query, @NonNull Class<T> type, Collection<Object> params) throws DataStoreException {
+        Collection<T> result = read(query, type, params);
+        return (result != null ? result.stream() : Stream.empty());
+    }
+
+    default Stream<T> stream(@NonNull String query, @NonNull Class<T> type, Object... params) throws DataStoreException {
+        return stream(query, type, (params != null ? Arrays.asList(params) : null));
+    }
+
+    /**
+     * Read the results for many keys with a single query per chunk of keys. The query must
+     * select (key, value) rows and bind the chunk of keys to the collection parameter
+     * named by BATCH_KEYS_PARAM, the rows are split back per key.
+     *
+     * @param query     - Batch query string
+     * @param type      - Value type
+     * @param keys      - Keys to read
+     * @param chunkSize - Maximum number of keys bound per query
+     * @return - Values per key (keys without rows map to an empty collection)
+     * @throws DataStoreException
+     */
+    default <K> Map<K, Collection<T>> readBatch(@NonNull String query, @NonNull Class<T> type,
+                                                @NonNull Collection<K> keys, int chunkSize) throws DataStoreException {
+        throw new DataStoreException(String.format("Batch reads not supported. [loader=%s]", getClass().getCanonicalName()));
+    }
+
+    /**
+     * Read the results of the query for each of the parameter tuples. Loaders that support it
+     * fold up to chunkSize tuples into a single UNION query, by default the query is executed
+     * once per tuple.
+     *
+     * @param query     - Query string
+     * @param type      - Value type
+     * @param params    - Parameter tuples
+     * @param chunkSize - Maximum number of tuples folded per query
+     * @return - Values per tuple, in tuple order (tuples without rows map to an empty collection)
+     * @throws DataStoreException
+     */
+    default List<Collection<T>> readUnion(@NonNull String query, @NonNull Class<T> type,
+                                          @NonNull List<? extends Collection<Object>> params, int chunkSize) throws DataStoreException {
+        Preconditions.checkArgument(chunkSize > 0);
+        List<Collection<T>> result = new ArrayList<>(params.size());
+        for (Collection<Object> tuple : params) {
+            Collection<T> values = read(query, type, tuple);
+            result.add(values != null ? values : new ArrayList<>());
+        }
+        return result;
+    }
 }
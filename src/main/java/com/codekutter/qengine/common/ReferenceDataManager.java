@@ -23,26 +23,68 @@
 
 package com.codekutter.qengine.common;
 
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.values.ValueIndex;
 import com.codekutter.qengine.utils.LogUtils;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.NonNull;
 import org.ehcache.Cache;
 import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 public class ReferenceDataManager {
     public static final ReferenceDataManager __instance = new ReferenceDataManager();
     private static final String CACHE_EXTERNAL_DATA = "cache.data.external";
     private final ObjectState state = new ObjectState();
-    private final Map<String, Collection<?>> maps = new HashMap<>();
-    private final Map<String, ExternalDataList> external = new HashMap<>();
+    private final Map<String, ReferenceData> maps = new ConcurrentHashMap<>();
+    private final Map<String, ExternalDataList> external = new ConcurrentHashMap<>();
+    /**
+     * In-flight loads of external lists, concurrent misses on the same list share the load.
+     */
+    private final Map<String, CompletableFuture<ReferenceData>> loading = new ConcurrentHashMap<>();
+    /**
+     * Loaded values of cached external lists, entries are replaced atomically on reload.
+     * With a cache store (see setup(heapEntries, offHeapSize)) heap lists are held by the
+     * cache store only, off-heap lists are always held here.
+     */
+    private final Map<String, ReferenceData> loaded = new ConcurrentHashMap<>();
+    /**
+     * Load time of the lists held by the cache store.
+     */
+    private final Map<String, Long> cachedAt = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> refreshes = new ConcurrentHashMap<>();
     private CacheManager cacheManager;
-    private final ReentrantLock edcLock = new ReentrantLock();
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+    private File snapshots;
+    private int batchSize = QueryDataLoader.DEFAULT_BATCH_SIZE;
 
     private ReferenceDataManager() {
     }
@@ -53,6 +95,38 @@ public class ReferenceDataManager {
         }
     }
 
+    /**
+     * Setup with an ehcache store for external lists, with a heap tier and an off-heap tier.
+     *
+     * @param heapEntries - Number of lists held in the heap tier
+     * @param offHeapSize - Size (MB) of the off-heap tier
+     * @throws ConfigurationException
+     */
+    @SuppressWarnings("rawtypes")
+    public static void setup(long heapEntries, long offHeapSize) throws ConfigurationException {
+        Preconditions.checkArgument(heapEntries > 0);
+        Preconditions.checkArgument(offHeapSize > 0);
+        synchronized (__instance) {
+            if (__instance.state.getState() != EObjectState.Available) {
+                try {
+                    __instance.cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                            .withCache(CACHE_EXTERNAL_DATA,
+                                    CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, Collection.class,
+                                            ResourcePoolsBuilder.newResourcePoolsBuilder()
+                                                    .heap(heapEntries, EntryUnit.ENTRIES)
+                                                    .offheap(offHeapSize, MemoryUnit.MB))
+                                            .withValueSerializer(new CollectionSerializer()))
+                            .build(true);
+                } catch (Throwable t) {
+                    __instance.state.setError(t);
+                    LogUtils.error(ReferenceDataManager.class, t);
+                    throw new ConfigurationException(t);
+                }
+                __instance.init();
+            }
+        }
+    }
+
     public static ReferenceDataManager get() throws StateException {
         __instance.state.check(EObjectState.Available, ReferenceDataManager.class);
         return __instance;
@@ -60,6 +134,18 @@ public class ReferenceDataManager {
 
     private void init() throws ConfigurationException {
         try {
+            if (executor == null) {
+                executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("reference-data-loader-%d")
+                        .build());
+            }
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("reference-data-refresh-%d")
+                        .build());
+            }
             state.setState(EObjectState.Available);
         } catch (Throwable t) {
             state.setError(t);
@@ -68,10 +154,185 @@ public class ReferenceDataManager {
         }
     }
 
+    /**
+     * Set the executor used for asynchronous loads of external lists.
+     *
+     * @param executor - Executor Service
+     * @return - Self
+     */
+    public ReferenceDataManager executor(@NonNull ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Add a reference list, the data type for the lookup index is derived from the values.
+     *
+     * @param key    - Reference list name
+     * @param values - Values
+     * @return - Self
+     */
     public ReferenceDataManager put(@NonNull String key, @NonNull Collection<?> values) {
+        DataType.BasicDataType<?> dataType = null;
+        if (!values.isEmpty()) {
+            Object value = values.iterator().next();
+            if (value != null) {
+                DataType dt = DataType.convert(value.getClass());
+                if (dt instanceof DataType.BasicDataType) {
+                    dataType = (DataType.BasicDataType<?>) dt;
+                }
+            }
+        }
+        return put(key, dataType, values);
+    }
+
+    /**
+     * Add a reference list, a lookup index matching the data type is built for the values.
+     *
+     * @param key      - Reference list name
+     * @param dataType - Data Type of the values
+     * @param values   - Values
+     * @return - Self
+     */
+    public ReferenceDataManager put(@NonNull String key, DataType.BasicDataType<?> dataType, @NonNull Collection<?> values) {
+        return put(key, dataType, values, false);
+    }
+
+    /**
+     * Add a reference list, optionally stored outside the Java heap. Off-heap lists do not
+     * retain the passed collection, values are read from the off-heap store (distinct values,
+     * not in the passed order, timestamps at millisecond precision).
+     *
+     * @param key      - Reference list name
+     * @param dataType - Data Type of the values
+     * @param values   - Values
+     * @param offHeap  - Store off-heap
+     * @return - Self
+     */
+    public ReferenceDataManager put(@NonNull String key, DataType.BasicDataType<?> dataType,
+                                    @NonNull Collection<?> values, boolean offHeap) {
         Preconditions.checkArgument(!Strings.isNullOrEmpty(key));
-        maps.put(key, values);
+        maps.put(key, new ReferenceData(dataType, values, System.currentTimeMillis(), offHeap));
+
+        return this;
+    }
+
+    /**
+     * Set the directory for reference list snapshots. Registered lists with snapshots enabled
+     * are served from the snapshot till the first load from the data store completes.
+     *
+     * @param directory - Snapshot directory
+     * @return - Self
+     * @throws ConfigurationException
+     */
+    public ReferenceDataManager snapshots(@NonNull File directory) throws ConfigurationException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new ConfigurationException(String.format("Error creating snapshot directory. [path=%s]", directory.getAbsolutePath()));
+        }
+        if (!directory.isDirectory()) {
+            throw new ConfigurationException(String.format("Invalid snapshot directory. [path=%s]", directory.getAbsolutePath()));
+        }
+        this.snapshots = directory;
+        return this;
+    }
 
+    /**
+     * Load the external lists. Lists with a batch query are grouped by connection and batch query,
+     * each group is read with a query per chunk of batchSize keys. Lists sharing a query with
+     * different parameters are grouped and read as UNION queries of batchSize parameter tuples
+     * (see QueryDataLoader.readUnion()). Other lists are loaded in the background.
+     * <p>
+     * Lists already being loaded are not reloaded, a failed group does not stop the other groups.
+     *
+     * @param keys - External list names
+     * @return - Self
+     * @throws DataStoreException - Error loading any of the groups (further errors are suppressed)
+     */
+    public ReferenceDataManager preload(@NonNull Collection<String> keys) throws DataStoreException {
+        Map<String, List<ExternalDataList>> batches = new LinkedHashMap<>();
+        Map<String, List<ExternalDataList>> unions = new LinkedHashMap<>();
+        for (String key : keys) {
+            ExternalDataList el = external.get(key);
+            if (el == null) {
+                continue;
+            }
+            if (batched(el)) {
+                batches.computeIfAbsent(batchGroup(el), k -> new ArrayList<>()).add(el);
+            } else if (!Strings.isNullOrEmpty(el.query())) {
+                unions.computeIfAbsent(unionGroup(el), k -> new ArrayList<>()).add(el);
+            } else {
+                loadAsync(el);
+            }
+        }
+        DataStoreException error = null;
+        for (List<ExternalDataList> batch : batches.values()) {
+            error = failed(error, loadBatch(claim(batch), false));
+        }
+        for (List<ExternalDataList> union : unions.values()) {
+            if (union.size() == 1) {
+                loadAsync(union.get(0));
+            } else {
+                error = failed(error, loadBatch(claim(union), true));
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return this;
+    }
+
+    private static DataStoreException failed(DataStoreException error, Throwable t) {
+        if (t == null) {
+            return error;
+        }
+        if (error == null) {
+            return (t instanceof DataStoreException ? (DataStoreException) t : new DataStoreException(t));
+        }
+        error.addSuppressed(t);
+        return error;
+    }
+
+    public ReferenceDataManager batchSize(int batchSize) {
+        Preconditions.checkArgument(batchSize > 0);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public ReferenceDataManager register(@NonNull ExternalDataList dataList) {
+        external.put(dataList.name(), dataList);
+        if (snapshotEnabled(dataList)) {
+            ValueIndex index = ReferenceSnapshot.read(ReferenceSnapshot.file(snapshots, dataList.name()), dataList.dataType());
+            if (index != null) {
+                store(dataList, new ReferenceData(index, System.currentTimeMillis()));
+                // Serve the snapshot and refresh from the data store in the background.
+                loadAsync(dataList);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Drop the loaded values of an external list, the next read reloads it.
+     *
+     * @param key - External list name
+     * @return - Self
+     */
+    @SuppressWarnings("rawtypes")
+    public ReferenceDataManager invalidate(@NonNull String key) {
+        // An in-flight load is superseded, its values are not published.
+        loading.remove(key);
+        loaded.remove(key);
+        cachedAt.remove(key);
+        ScheduledFuture<?> refresh = refreshes.remove(key);
+        if (refresh != null) {
+            refresh.cancel(false);
+        }
+        if (cacheManager != null) {
+            Cache<String, Collection> cache = cacheManager.getCache(CACHE_EXTERNAL_DATA, String.class, Collection.class);
+            if (cache != null) {
+                cache.remove(key);
+            }
+        }
         return this;
     }
 
@@ -81,60 +342,485 @@ public class ReferenceDataManager {
 
     @SuppressWarnings("unchecked")
     public <T> Collection<T> get(@NonNull String key) throws DataStoreException {
-        if (hasReferenceData(key)) {
-            if (maps.containsKey(key)) {
-                return (Collection<T>) maps.get(key);
-            } else if (external.containsKey(key)) {
-                ExternalDataList el = external.get(key);
-                if (el != null) return get(el);
+        ReferenceData data = find(key);
+        if (data != null) {
+            return (Collection<T>) data.values;
+        }
+        return null;
+    }
+
+    /**
+     * Check if the reference list contains the value, using the lookup index of the list.
+     *
+     * @param key   - Reference list name
+     * @param value - Value to check
+     * @return - Is contained? (false if the list does not exist)
+     * @throws DataStoreException
+     */
+    public boolean contains(@NonNull String key, Object value) throws DataStoreException {
+        ValueIndex index = index(key);
+        return (index != null && index.contains(value));
+    }
+
+    /**
+     * Get the lookup index for the reference list. Lists not cached (see ExternalDataList.cached())
+     * are read from the data store on each call, callers should resolve the index once per evaluation.
+     *
+     * @param key - Reference list name
+     * @return - Value Index or NULL if the list does not exist
+     * @throws DataStoreException
+     */
+    public ValueIndex index(@NonNull String key) throws DataStoreException {
+        ReferenceData data = find(key);
+        if (data != null) {
+            return data.index;
+        }
+        return null;
+    }
+
+    /**
+     * Get the reference data for the specified key without blocking the caller.
+     * Concurrent requests for an external list not in cache share a single load.
+     *
+     * @param key - Reference data key
+     * @return - Future for the values (completes with NULL if key not found)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<Collection<T>> getAsync(@NonNull String key) {
+        ReferenceData data = maps.get(key);
+        if (data != null) {
+            return CompletableFuture.completedFuture((Collection<T>) data.values);
+        }
+        ExternalDataList el = external.get(key);
+        if (el == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        data = checkCache(el);
+        if (data != null) {
+            return CompletableFuture.completedFuture((Collection<T>) data.values);
+        }
+        return loadAsync(el).thenApply(rd -> (Collection<T>) rd.values);
+    }
+
+    private ReferenceData find(String key) throws DataStoreException {
+        ReferenceData data = maps.get(key);
+        if (data != null) {
+            return data;
+        }
+        ExternalDataList el = external.get(key);
+        if (el != null) return get(el);
+        return null;
+    }
+
+    /**
+     * Start a background load of the external list, or join the in-flight load.
+     */
+    private CompletableFuture<ReferenceData> loadAsync(ExternalDataList el) {
+        CompletableFuture<ReferenceData> future = new CompletableFuture<>();
+        CompletableFuture<ReferenceData> current = loading.putIfAbsent(el.name(), future);
+        if (current != null) {
+            return current;
+        }
+        executor.execute(() -> load(el, future));
+        return future;
+    }
+
+    private ReferenceData get(ExternalDataList dataList) throws DataStoreException {
+        ReferenceData data = checkCache(dataList);
+        if (data != null) {
+            return data;
+        }
+        CompletableFuture<ReferenceData> future = new CompletableFuture<>();
+        CompletableFuture<ReferenceData> current = loading.putIfAbsent(dataList.name(), future);
+        if (current == null) {
+            // Load on the calling thread, other callers wait on the future.
+            load(dataList, future);
+            current = future;
+        }
+        try {
+            return current.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof DataStoreException) {
+                throw new DataStoreException(cause.getLocalizedMessage(), cause);
+            }
+            throw new DataStoreException(cause);
+        }
+    }
+
+    private void load(ExternalDataList el, CompletableFuture<ReferenceData> future) {
+        if (batched(el)) {
+            Map<ExternalDataList, CompletableFuture<ReferenceData>> claimed = new LinkedHashMap<>();
+            claimed.put(el, future);
+            // Reload the loaded lists of the same batch group with the same query.
+            String group = batchGroup(el);
+            for (ExternalDataList other : external.values()) {
+                if (other != el && other.cached() && batched(other) && isLoaded(other)
+                        && group.equals(batchGroup(other))) {
+                    claim(other, claimed);
+                }
+            }
+            loadBatch(claimed, false);
+            return;
+        }
+        try {
+            future.complete(update(el, fetchFromDataStore(el), future));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            future.completeExceptionally(t);
+        } finally {
+            completed(el, future);
+        }
+    }
+
+    private void completed(ExternalDataList el, CompletableFuture<ReferenceData> future) {
+        boolean current = loading.remove(el.name(), future);
+        // Not rescheduled if the list was replaced or invalidated while loading.
+        if (current && el.cached() && el.refreshAhead() && el.refreshAfter() > 0
+                && external.get(el.name()) == el && isLoaded(el)) {
+            scheduleRefresh(el);
+        }
+    }
+
+    private static boolean batched(ExternalDataList el) {
+        return (!Strings.isNullOrEmpty(el.batchQuery()) && el.batchKey() != null);
+    }
+
+    private static String batchGroup(ExternalDataList el) {
+        return String.format("%s:%s:%s:%s", el.connectionType(), el.connection(), el.dataType().name(), el.batchQuery());
+    }
+
+    private static String unionGroup(ExternalDataList el) {
+        return String.format("%s:%s:%s:%s", el.connectionType(), el.connection(), el.dataType().name(), el.query());
+    }
+
+    /**
+     * Register the loads of the lists as in-flight, lists already being loaded are skipped.
+     */
+    private Map<ExternalDataList, CompletableFuture<ReferenceData>> claim(List<ExternalDataList> lists) {
+        Map<ExternalDataList, CompletableFuture<ReferenceData>> claimed = new LinkedHashMap<>();
+        for (ExternalDataList el : lists) {
+            claim(el, claimed);
+        }
+        return claimed;
+    }
+
+    private void claim(ExternalDataList el, Map<ExternalDataList, CompletableFuture<ReferenceData>> claimed) {
+        CompletableFuture<ReferenceData> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(el.name(), future) == null) {
+            claimed.put(el, future);
+        }
+    }
+
+    /**
+     * Load the claimed lists with a batch (or union) read and complete their futures.
+     *
+     * @return - Error or NULL if loaded
+     */
+    private Throwable loadBatch(Map<ExternalDataList, CompletableFuture<ReferenceData>> claimed, boolean union) {
+        if (claimed.isEmpty()) {
+            return null;
+        }
+        try {
+            List<ExternalDataList> lists = new ArrayList<>(claimed.keySet());
+            Map<ExternalDataList, Collection<?>> values = (union ? fetchUnion(lists) : fetchBatch(lists));
+            for (Map.Entry<ExternalDataList, CompletableFuture<ReferenceData>> entry : claimed.entrySet()) {
+                ExternalDataList el = entry.getKey();
+                entry.getValue().complete(update(el, data(el, values.get(el)), entry.getValue()));
+            }
+            return null;
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            for (CompletableFuture<ReferenceData> future : claimed.values()) {
+                future.completeExceptionally(t);
+            }
+            return t;
+        } finally {
+            for (Map.Entry<ExternalDataList, CompletableFuture<ReferenceData>> entry : claimed.entrySet()) {
+                completed(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void scheduleRefresh(ExternalDataList el) {
+        ScheduledFuture<?> refresh = scheduler.schedule(() -> {
+            // Reload on the loader executor, readers keep getting the current values.
+            if (external.get(el.name()) == el) {
+                loadAsync(el);
+            }
+        }, el.refreshAfter(), TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = refreshes.put(el.name(), refresh);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Check the loaded values. Expired values (TTL) are not returned, values older than the
+     * refresh interval are returned and a background reload is triggered.
+     */
+    private ReferenceData checkCache(ExternalDataList el) {
+        if (!el.cached()) {
+            return null;
+        }
+        ReferenceData data = current(el);
+        if (data != null) {
+            long age = System.currentTimeMillis() - data.loadedAt;
+            if (el.ttl() <= 0 || age < el.ttl()) {
+                if (el.refreshAfter() > 0 && age >= el.refreshAfter() && !el.refreshAhead()) {
+                    loadAsync(el);
+                }
+                return data;
             }
         }
         return null;
     }
 
-    private <C, T> Collection<T> get(ExternalDataList dataList) throws DataStoreException {
-        Collection<T> data = checkCache(dataList);
-        if (data == null) {
-            return fetchFromDataStore(dataList);
+    /**
+     * Get the cache store for the list, off-heap lists are not held by the cache store.
+     *
+     * @return - Cache or NULL if the list is held in the loaded map
+     */
+    @SuppressWarnings("rawtypes")
+    private Cache<String, Collection> cache(ExternalDataList el) {
+        if (cacheManager == null || el.offHeap()) {
+            return null;
         }
-        return data;
+        return cacheManager.getCache(CACHE_EXTERNAL_DATA, String.class, Collection.class);
     }
 
+    /**
+     * Get the stored values of the list. Values read back from the off-heap tier of the cache
+     * store are indexed once and put back, heap tier entries keep their index.
+     */
     @SuppressWarnings({"rawtypes", "unchecked"})
-    private <T> Collection<T> checkCache(ExternalDataList el) throws DataStoreException {
-        if (cacheManager != null && el.cached()) {
-            Cache<String, Collection> cache = cacheManager.getCache(CACHE_EXTERNAL_DATA, String.class, Collection.class);
-            if (cache != null) {
-                Collection<T> values = cache.get(el.name());
-                return values;
+    private ReferenceData current(ExternalDataList el) {
+        Cache<String, Collection> cache = cache(el);
+        if (cache == null) {
+            return loaded.get(el.name());
+        }
+        Collection values = cache.get(el.name());
+        if (values == null) {
+            return null;
+        } else if (values instanceof Values) {
+            return ((Values) values).data;
+        }
+        Long loadedAt = cachedAt.get(el.name());
+        ReferenceData data = new ReferenceData(el.dataType(), values,
+                (loadedAt != null ? loadedAt : System.currentTimeMillis()), false);
+        cache.replace(el.name(), values, data.values);
+        return data;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private boolean isLoaded(ExternalDataList el) {
+        Cache<String, Collection> cache = cache(el);
+        return (cache != null ? cache.containsKey(el.name()) : loaded.containsKey(el.name()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void store(ExternalDataList el, ReferenceData data) {
+        Cache<String, Collection> cache = cache(el);
+        if (cache != null) {
+            cachedAt.put(el.name(), data.loadedAt);
+            cache.put(el.name(), data.values);
+        } else {
+            if (cacheManager != null && !el.offHeap()) {
+                LogUtils.warn(getClass(), String.format("External Data Cache not setup. [name=%s]", CACHE_EXTERNAL_DATA));
             }
+            loaded.put(el.name(), data);
         }
-        return null;
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    private <C, T> Collection<T> fetchFromDataStore(ExternalDataList el) throws DataStoreException {
-        edcLock.lock();
-        try {
-            Collection<T> data = checkCache(el);
-            if (data != null) return data;
-
-            QueryDataLoader<C, T> loader = ConnectionManager.get().getDataLoader(el.connection(), el.connectionType());
-            if (loader == null) {
-                throw new DataStoreException(String.format("Data Store connection not found: [name=%s][type=%s]", el.connection(), el.connectionType().name()));
-            }
-            data = loader.read(el.query(), (Class<T>) el.dataType().type(), el.params());
-            if (data != null && cacheManager != null && el.cached()) {
-                Cache<String, Collection> cache = cacheManager.getCache(CACHE_EXTERNAL_DATA, String.class, Collection.class);
-                if (cache != null) {
-                    cache.put(el.name(), data);
-                } else {
-                    LogUtils.warn(getClass(), String.format("External Data Cache not setup. [name=%s]", CACHE_EXTERNAL_DATA));
+    @SuppressWarnings("unchecked")
+    private <C, T> ReferenceData fetchFromDataStore(ExternalDataList el) throws DataStoreException {
+        if (Strings.isNullOrEmpty(el.query())) {
+            throw new DataStoreException(String.format("External list query not set. [name=%s]", el.name()));
+        }
+        QueryDataLoader<C, T> loader = loader(el);
+        ValueIndex.OffHeapBuilder builder = (el.offHeap() ? ValueIndex.offHeapBuilder(el.dataType()) : null);
+        if (builder != null) {
+            // Off-heap lists are indexed row by row, the result is not collected on the heap.
+            Stream<T> stream = null;
+            try {
+                stream = loader.stream(el.query(), (Class<T>) el.dataType().type(), el.params());
+                Iterator<T> rows = stream.iterator();
+                while (rows.hasNext()) {
+                    builder.add(rows.next());
                 }
+            } finally {
+                if (stream != null) {
+                    stream.close();
+                }
+                close(loader, el);
             }
-            return data;
+            return new ReferenceData(builder.build(), System.currentTimeMillis());
+        }
+        Collection<T> values;
+        try {
+            values = loader.read(el.query(), (Class<T>) el.dataType().type(), el.params());
+        } finally {
+            close(loader, el);
+        }
+        return data(el, values);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C, T> Map<ExternalDataList, Collection<?>> fetchBatch(List<ExternalDataList> batch) throws DataStoreException {
+        ExternalDataList first = batch.get(0);
+        QueryDataLoader<C, T> loader = loader(first);
+        Map<Object, Collection<T>> values;
+        try {
+            List<Object> keys = new ArrayList<>(batch.size());
+            for (ExternalDataList el : batch) {
+                keys.add(el.batchKey());
+            }
+            values = loader.readBatch(first.batchQuery(), (Class<T>) first.dataType().type(), keys, batchSize);
         } finally {
-            edcLock.unlock();
+            close(loader, first);
+        }
+        Map<ExternalDataList, Collection<?>> result = new HashMap<>();
+        for (ExternalDataList el : batch) {
+            result.put(el, values.get(el.batchKey()));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C, T> Map<ExternalDataList, Collection<?>> fetchUnion(List<ExternalDataList> union) throws DataStoreException {
+        ExternalDataList first = union.get(0);
+        QueryDataLoader<C, T> loader = loader(first);
+        List<Collection<T>> values;
+        try {
+            List<Collection<Object>> params = new ArrayList<>(union.size());
+            for (ExternalDataList el : union) {
+                params.add(el.params());
+            }
+            values = loader.readUnion(first.query(), (Class<T>) first.dataType().type(), params, batchSize);
+        } finally {
+            close(loader, first);
+        }
+        Map<ExternalDataList, Collection<?>> result = new HashMap<>();
+        for (int ii = 0; ii < union.size(); ii++) {
+            result.put(union.get(ii), values.get(ii));
+        }
+        return result;
+    }
+
+    private <C, T> QueryDataLoader<C, T> loader(ExternalDataList el) throws DataStoreException {
+        QueryDataLoader<C, T> loader = ConnectionManager.get().getDataLoader(el.connection(), el.connectionType());
+        if (loader == null) {
+            throw new DataStoreException(String.format("Data Store connection not found: [name=%s][type=%s]", el.connection(), el.connectionType().name()));
+        }
+        return loader;
+    }
+
+    private void close(QueryDataLoader<?, ?> loader, ExternalDataList el) {
+        try {
+            loader.close();
+        } catch (IOException ex) {
+            LogUtils.warn(getClass(), String.format("Error closing data loader. [name=%s]", el.connection()));
+        }
+    }
+
+    private static ReferenceData data(ExternalDataList el, Collection<?> values) {
+        if (values == null) {
+            values = Collections.emptyList();
+        }
+        // Index is built before the swap, readers never see a partially built list.
+        return new ReferenceData(el.dataType(), values, System.currentTimeMillis(), el.offHeap());
+    }
+
+    /**
+     * Publish the loaded values, values of a load superseded by invalidate() are returned
+     * to the waiting callers but not published.
+     */
+    private ReferenceData update(ExternalDataList el, ReferenceData data, CompletableFuture<ReferenceData> future) {
+        if (el.cached() && loading.get(el.name()) == future) {
+            store(el, data);
+            if (snapshotEnabled(el)) {
+                executor.execute(() -> writeSnapshot(el, data));
+            }
+        }
+        return data;
+    }
+
+    private boolean snapshotEnabled(ExternalDataList el) {
+        return (snapshots != null && el.snapshot() && el.cached());
+    }
+
+    private void writeSnapshot(ExternalDataList el, ReferenceData data) {
+        if (current(el) != data) {
+            // Superseded by a later load, which writes its own snapshot.
+            return;
+        }
+        ValueIndex index = data.index;
+        if (index.buffer() == null) {
+            index = ValueIndex.createOffHeap(el.dataType(), data.values);
+            if (index.buffer() == null) {
+                LogUtils.debug(getClass(), String.format("Snapshot not supported for data type. [name=%s][type=%s]", el.name(), el.dataType().name()));
+                return;
+            }
+        }
+        try {
+            ReferenceSnapshot.write(ReferenceSnapshot.file(snapshots, el.name()), el.dataType(), index);
+        } catch (IOException ex) {
+            LogUtils.warn(getClass(), String.format("Error writing snapshot. [name=%s][error=%s]", el.name(), ex.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     * Immutable reference list with the lookup index built for its data type.
+     */
+    private static final class ReferenceData {
+        private final Values values;
+        private final ValueIndex index;
+        private final long loadedAt;
+
+        private ReferenceData(DataType.BasicDataType<?> dataType, Collection<?> values, long loadedAt, boolean offHeap) {
+            if (offHeap && dataType != null) {
+                this.index = ValueIndex.createOffHeap(dataType, values);
+            } else {
+                this.index = (dataType != null ? ValueIndex.create(dataType, values) : ValueIndex.create(values));
+            }
+            // Off-heap indexes retain the values, the source collection is released.
+            Collection<?> retained = index.values();
+            this.values = new Values(this, retained != null ? retained : values);
+            this.loadedAt = loadedAt;
+        }
+
+        private ReferenceData(ValueIndex index, long loadedAt) {
+            this.index = index;
+            this.values = new Values(this, index.values());
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Read-only view of the values, linked to the reference data so that values held by the
+     * heap tier of the cache store are not re-indexed.
+     */
+    private static final class Values extends AbstractCollection<Object> {
+        private final ReferenceData data;
+        private final Collection<?> values;
+
+        private Values(ReferenceData data, Collection<?> values) {
+            this.data = data;
+            this.values = Collections.unmodifiableCollection(values);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Iterator<Object> iterator() {
+            return (Iterator<Object>) values.iterator();
+        }
+
+        @Override
+        public int size() {
+            return values.size();
         }
     }
 }
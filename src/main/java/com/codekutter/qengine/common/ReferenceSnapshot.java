@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.values.ValueIndex;
+import com.codekutter.qengine.utils.LogUtils;
+import lombok.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Persisted snapshot of an off-heap reference list index, used to warm start the
+ * reference data without querying the data store.
+ * <p>
+ * File layout (header in big-endian):
+ * <pre>
+ *     int     : magic
+ *     int     : format version
+ *     int     : payload byte order (1 = little endian, 0 = big endian)
+ *     int     : data type name length
+ *     byte[]  : data type name (UTF-8)
+ *     long    : created timestamp
+ *     long    : payload size
+ *     long    : payload CRC32
+ *     padding : to an 8 byte boundary
+ *     byte[]  : payload (index buffer, see ValueIndex.buffer())
+ * </pre>
+ */
+public class ReferenceSnapshot {
+    public static final int MAGIC = 0x51455253;
+    public static final int VERSION = 1;
+    public static final String FILE_EXTENSION = ".snapshot";
+
+    private ReferenceSnapshot() {
+    }
+
+    public static File file(@NonNull File directory, @NonNull String name) {
+        return new File(directory, name.replaceAll("[^a-zA-Z0-9._-]", "_") + FILE_EXTENSION);
+    }
+
+    /**
+     * Write the index to the snapshot file. The file is written to a temporary file
+     * and moved in place, readers never see a partial snapshot.
+     *
+     * @param file     - Snapshot file
+     * @param dataType - Data Type of the values
+     * @param index    - Off-heap index
+     * @throws IOException
+     */
+    public static void write(@NonNull File file, @NonNull DataType.BasicDataType<?> dataType,
+                             @NonNull ValueIndex index) throws IOException {
+        ByteBuffer payload = index.buffer();
+        if (payload == null) {
+            throw new IOException(String.format("Index is not off-heap, cannot be persisted. [file=%s]", file.getAbsolutePath()));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        byte[] type = dataType.name().getBytes(StandardCharsets.UTF_8);
+        int size = align(4 * Integer.BYTES + type.length + 3 * Long.BYTES);
+        ByteBuffer header = ByteBuffer.allocate(size);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(payload.order() == ByteOrder.LITTLE_ENDIAN ? 1 : 0);
+        header.putInt(type.length);
+        header.put(type);
+        header.putLong(System.currentTimeMillis());
+        header.putLong(payload.remaining());
+        header.putLong(crc.getValue());
+        header.position(0);
+
+        // Unique temp file per write, concurrent writes of the same list do not share it.
+        Path temp = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                ByteBuffer data = payload.duplicate();
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Memory map the snapshot file and open the index over it. Snapshots with a different
+     * version, data type or an invalid checksum are ignored.
+     *
+     * @param file     - Snapshot file
+     * @param dataType - Expected Data Type
+     * @return - Index or NULL if the snapshot is missing or invalid
+     */
+    public static ValueIndex read(@NonNull File file, @NonNull DataType.BasicDataType<?> dataType) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt() != MAGIC) {
+                LogUtils.warn(ReferenceSnapshot.class, String.format("Invalid snapshot file. [file=%s]", file.getAbsolutePath()));
+                return null;
+            }
+            int version = mapped.getInt();
+            if (version != VERSION) {
+                LogUtils.warn(ReferenceSnapshot.class, String.format("Snapshot version mismatch. [file=%s][version=%d]", file.getAbsolutePath(), version));
+                return null;
+            }
+            ByteOrder order = (mapped.getInt() == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            byte[] type = new byte[mapped.getInt()];
+            mapped.get(type);
+            if (!dataType.name().equals(new String(type, StandardCharsets.UTF_8))) {
+                LogUtils.warn(ReferenceSnapshot.class, String.format("Snapshot data type mismatch. [file=%s][type=%s]", file.getAbsolutePath(), dataType.name()));
+                return null;
+            }
+            mapped.getLong(); // created timestamp
+            long size = mapped.getLong();
+            long checksum = mapped.getLong();
+            mapped.position(align(mapped.position()));
+            if (mapped.remaining() != size) {
+                LogUtils.warn(ReferenceSnapshot.class, String.format("Snapshot size mismatch. [file=%s]", file.getAbsolutePath()));
+                return null;
+            }
+            ByteBuffer payload = mapped.slice().order(order);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if (crc.getValue() != checksum) {
+                LogUtils.warn(ReferenceSnapshot.class, String.format("Snapshot checksum mismatch. [file=%s]", file.getAbsolutePath()));
+                return null;
+            }
+            // The mapping stays valid after the channel is closed.
+            return ValueIndex.wrapOffHeap(dataType, payload);
+        } catch (IOException | RuntimeException ex) {
+            LogUtils.warn(ReferenceSnapshot.class, String.format("Error reading snapshot. [file=%s][error=%s]", file.getAbsolutePath(), ex.getLocalizedMessage()));
+            return null;
+        }
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+}
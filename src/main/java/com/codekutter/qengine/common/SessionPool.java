@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.utils.LogUtils;
+import com.google.common.base.Preconditions;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of Hibernate stateless sessions for a named connection.
+ * <p>
+ * Borrowers block (up to maxWait) when maxActive sessions are in use. Idle sessions
+ * are reused LIFO and closed after idleTimeout, sessions held longer than leakTimeout
+ * are reported (with the stack of the borrower when leak tracing is enabled).
+ * Sessions released after a failure are discarded rather than reused.
+ */
+@Getter
+@Accessors(fluent = true)
+public class SessionPool implements Closeable {
+    public static final int DEFAULT_MAX_ACTIVE = 16;
+    public static final int DEFAULT_MAX_IDLE = 8;
+    public static final long DEFAULT_MAX_WAIT = 30 * 1000;
+    public static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+    public static final long DEFAULT_LEAK_TIMEOUT = 10 * 60 * 1000;
+
+    private final String name;
+    private final SessionFactory sessionFactory;
+    private final int maxActive;
+    private final int maxIdle;
+    private final long maxWait;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private long leakTimeout = DEFAULT_LEAK_TIMEOUT;
+    private volatile boolean leakTracing = false;
+
+    @Getter(AccessLevel.NONE)
+    private final Semaphore permits;
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentLinkedDeque<Pooled> idle = new ConcurrentLinkedDeque<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<StatelessSession, Pooled> borrowed = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder borrows = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder waitTime = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder created = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder leaks = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private volatile boolean closed = false;
+
+    public SessionPool(@NonNull String name, @NonNull SessionFactory sessionFactory) {
+        this(name, sessionFactory, DEFAULT_MAX_ACTIVE, DEFAULT_MAX_IDLE, DEFAULT_MAX_WAIT);
+    }
+
+    public SessionPool(@NonNull String name, @NonNull SessionFactory sessionFactory,
+                       int maxActive, int maxIdle, long maxWait) {
+        Preconditions.checkArgument(maxActive > 0);
+        Preconditions.checkArgument(maxIdle >= 0 && maxIdle <= maxActive);
+        Preconditions.checkArgument(maxWait >= 0);
+        this.name = name;
+        this.sessionFactory = sessionFactory;
+        this.maxActive = maxActive;
+        this.maxIdle = maxIdle;
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(maxActive, true);
+    }
+
+    public SessionPool idleTimeout(long idleTimeout) {
+        Preconditions.checkArgument(idleTimeout > 0);
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    public SessionPool leakTimeout(long leakTimeout) {
+        Preconditions.checkArgument(leakTimeout > 0);
+        this.leakTimeout = leakTimeout;
+        return this;
+    }
+
+    /**
+     * Capture the stack of each borrower, to be reported for sessions held longer than leakTimeout.
+     *
+     * @param leakTracing - Enable stack capture
+     * @return - Self
+     */
+    public SessionPool leakTracing(boolean leakTracing) {
+        this.leakTracing = leakTracing;
+        return this;
+    }
+
+    /**
+     * Borrow a session, blocks till a session is available or maxWait elapses.
+     * The session must be returned with release().
+     *
+     * @return - Stateless Session
+     * @throws DataStoreException - If no session is available in maxWait
+     */
+    public StatelessSession borrow() throws DataStoreException {
+        if (closed) {
+            throw new DataStoreException(String.format("Session pool closed. [name=%s]", name));
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                throw new DataStoreException(String.format("Timeout waiting for session. [name=%s][max wait=%d ms][active=%d]", name, maxWait, active()));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException(ex);
+        }
+        long waited = System.nanoTime() - start;
+        borrows.increment();
+        waitTime.add(waited);
+        maxWaitTime.accumulateAndGet(waited, Math::max);
+        try {
+            Pooled pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (valid(pooled.session)) {
+                    break;
+                }
+                discard(pooled.session);
+            }
+            if (pooled == null) {
+                pooled = new Pooled(sessionFactory.openStatelessSession());
+                created.increment();
+                LogUtils.debug(getClass(), String.format("Opened new stateless session. [name=%s]", name));
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrower = (leakTracing ? new Throwable(String.format("Session borrowed from pool [%s]", name)) : null);
+            pooled.reported = false;
+            borrowed.put(pooled.session, pooled);
+            return pooled.session;
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw new DataStoreException(String.format("Error opening session. [name=%s]", name), ex);
+        }
+    }
+
+    /**
+     * Return a borrowed session to the pool.
+     *
+     * @param session - Borrowed session
+     */
+    public void release(@NonNull StatelessSession session) {
+        release(session, false);
+    }
+
+    /**
+     * Return a borrowed session, a session used by a failed operation is closed and not reused.
+     *
+     * @param session - Borrowed session
+     * @param failed  - Operation on the session failed
+     */
+    public void release(@NonNull StatelessSession session, boolean failed) {
+        Pooled pooled = borrowed.remove(session);
+        if (pooled == null) {
+            LogUtils.warn(getClass(), String.format("Session not borrowed from pool. [name=%s]", name));
+            return;
+        }
+        try {
+            if (!failed && !closed && idle.size() < maxIdle && valid(session)) {
+                pooled.releasedAt = System.currentTimeMillis();
+                pooled.borrower = null;
+                idle.offerFirst(pooled);
+            } else {
+                discard(session);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Close sessions idle longer than idleTimeout and report borrowed sessions
+     * held longer than leakTimeout.
+     */
+    public void evict() {
+        long now = System.currentTimeMillis();
+        Iterator<Pooled> iter = idle.descendingIterator();
+        while (iter.hasNext()) {
+            Pooled pooled = iter.next();
+            if (now - pooled.releasedAt >= idleTimeout && idle.removeFirstOccurrence(pooled)) {
+                discard(pooled.session);
+            }
+        }
+        for (Pooled pooled : borrowed.values()) {
+            Throwable borrower = pooled.borrower;
+            if (!pooled.reported && now - pooled.borrowedAt >= leakTimeout) {
+                pooled.reported = true;
+                leaks.increment();
+                LogUtils.warn(getClass(), String.format("Possible session leak, held for %d ms. [name=%s]", now - pooled.borrowedAt, name));
+                if (borrower != null) {
+                    LogUtils.warn(getClass(), borrower);
+                }
+            }
+        }
+    }
+
+    public int active() {
+        return borrowed.size();
+    }
+
+    public int idle() {
+        return idle.size();
+    }
+
+    public long borrowCount() {
+        return borrows.sum();
+    }
+
+    public long createdCount() {
+        return created.sum();
+    }
+
+    public long leakCount() {
+        return leaks.sum();
+    }
+
+    /**
+     * @return - Average time (in milliseconds) borrowers waited for a session
+     */
+    public double averageWaitTime() {
+        long count = borrows.sum();
+        return (count > 0 ? (waitTime.sum() / (double) count) / 1000000.0 : 0);
+    }
+
+    /**
+     * @return - Maximum time (in milliseconds) a borrower waited for a session
+     */
+    public double maxWaitTime() {
+        return maxWaitTime.get() / 1000000.0;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Pooled pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled.session);
+        }
+        if (!borrowed.isEmpty()) {
+            LogUtils.warn(getClass(), String.format("Closing pool with borrowed sessions. [name=%s][active=%d]", name, borrowed.size()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[name=%s][active=%d][idle=%d][borrows=%d][avg wait=%.3f ms][max wait=%.3f ms][leaks=%d]",
+                name, active(), idle(), borrowCount(), averageWaitTime(), maxWaitTime(), leakCount());
+    }
+
+    private boolean valid(StatelessSession session) {
+        return session.isOpen() && session.isConnected();
+    }
+
+    private void discard(StatelessSession session) {
+        try {
+            if (session.isOpen()) {
+                session.close();
+            }
+        } catch (RuntimeException ex) {
+            LogUtils.warn(getClass(), String.format("Error closing session. [name=%s][error=%s]", name, ex.getLocalizedMessage()));
+        }
+    }
+
+    private static final class Pooled {
+        private final StatelessSession session;
+        private volatile long borrowedAt;
+        private volatile long releasedAt;
+        private volatile Throwable borrower;
+        private volatile boolean reported;
+
+        private Pooled(StatelessSession session) {
+            this.session = session;
+        }
+    }
+}
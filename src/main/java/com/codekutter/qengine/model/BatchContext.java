@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.expressions.Expression;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluation context for a batch of records. Values are extracted column-wise
+ * and cached, so a field referenced by several conditions is only read once
+ * per record in the batch.
+ * <p>
+ * Not thread-safe, a context is owned by a single evaluation.
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public class BatchContext {
+    @Setter(AccessLevel.NONE)
+    private final Object[] data;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Map<Object, Column> columns = new HashMap<>();
+
+    public BatchContext(@NonNull Object[] data) {
+        this.data = data;
+    }
+
+    public int size() {
+        return data.length;
+    }
+
+    public Object get(int index) {
+        return data[index];
+    }
+
+    /**
+     * Get a selection with all the records in this batch set.
+     *
+     * @return - Selection BitSet
+     */
+    public BitSet all() {
+        BitSet selection = new BitSet(data.length);
+        selection.set(0, data.length);
+        return selection;
+    }
+
+    /**
+     * Get the values of the passed value definition for the records in the selection.
+     * Only entries for the selected records are guaranteed to be populated.
+     *
+     * @param value     - Value Definition
+     * @param selection - Selected records
+     * @return - Column values (indexed by record position)
+     * @throws EvaluationException
+     */
+    public Object[] column(@NonNull ValueDefinition<?, ?> value, @NonNull BitSet selection) throws EvaluationException {
+        Object key = value.columnKey();
+        Column column = columns.get(key);
+        if (column == null) {
+            try {
+                column = new Column(value instanceof Expression ? null : value.compile(), data.length);
+            } catch (ValidationException ve) {
+                throw new EvaluationException(ve);
+            }
+            columns.put(key, column);
+        }
+        if (value instanceof Expression) {
+            return expression((Expression<?, ?>) value, column, selection);
+        }
+        Object[] values = column.values;
+        BitSet loaded = column.loaded;
+        CompiledValue cv = column.value;
+        for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+            if (!loaded.get(ii)) {
+                values[ii] = cv.get(data[ii]);
+                loaded.set(ii);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Expressions are computed from the operand columns, so operands shared with other
+     * values (or repeated within the expression) are extracted once per record.
+     */
+    private Object[] expression(Expression<?, ?> expression, Column column, BitSet selection) throws EvaluationException {
+        List<? extends ValueDefinition<?, ?>> operands = expression.operands();
+        Object[][] inputs = new Object[operands.size()][];
+        for (int ii = 0; ii < inputs.length; ii++) {
+            inputs[ii] = column(operands.get(ii), selection);
+        }
+        Object[] values = column.values;
+        BitSet loaded = column.loaded;
+        Object[] args = new Object[inputs.length];
+        for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+            if (!loaded.get(ii)) {
+                for (int jj = 0; jj < inputs.length; jj++) {
+                    args[jj] = inputs[jj][ii];
+                }
+                values[ii] = expression.apply(args);
+                loaded.set(ii);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Get the non-null values of the selected records as a dense long array, for use
+     * with the Operations aggregate kernels.
+     *
+     * @param value     - Value Definition (integral)
+     * @param selection - Selected records
+     * @return - Values (in record order)
+     * @throws EvaluationException
+     */
+    public long[] longColumn(@NonNull ValueDefinition<?, ?> value, @NonNull BitSet selection) throws EvaluationException {
+        Object[] values = column(value, selection);
+        long[] array = new long[Operations.count(values, selection)];
+        int index = 0;
+        for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+            Object v = values[ii];
+            if (v == null) continue;
+            if (!(v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte)) {
+                throw new EvaluationException(String.format("Invalid integral value. [type=%s]", v.getClass().getCanonicalName()));
+            }
+            array[index++] = ((Number) v).longValue();
+        }
+        return array;
+    }
+
+    /**
+     * Get the non-null values of the selected records as a dense double array, for use
+     * with the Operations aggregate kernels.
+     *
+     * @param value     - Value Definition (numeric)
+     * @param selection - Selected records
+     * @return - Values (in record order)
+     * @throws EvaluationException
+     */
+    public double[] doubleColumn(@NonNull ValueDefinition<?, ?> value, @NonNull BitSet selection) throws EvaluationException {
+        Object[] values = column(value, selection);
+        double[] array = new double[Operations.count(values, selection)];
+        int index = 0;
+        for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+            Object v = values[ii];
+            if (v == null) continue;
+            if (!(v instanceof Number)) {
+                throw new EvaluationException(String.format("Invalid numeric value. [type=%s]", v.getClass().getCanonicalName()));
+            }
+            array[index++] = ((Number) v).doubleValue();
+        }
+        return array;
+    }
+
+    private static final class Column {
+        private final CompiledValue value;
+        private final Object[] values;
+        private final BitSet loaded;
+
+        private Column(CompiledValue value, int size) {
+            this.value = value;
+            this.values = new Object[size];
+            this.loaded = new BitSet(size);
+        }
+    }
+}
@@ -27,13 +27,175 @@ import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ValidationException;
 import lombok.NonNull;
 
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
 public abstract class BooleanVertex<E> extends Vertex<E> {
 
+    /**
+     * Minimum number of observed evaluations before the observed selectivity
+     * replaces the estimate.
+     */
+    public static final long MIN_SAMPLES = 128;
+    /**
+     * Record evaluations are sampled (1 in SAMPLE_RATE) for selectivity tracking,
+     * so evaluations do not all contend on the counters.
+     */
+    public static final int SAMPLE_RATE = 16;
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+
     public BooleanVertex(@NonNull Query<E> query) {
         super(query);
     }
 
+    /**
+     * Prepare the sub-tree bottom-up: each child is validated and frozen once,
+     * so the validation of this vertex does not re-walk prepared children.
+     *
+     * @throws ValidationException
+     */
+    @Override
+    public void prepare() throws ValidationException {
+        if (prepared()) return;
+        try {
+            List<Vertex<E>> children = children();
+            if (children != null) {
+                for (Vertex<E> child : children) {
+                    if (child != null) child.prepare();
+                }
+            }
+            validate();
+            super.prepare();
+        } catch (ValidationException ve) {
+            error(ve);
+            throw ve;
+        }
+    }
+
+    protected abstract List<Vertex<E>> children();
+
+    /**
+     * Should the current record evaluation be sampled.
+     *
+     * @return - Sample?
+     */
+    protected static boolean sample() {
+        return (ThreadLocalRandom.current().nextInt() & (SAMPLE_RATE - 1)) == 0;
+    }
+
+    /**
+     * Record the outcome of an evaluation of this vertex.
+     *
+     * @param matched - Evaluation result
+     */
+    public void observe(boolean matched) {
+        evaluations.increment();
+        if (matched) {
+            matches.increment();
+        }
+    }
+
+    /**
+     * Record the outcome of a batch evaluation of this vertex.
+     *
+     * @param evaluated - Number of records evaluated
+     * @param matched   - Number of records matched
+     */
+    public void observe(long evaluated, long matched) {
+        evaluations.add(evaluated);
+        matches.add(matched);
+    }
+
+    /**
+     * Fraction of records matched by this condition. The observed ratio is used once
+     * enough evaluations have been recorded, else the static estimate.
+     *
+     * @return - Selectivity (0.0 - 1.0)
+     */
+    public double selectivity() {
+        long count = evaluations.sum();
+        if (count < MIN_SAMPLES) {
+            return estimateSelectivity();
+        }
+        return (double) matches.sum() / count;
+    }
+
+    protected double estimateSelectivity() {
+        return 0.5;
+    }
+
+    @Override
+    public double cost() {
+        double cost = 1;
+        List<Vertex<E>> children = children();
+        if (children != null) {
+            for (Vertex<E> child : children) {
+                if (child != null) cost += child.cost();
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Re-order the evaluation of this sub-tree based on the current cost and selectivity
+     * estimates. Only changes the evaluation order (never the result), hence allowed on
+     * prepared vertices and concurrently with evaluations (see Query.optimizeInterval).
+     */
+    public void optimize() {
+        List<Vertex<E>> children = children();
+        if (children != null) {
+            for (Vertex<E> child : children) {
+                if (child instanceof BooleanVertex) {
+                    ((BooleanVertex<E>) child).optimize();
+                }
+            }
+        }
+    }
+
     public abstract void validate() throws ValidationException;
 
     public abstract boolean evaluate(@NonNull Object data) throws EvaluationException;
+
+    /**
+     * Evaluate this condition for the selected records of a batch. The returned
+     * selection is a new BitSet and a subset of the passed selection.
+     * The vertex must be prepared.
+     *
+     * @param context   - Batch Context
+     * @param selection - Records to evaluate
+     * @return - Records matching this condition
+     * @throws EvaluationException
+     */
+    public BitSet evaluate(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        if (!prepared()) {
+            throw new EvaluationException(String.format("Vertex not prepared. [type=%s]", getClass().getCanonicalName()));
+        }
+        BitSet result = evaluateBatch(context, selection);
+        observe(selection.cardinality(), result.cardinality());
+        return result;
+    }
+
+    /**
+     * Batch evaluation, by default evaluates each selected record.
+     *
+     * @param context   - Batch Context
+     * @param selection - Records to evaluate
+     * @return - Records matching this condition
+     * @throws EvaluationException
+     */
+    protected BitSet evaluateBatch(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        BitSet result = new BitSet(context.size());
+        for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+            if (evaluate(context.get(ii))) {
+                result.set(ii);
+            }
+        }
+        return result;
+    }
+
+    public abstract CompiledCondition compile() throws ValidationException;
 }
@@ -33,8 +33,8 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
-import org.apache.commons.lang3.reflect.MethodUtils;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -43,6 +43,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 @Getter
 @Setter
@@ -88,7 +92,9 @@ public class ClassIndex<T> {
                     } else if (Reflector.implementsInterface(Map.class, f.getType())) {
                         tt = Reflector.getGenericMapValueType(f);
                     }
-                    if (!tt.equals(type)) {
+                    // Self references are not expanded, recursive references
+                    // (via other types) get the partially built index.
+                    if (!tt.equals(type) && !Reflector.isPrimitiveTypeOrString(tt)) {
                         ClassIndex<?> ci = QueryCacheManager.get().getClassIndex(tt);
                         if (ci == null) {
                             throw new Exception(String.format("Error getting class index for type. [type=%s]", tt.getCanonicalName()));
@@ -99,14 +105,13 @@ public class ClassIndex<T> {
                             IndexedField ff = idx.get(key);
                             index.put(k, ff);
                         }
-                    } else {
-                        setup(tt, path);
                     }
                 }
                 IndexedField ff = new IndexedField();
                 ff.field = f;
                 ff.getter = getter;
                 ff.setter = setter;
+                ff.bind();
 
                 index.put(p, ff);
             }
@@ -114,11 +119,7 @@ public class ClassIndex<T> {
     }
 
     public IndexedField find(@NonNull FieldPath path) {
-        String p = getPath(path);
-        if (index.containsKey(p)) {
-            return index.get(p);
-        }
-        return null;
+        return index.get(getPath(path));
     }
 
     public IndexedField find(@NonNull String path) {
@@ -127,6 +128,9 @@ public class ClassIndex<T> {
     }
 
     public String getPath(@NonNull FieldPath path) {
+        if (path.getIndexPath() != null) {
+            return path.getIndexPath();
+        }
         StringBuffer buffer = new StringBuffer();
         FieldPath.PathNode[] paths = path.getNodes();
         if (paths != null && paths.length > 0) {
@@ -142,63 +146,8 @@ public class ClassIndex<T> {
 
     public Object getFieldValue(@NonNull Object source, @NonNull FieldPath path) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, ParseException {
         Preconditions.checkArgument(index.size() > 0);
-        Preconditions.checkArgument(Reflector.isSuperType(type, source.getClass()));
-        return getFieldValue(source, path, 0, null);
-    }
-
-    private Object getFieldValue(Object source, FieldPath path, int idx, String journey) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, ParseException {
-        String p = journey;
-        FieldPath.PathNode pn = path.getNodes()[idx];
-        if (Strings.isNullOrEmpty(p)) {
-            p = pn.name();
-        } else {
-            p = String.format("%s/%s", p, pn.name());
-        }
-        IndexedField ff = index.get(p);
-        if (ff == null) {
-            throw new IllegalArgumentException(String.format("Specified field path not found. [type=%s][path=%s]", type.getCanonicalName(), p));
-        }
-        Object value = MethodUtils.invokeMethod(source, ff.getter.getName());
-        if (value != null) {
-            if (idx == (path.getNodes().length - 1)) {
-                return value;
-            }
-            if (Reflector.implementsInterface(List.class, value.getClass())) {
-                if (!Reflector.implementsInterface(List.class, ff.field.getType())) {
-                    throw new IllegalArgumentException(String.format("Type mismatch. [object=%s][field type=%s]",
-                            value.getClass().getCanonicalName(), ff.field.getType().getCanonicalName()));
-                }
-                if (!(pn instanceof FieldPath.CollectionPathNode)) {
-                    throw new IllegalArgumentException(
-                            String.format("Invalid Path node. [expected collection path node.][path=%s][node=%s]",
-                                    path.getPath(), pn.name()));
-                }
-                String sii = ((FieldPath.CollectionPathNode) pn).key();
-                Preconditions.checkState(!Strings.isNullOrEmpty(sii));
-                int ii = Integer.parseInt(sii);
-                List<?> lv = (List<?>) value;
-                value = lv.get(ii);
-            }
-            if (Reflector.implementsInterface(Map.class, value.getClass())) {
-                if (!Reflector.implementsInterface(Map.class, ff.field.getType())) {
-                    throw new IllegalArgumentException(String.format("Type mismatch. [object=%s][field type=%s]",
-                            value.getClass().getCanonicalName(), ff.field.getType().getCanonicalName()));
-                }
-                if (!(pn instanceof FieldPath.CollectionPathNode)) {
-                    throw new IllegalArgumentException(
-                            String.format("Invalid Path node. [expected collection path node.][path=%s][node=%s]",
-                                    path.getPath(), pn.name()));
-                }
-                String sii = ((FieldPath.CollectionPathNode) pn).key();
-                Preconditions.checkState(!Strings.isNullOrEmpty(sii));
-                Map<?, ?> map = (Map<?, ?>) value;
-                Class<?> kt = Reflector.getGenericMapKeyType(ff.field);
-                Object key = Reflector.parseValue(kt, sii);
-                value = map.get(key);
-            }
-            return getFieldValue(value, path, idx + 1, p);
-        }
-        return null;
+        Preconditions.checkArgument(type.isInstance(source));
+        return path.accessor(this).get(source);
     }
 
     public FieldPath parse(@NonNull String path) throws ValidationException {
@@ -251,6 +200,23 @@ public class ClassIndex<T> {
         private Field field;
         private Method getter;
         private Method setter;
+        private MethodHandle handle;
+        private Function<Object, Object> accessor;
+        private ToIntFunction<Object> intAccessor;
+        private ToLongFunction<Object> longAccessor;
+        private ToDoubleFunction<Object> doubleAccessor;
+
+        private void bind() throws IllegalAccessException {
+            handle = Reflector.getHandle(getter);
+            accessor = Reflector.createGetter(getter);
+            intAccessor = Reflector.createIntGetter(getter);
+            longAccessor = Reflector.createLongGetter(getter);
+            doubleAccessor = Reflector.createDoubleGetter(getter);
+        }
+
+        public Object getValue(@NonNull Object source) {
+            return accessor.apply(source);
+        }
 
         @Override
         public String toString() {
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model;
+
+import com.codekutter.qengine.common.EvaluationException;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+import java.util.function.Predicate;
+
+/**
+ * Compiled form of a validated query: the condition tree is resolved once into
+ * a chain of closures, so evaluation does not re-validate or walk the vertex tree.
+ *
+ * @param <T> - Entity type the query is defined for.
+ */
+@Getter
+@Accessors(fluent = true)
+public class CompiledQuery<T> implements Predicate<T> {
+    private final Query<T> query;
+    private final CompiledCondition condition;
+
+    public CompiledQuery(@NonNull Query<T> query, @NonNull CompiledCondition condition) {
+        this.query = query;
+        this.condition = condition;
+    }
+
+    public boolean evaluate(@NonNull T value) throws EvaluationException {
+        return condition.test(value);
+    }
+
+    @Override
+    public boolean test(T value) {
+        try {
+            return condition.test(value);
+        } catch (EvaluationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -251,6 +251,61 @@ public abstract class DataType {
         public abstract Class<T> getJavaType();
 
         public abstract String printString(@NonNull String value);
+
+        /**
+         * Primitive representation used to compare values of this type.
+         *
+         * @return - Coercion
+         */
+        public Coercion coercion() {
+            return Coercion.None;
+        }
+
+        public int compareLong(long source, long target) {
+            return Long.compare(source, target);
+        }
+
+        public int compareDouble(double source, double target) {
+            return Double.compare(source, target);
+        }
+
+        public int compareEpochMillis(long source, long target) {
+            return Long.compare(source, target);
+        }
+
+        protected static boolean integral(Object value) {
+            return (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte);
+        }
+    }
+
+    /**
+     * Primitive representation values are coerced to for comparisons.
+     */
+    public enum Coercion {
+        Long,
+        Double,
+        EpochMillis,
+        None;
+
+        /**
+         * Plan the coercion for comparing operands of the passed types, computed once
+         * per condition. Integral and floating point operands are compared as doubles,
+         * other mixed types are not coerced.
+         *
+         * @param source - Left operand type
+         * @param target - Right operand type
+         * @return - Coercion
+         */
+        public static Coercion plan(@NonNull BasicDataType<?> source, @NonNull BasicDataType<?> target) {
+            Coercion sc = source.coercion();
+            Coercion tc = target.coercion();
+            if (sc == tc) {
+                return sc;
+            } else if ((sc == Long && tc == Double) || (sc == Double && tc == Long)) {
+                return Double;
+            }
+            return None;
+        }
     }
 
     public static abstract class NumericDataType<T> extends BasicDataType<T> {
@@ -354,8 +409,16 @@ public abstract class DataType {
             return null;
         }
 
+        @Override
+        public Coercion coercion() {
+            return Coercion.Long;
+        }
+
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (integral(source) && integral(target)) {
+                return compareLong(((Number) source).longValue(), ((Number) target).longValue());
+            }
             Short sv = Reflector.parseValue(Short.class, source);
             if (source != null && sv == null) {
                 throw new ParseException(String.format("Invalid Value type (source): type=%s", source.getClass().getCanonicalName()), 0);
@@ -366,7 +429,7 @@ public abstract class DataType {
             }
             sv = (sv == null ? 0 : sv);
             tv = (tv == null ? 0 : tv);
-            return sv - tv;
+            return compareLong(sv, tv);
         }
 
         @Override
@@ -439,8 +502,16 @@ public abstract class DataType {
             return null;
         }
 
+        @Override
+        public Coercion coercion() {
+            return Coercion.Long;
+        }
+
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (integral(source) && integral(target)) {
+                return compareLong(((Number) source).longValue(), ((Number) target).longValue());
+            }
             Integer sv = Reflector.parseValue(Integer.class, source);
             if (source != null && sv == null) {
                 throw new ParseException(String.format("Invalid Value type (source): type=%s", source.getClass().getCanonicalName()), 0);
@@ -451,7 +522,7 @@ public abstract class DataType {
             }
             sv = (sv == null ? 0 : sv);
             tv = (tv == null ? 0 : tv);
-            return sv - tv;
+            return compareLong(sv, tv);
         }
 
         @Override
@@ -527,8 +598,16 @@ public abstract class DataType {
             return null;
         }
 
+        @Override
+        public Coercion coercion() {
+            return Coercion.Long;
+        }
+
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (integral(source) && integral(target)) {
+                return compareLong(((Number) source).longValue(), ((Number) target).longValue());
+            }
             Long sv = Reflector.parseValue(Long.class, source);
             if (source != null && sv == null) {
                 throw new ParseException(String.format("Invalid Value type (source): type=%s", source.getClass().getCanonicalName()), 0);
@@ -539,7 +618,7 @@ public abstract class DataType {
             }
             sv = (sv == null ? 0 : sv);
             tv = (tv == null ? 0 : tv);
-            return (int) (sv - tv);
+            return compareLong(sv, tv);
         }
 
         @Override
@@ -551,29 +630,28 @@ public abstract class DataType {
         public Long sum(@NonNull Long[] values) throws OperationException {
             long sum = 0;
             for (long v : values) {
-                sum += v;
+                sum = Operations.add(sum, v);
             }
             return sum;
         }
 
         @Override
         public Long subtract(@NonNull Long source, @NonNull Long value) throws OperationException {
-            return source - value;
+            return Operations.subtract(source, value);
         }
 
         @Override
         public Long multiply(@NonNull Long[] values) throws OperationException {
             long mul = 1;
             for (long v : values) {
-                mul *= v;
+                mul = Operations.multiply(mul, v);
             }
             return mul;
         }
 
         @Override
         public Long divide(@NonNull Long numerator, @NonNull Long denominator) throws OperationException {
-            Preconditions.checkArgument(denominator != 0);
-            return numerator / denominator;
+            return Operations.divide(numerator, denominator);
         }
 
         @Override
@@ -612,8 +690,16 @@ public abstract class DataType {
             return null;
         }
 
+        @Override
+        public Coercion coercion() {
+            return Coercion.Double;
+        }
+
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (source instanceof Number && target instanceof Number) {
+                return compareDouble(((Number) source).doubleValue(), ((Number) target).doubleValue());
+            }
             Float sv = Reflector.parseValue(Float.class, source);
             if (source != null && sv == null) {
                 throw new ParseException(String.format("Invalid Value type (source): type=%s", source.getClass().getCanonicalName()), 0);
@@ -624,7 +710,7 @@ public abstract class DataType {
             }
             sv = (sv == null ? 0 : sv);
             tv = (tv == null ? 0 : tv);
-            return (int) (sv - tv);
+            return compareDouble(sv, tv);
         }
 
         @Override
@@ -695,8 +781,16 @@ public abstract class DataType {
             return null;
         }
 
+        @Override
+        public Coercion coercion() {
+            return Coercion.Double;
+        }
+
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (source instanceof Number && target instanceof Number) {
+                return compareDouble(((Number) source).doubleValue(), ((Number) target).doubleValue());
+            }
             Double sv = Reflector.parseValue(Double.class, source);
             if (source != null && sv == null) {
                 throw new ParseException(String.format("Invalid Value type (source): type=%s", source.getClass().getCanonicalName()), 0);
@@ -707,7 +801,7 @@ public abstract class DataType {
             }
             sv = (sv == null ? 0 : sv);
             tv = (tv == null ? 0 : tv);
-            return (int) (sv - tv);
+            return compareDouble(sv, tv);
         }
 
         @Override
@@ -719,29 +813,28 @@ public abstract class DataType {
         public Double sum(@NonNull Double[] values) throws OperationException {
             double sum = 0;
             for (double v : values) {
-                sum += v;
+                sum = Operations.add(sum, v);
             }
             return sum;
         }
 
         @Override
         public Double subtract(@NonNull Double source, @NonNull Double value) throws OperationException {
-            return source - value;
+            return Operations.subtract(source, value);
         }
 
         @Override
         public Double multiply(@NonNull Double[] values) throws OperationException {
             double mul = 1;
             for (double v : values) {
-                mul *= v;
+                mul = Operations.multiply(mul, v);
             }
             return mul;
         }
 
         @Override
         public Double divide(@NonNull Double numerator, @NonNull Double denominator) throws OperationException {
-            Preconditions.checkArgument(denominator != 0);
-            return numerator / denominator;
+            return Operations.divide(numerator, denominator);
         }
 
         @Override
@@ -770,6 +863,9 @@ public abstract class DataType {
 
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (source instanceof String && target instanceof String) {
+                return ((String) source).compareTo((String) target);
+            }
             String sv = Reflector.parseValue(String.class, source);
             if (source != null && sv == null) {
                 throw new ParseException(String.format("Invalid Value type (source): type=%s", source.getClass().getCanonicalName()), 0);
@@ -826,15 +922,23 @@ public abstract class DataType {
         @Override
         public java.sql.Date fromString(@NonNull String value) throws ParseException {
             if (!Strings.isNullOrEmpty(value)) {
-                SimpleDateFormat format = new SimpleDateFormat();
+                SimpleDateFormat format = Reflector.dateFormat();
                 Date parsed = format.parse(value);
                 return new java.sql.Date(parsed.getTime());
             }
             return null;
         }
 
+        @Override
+        public Coercion coercion() {
+            return Coercion.EpochMillis;
+        }
+
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (source instanceof Date && target instanceof Date) {
+                return compareEpochMillis(((Date) source).getTime(), ((Date) target).getTime());
+            }
             java.sql.Date sv = Reflector.parseValue(java.sql.Date.class, source);
             if (source != null && sv == null) {
                 throw new ParseException(String.format("Invalid Value type (source): type=%s", source.getClass().getCanonicalName()), 0);
@@ -845,7 +949,7 @@ public abstract class DataType {
             }
             sv = (sv == null ? new java.sql.Date(0) : sv);
             tv = (tv == null ? new java.sql.Date(0) : tv);
-            return sv.compareTo(tv);
+            return compareEpochMillis(sv.getTime(), tv.getTime());
         }
 
         @Override
@@ -856,7 +960,7 @@ public abstract class DataType {
         @Override
         public String printString(@NonNull String value) {
             try {
-                SimpleDateFormat df = new SimpleDateFormat();
+                SimpleDateFormat df = Reflector.dateFormat();
                 df.parse(value);
                 return String.format("\"%s\"", value);
             } catch (Exception ex) {
@@ -883,15 +987,23 @@ public abstract class DataType {
         @Override
         public Date fromString(@NonNull String value) throws ParseException {
             if (!Strings.isNullOrEmpty(value)) {
-                SimpleDateFormat format = new SimpleDateFormat();
+                SimpleDateFormat format = Reflector.dateFormat();
                 return format.parse(value);
             }
             return null;
         }
 
 
+        @Override
+        public Coercion coercion() {
+            return Coercion.EpochMillis;
+        }
+
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (source instanceof Date && target instanceof Date) {
+                return compareEpochMillis(((Date) source).getTime(), ((Date) target).getTime());
+            }
             Date sv = Reflector.parseValue(Date.class, source);
             if (source != null && sv == null) {
                 throw new ParseException(String.format("Invalid Value type (source): type=%s", source.getClass().getCanonicalName()), 0);
@@ -902,7 +1014,7 @@ public abstract class DataType {
             }
             sv = (sv == null ? new Date(0) : sv);
             tv = (tv == null ? new Date(0) : tv);
-            return sv.compareTo(tv);
+            return compareEpochMillis(sv.getTime(), tv.getTime());
         }
 
         @Override
@@ -913,7 +1025,7 @@ public abstract class DataType {
         @Override
         public String printString(@NonNull String value) {
             try {
-                SimpleDateFormat df = new SimpleDateFormat();
+                SimpleDateFormat df = Reflector.dateFormat();
                 df.parse(value);
                 return String.format("\"%s\"", value);
             } catch (Exception ex) {
@@ -944,8 +1056,18 @@ public abstract class DataType {
         }
 
 
+        @Override
+        public Coercion coercion() {
+            return Coercion.EpochMillis;
+        }
+
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (source instanceof Timestamp && target instanceof Timestamp) {
+                return ((Timestamp) source).compareTo((Timestamp) target);
+            } else if (source instanceof Date && target instanceof Date) {
+                return compareEpochMillis(((Date) source).getTime(), ((Date) target).getTime());
+            }
             Timestamp sv = Reflector.parseValue(Timestamp.class, source);
             if (source != null && sv == null) {
                 throw new ParseException(String.format("Invalid Value type (source): type=%s", source.getClass().getCanonicalName()), 0);
@@ -1054,6 +1176,9 @@ public abstract class DataType {
 
         @Override
         public int compareValue(Object source, Object target) throws ParseException {
+            if (source instanceof Enum && source.getClass() == (target != null ? target.getClass() : null)) {
+                return Integer.compare(((Enum<?>) source).ordinal(), ((Enum<?>) target).ordinal());
+            }
             if (source != null && target != null) {
                 Preconditions.checkArgument(source.getClass().equals(target.getClass()));
             }
@@ -1068,7 +1193,7 @@ public abstract class DataType {
 
             int osv = (sv == null ? 0 : sv.ordinal());
             int otv = (tv == null ? 0 : tv.ordinal());
-            return osv - otv;
+            return Integer.compare(osv, otv);
         }
 
         @Override
@@ -23,8 +23,19 @@
 
 package com.codekutter.qengine.model;
 
+import com.google.common.base.Preconditions;
 import lombok.NonNull;
 
+import java.util.BitSet;
+
+/**
+ * Value operations implemented by the data types, and aggregate kernels over
+ * primitive columns (see BatchContext.longColumn() and BatchContext.doubleColumn()).
+ * <p>
+ * The kernels are plain counted loops over a range so the JIT can unroll and
+ * vectorize them. Floating point reductions are split across independent
+ * accumulators as the JIT does not reorder floating point additions itself.
+ */
 public class Operations {
     public interface Sum<T> {
         T sum(@NonNull T[] values) throws OperationException;
@@ -53,4 +64,201 @@ public class Operations {
     public interface Substring {
         String substring(@NonNull String value, int pos, int length) throws OperationException;
     }
+
+    /*
+     * Two operand kernels, used by the data type operations and the primitive expression
+     * paths. Long arithmetic wraps around on overflow.
+     */
+
+    public static long add(long left, long right) {
+        return left + right;
+    }
+
+    public static long subtract(long left, long right) {
+        return left - right;
+    }
+
+    public static long multiply(long left, long right) {
+        return left * right;
+    }
+
+    /**
+     * @throws OperationException - On division by zero
+     */
+    public static long divide(long numerator, long denominator) throws OperationException {
+        if (denominator == 0) {
+            throw new OperationException(String.format("Division by zero. [numerator=%d]", numerator));
+        }
+        return numerator / denominator;
+    }
+
+    public static double add(double left, double right) {
+        return left + right;
+    }
+
+    public static double subtract(double left, double right) {
+        return left - right;
+    }
+
+    public static double multiply(double left, double right) {
+        return left * right;
+    }
+
+    /**
+     * @throws OperationException - On division by zero
+     */
+    public static double divide(double numerator, double denominator) throws OperationException {
+        if (denominator == 0) {
+            throw new OperationException(String.format("Division by zero. [numerator=%f]", numerator));
+        }
+        return numerator / denominator;
+    }
+
+    public static long sum(@NonNull long[] values) {
+        return sum(values, 0, values.length);
+    }
+
+    /**
+     * Sum of the values in the range [from, to), wraps around on overflow.
+     */
+    public static long sum(@NonNull long[] values, int from, int to) {
+        Preconditions.checkPositionIndexes(from, to, values.length);
+        long sum = 0;
+        for (int ii = from; ii < to; ii++) {
+            sum += values[ii];
+        }
+        return sum;
+    }
+
+    /**
+     * Sum of the values in the range [from, to), failing on overflow.
+     *
+     * @throws OperationException - On long overflow
+     */
+    public static long sumExact(@NonNull long[] values, int from, int to) throws OperationException {
+        Preconditions.checkPositionIndexes(from, to, values.length);
+        long sum = 0;
+        try {
+            for (int ii = from; ii < to; ii++) {
+                sum = Math.addExact(sum, values[ii]);
+            }
+        } catch (ArithmeticException e) {
+            throw new OperationException(String.format("Sum overflow. [from=%d][to=%d]", from, to), e);
+        }
+        return sum;
+    }
+
+    public static double sum(@NonNull double[] values) {
+        return sum(values, 0, values.length);
+    }
+
+    /**
+     * Sum of the values in the range [from, to). The order of additions differs from
+     * a sequential sum, use sumCompensated() where the rounding error matters.
+     */
+    public static double sum(@NonNull double[] values, int from, int to) {
+        Preconditions.checkPositionIndexes(from, to, values.length);
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int ii = from;
+        for (; ii + 3 < to; ii += 4) {
+            s0 += values[ii];
+            s1 += values[ii + 1];
+            s2 += values[ii + 2];
+            s3 += values[ii + 3];
+        }
+        for (; ii < to; ii++) {
+            s0 += values[ii];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Kahan compensated sum of the values in the range [from, to).
+     */
+    public static double sumCompensated(@NonNull double[] values, int from, int to) {
+        Preconditions.checkPositionIndexes(from, to, values.length);
+        double sum = 0;
+        double c = 0;
+        for (int ii = from; ii < to; ii++) {
+            double y = values[ii] - c;
+            double t = sum + y;
+            c = (t - sum) - y;
+            sum = t;
+        }
+        return sum;
+    }
+
+    public static long min(@NonNull long[] values, int from, int to) throws OperationException {
+        checkNotEmpty(values.length, from, to);
+        long min = values[from];
+        for (int ii = from + 1; ii < to; ii++) {
+            min = Math.min(min, values[ii]);
+        }
+        return min;
+    }
+
+    public static long max(@NonNull long[] values, int from, int to) throws OperationException {
+        checkNotEmpty(values.length, from, to);
+        long max = values[from];
+        for (int ii = from + 1; ii < to; ii++) {
+            max = Math.max(max, values[ii]);
+        }
+        return max;
+    }
+
+    public static double min(@NonNull double[] values, int from, int to) throws OperationException {
+        checkNotEmpty(values.length, from, to);
+        double min = values[from];
+        for (int ii = from + 1; ii < to; ii++) {
+            min = Math.min(min, values[ii]);
+        }
+        return min;
+    }
+
+    public static double max(@NonNull double[] values, int from, int to) throws OperationException {
+        checkNotEmpty(values.length, from, to);
+        double max = values[from];
+        for (int ii = from + 1; ii < to; ii++) {
+            max = Math.max(max, values[ii]);
+        }
+        return max;
+    }
+
+    /**
+     * Average of the values in the range [from, to), NaN for an empty range.
+     *
+     * @throws OperationException - If the sum overflows
+     */
+    public static double avg(@NonNull long[] values, int from, int to) throws OperationException {
+        if (from == to) return Double.NaN;
+        return (double) sumExact(values, from, to) / (to - from);
+    }
+
+    /**
+     * Average (compensated) of the values in the range [from, to), NaN for an empty range.
+     */
+    public static double avg(@NonNull double[] values, int from, int to) {
+        if (from == to) return Double.NaN;
+        return sumCompensated(values, from, to) / (to - from);
+    }
+
+    /**
+     * Count of the non-null values in the selection.
+     */
+    public static int count(@NonNull Object[] column, @NonNull BitSet selection) {
+        int count = 0;
+        for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+            if (column[ii] != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void checkNotEmpty(int length, int from, int to) throws OperationException {
+        Preconditions.checkPositionIndexes(from, to, length);
+        if (from == to) {
+            throw new OperationException(String.format("Empty range. [from=%d][to=%d]", from, to));
+        }
+    }
 }
@@ -23,9 +23,10 @@
 
 package com.codekutter.qengine.model;
 
+import com.codekutter.qengine.common.EObjectState;
 import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ObjectState;
 import com.codekutter.qengine.common.ValidationException;
-import com.codekutter.qengine.model.conditions.BaseCondition;
 import com.codekutter.qengine.utils.Reflector;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
@@ -35,24 +36,67 @@ import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Getter
 @Setter
 @Accessors(fluent = true)
 public class Query<T> {
+    public static final int DEFAULT_SPLIT_SIZE = 8192;
+    public static final long DEFAULT_OPTIMIZE_INTERVAL = 64 * 1024;
+
     private String name;
     private final Class<T> type;
     @Setter(AccessLevel.NONE)
     @Getter(AccessLevel.NONE)
     private Map<String, String> parameters;
-    private BaseCondition condition;
+    @Setter(AccessLevel.NONE)
+    private BooleanVertex<T> condition;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final ObjectState state = new ObjectState();
+    @Setter(AccessLevel.NONE)
+    private int splitSize = DEFAULT_SPLIT_SIZE;
+    private ForkJoinPool pool;
+    /**
+     * Number of evaluated records after which the condition tree is re-optimized
+     * using the observed selectivity. Disabled if <= 0.
+     */
+    private long optimizeInterval = DEFAULT_OPTIMIZE_INTERVAL;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicLong evaluations = new AtomicLong();
 
     public Query(@NonNull Class<T> type) {
         this.type = type;
     }
 
+    public Query<T> condition(@NonNull BooleanVertex<T> condition) {
+        Preconditions.checkState(!prepared(), "Query already prepared, condition cannot be modified.");
+        this.condition = condition;
+        return this;
+    }
+
+    /**
+     * Set the batch size below which parallel evaluation is not split further.
+     * Rounded up to a multiple of 64, so splits do not share selection words.
+     *
+     * @param splitSize - Split Size
+     * @return - Self
+     */
+    public Query<T> splitSize(int splitSize) {
+        Preconditions.checkArgument(splitSize > 0);
+        this.splitSize = (splitSize + 63) & ~63;
+        return this;
+    }
+
     public Query<T> addParameter(@NonNull String key, String value) {
         Preconditions.checkArgument(!Strings.isNullOrEmpty(key));
         if (parameters == null) {
@@ -70,13 +114,70 @@ public class Query<T> {
     }
 
     public void validate() throws ValidationException {
+        if (prepared()) return;
         if (condition == null) {
             throw new ValidationException("Query condition not set.");
         }
         condition.validate();
     }
 
+    /**
+     * Validate and freeze the query condition tree. Prepared queries skip
+     * validation (and the associated exception wrapping) on evaluation.
+     *
+     * @return - Self
+     * @throws ValidationException
+     */
+    public Query<T> prepare() throws ValidationException {
+        if (prepared()) return this;
+        try {
+            if (condition == null) {
+                throw new ValidationException("Query condition not set.");
+            }
+            condition.prepare();
+            condition.optimize();
+            state.setState(EObjectState.Available);
+        } catch (ValidationException ve) {
+            state.setError(ve);
+            throw ve;
+        }
+        return this;
+    }
+
+    public boolean prepared() {
+        return state.getState() == EObjectState.Available;
+    }
+
+    /**
+     * Re-order the evaluation of commutative conditions (AND/OR) by estimated cost
+     * and observed selectivity. Compiled queries keep the order at the time of compilation.
+     *
+     * @return - Self
+     */
+    public Query<T> optimize() {
+        Preconditions.checkState(prepared(), "Query not prepared.");
+        condition.optimize();
+        return this;
+    }
+
+    private void evaluated(long count) {
+        if (optimizeInterval > 0) {
+            long total = evaluations.addAndGet(count);
+            if ((total - count) / optimizeInterval != total / optimizeInterval) {
+                condition.optimize();
+            }
+        }
+    }
+
     public boolean evaluate(@NonNull Object value) throws EvaluationException {
+        if (prepared()) {
+            if (!type.isInstance(value)) {
+                throw new EvaluationException(String.format("Type Mismatch: [expected=%s][type=%s]", type.getCanonicalName(), value.getClass().getCanonicalName()));
+            }
+            boolean result = condition.evaluate(value);
+            evaluated(1);
+            return result;
+        }
         try {
             validate();
             if (!Reflector.isSuperType(type, value.getClass())) {
@@ -87,4 +188,135 @@ public class Query<T> {
             throw new EvaluationException(ex);
         }
     }
+
+    /**
+     * Evaluate the query against a batch of records. Conditions are evaluated
+     * column-wise over the batch, each field is extracted once per record.
+     *
+     * @param values - Records to evaluate
+     * @return - Selection with the positions of the matched records set
+     * @throws EvaluationException
+     */
+    public BitSet evaluate(@NonNull Object[] values) throws EvaluationException {
+        prepareBatch();
+        checkTypes(values, 0, values.length);
+        BatchContext context = new BatchContext(values);
+        BitSet result = condition.evaluate(context, context.all());
+        evaluated(values.length);
+        return result;
+    }
+
+    /**
+     * Evaluate the query against a batch of records in parallel. The batch is split into ranges
+     * of the configured split size, each range is evaluated on the fork/join pool with its own
+     * batch context. Results are merged in record order.
+     *
+     * @param values - Records to evaluate
+     * @return - Selection with the positions of the matched records set
+     * @throws EvaluationException
+     */
+    public BitSet evaluateParallel(@NonNull Object[] values) throws EvaluationException {
+        if (values.length <= splitSize) {
+            return evaluate(values);
+        }
+        prepareBatch();
+        long[] words = new long[(values.length + 63) >> 6];
+        ForkJoinPool pool = (this.pool != null ? this.pool : ForkJoinPool.commonPool());
+        try {
+            pool.invoke(new EvaluateTask(values, 0, values.length, words));
+        } catch (RuntimeException ex) {
+            // Fork/join may re-wrap exceptions thrown on other threads.
+            for (Throwable t = ex; t != null; t = t.getCause()) {
+                if (t instanceof EvaluationException) {
+                    throw (EvaluationException) t;
+                }
+            }
+            throw new EvaluationException(ex);
+        }
+        evaluated(values.length);
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Filter the passed records, positions are in iteration order of the collection.
+     *
+     * @param values - Records to filter
+     * @return - Selection with the positions of the matched records set
+     * @throws EvaluationException
+     */
+    public BitSet filter(@NonNull Collection<? extends T> values) throws EvaluationException {
+        return evaluate(values.toArray());
+    }
+
+    /**
+     * Filter the passed records in parallel, positions are in iteration order of the collection.
+     *
+     * @param values - Records to filter
+     * @return - Selection with the positions of the matched records set
+     * @throws EvaluationException
+     */
+    public BitSet filterParallel(@NonNull Collection<? extends T> values) throws EvaluationException {
+        return evaluateParallel(values.toArray());
+    }
+
+    private void prepareBatch() throws EvaluationException {
+        try {
+            prepare();
+        } catch (ValidationException ve) {
+            throw new EvaluationException(ve);
+        }
+    }
+
+    private void checkTypes(Object[] values, int from, int to) throws EvaluationException {
+        for (int ii = from; ii < to; ii++) {
+            Object value = values[ii];
+            if (!type.isInstance(value)) {
+                throw new EvaluationException(String.format("Type Mismatch: [expected=%s][type=%s]",
+                        type.getCanonicalName(), (value == null ? "null" : value.getClass().getCanonicalName())));
+            }
+        }
+    }
+
+    public CompiledQuery<T> compile() throws ValidationException {
+        prepare();
+        return new CompiledQuery<>(this, condition.compile());
+    }
+
+    /**
+     * Evaluates a range of the batch. Range boundaries are multiples of 64 (split size is 64 aligned),
+     * so each leaf writes a disjoint set of selection words.
+     */
+    private final class EvaluateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Object[] values;
+        private final int from;
+        private final int to;
+        private final long[] words;
+
+        private EvaluateTask(Object[] values, int from, int to, long[] words) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.words = words;
+        }
+
+        @Override
+        protected void compute() {
+            int size = to - from;
+            if (size > splitSize) {
+                int mid = from + (((size >> 1) + 63) & ~63);
+                invokeAll(new EvaluateTask(values, from, mid, words),
+                        new EvaluateTask(values, mid, to, words));
+                return;
+            }
+            try {
+                checkTypes(values, from, to);
+                BatchContext context = new BatchContext(Arrays.copyOfRange(values, from, to));
+                long[] result = condition.evaluate(context, context.all()).toLongArray();
+                System.arraycopy(result, 0, words, from >> 6, result.length);
+            } catch (EvaluationException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
 }
@@ -23,7 +23,11 @@
 
 package com.codekutter.qengine.model;
 
+import com.codekutter.qengine.common.EObjectState;
+import com.codekutter.qengine.common.ObjectState;
 import com.codekutter.qengine.common.ValidationException;
+import com.google.common.base.Preconditions;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -33,13 +37,57 @@ import lombok.experimental.Accessors;
 @Setter
 @Accessors(fluent = true)
 public abstract class Vertex<T> {
+    @Setter(AccessLevel.NONE)
     private String id;
     private final Query<T> query;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final ObjectState state = new ObjectState();
 
     public Vertex(@NonNull Query<T> query) {
         this.query = query;
     }
 
+    public Vertex<T> id(String id) {
+        checkMutable();
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * Prepare this vertex for evaluation. Once prepared the vertex is frozen
+     * and evaluation skips validation. Only the evaluation order of commutative
+     * conditions can change after prepare (see BooleanVertex.optimize()).
+     *
+     * @throws ValidationException
+     */
+    public void prepare() throws ValidationException {
+        state.setState(EObjectState.Available);
+    }
+
+    public boolean prepared() {
+        return state.getState() == EObjectState.Available;
+    }
+
+    protected void error(@NonNull Throwable error) {
+        state.setError(error);
+    }
+
+    protected void checkMutable() {
+        Preconditions.checkState(!prepared(), "Vertex already prepared, cannot be modified. [type=%s]",
+                getClass().getCanonicalName());
+    }
+
+    /**
+     * Relative cost estimate of evaluating this vertex for a record.
+     * Used to order the evaluation of commutative conditions.
+     *
+     * @return - Cost estimate
+     */
+    public double cost() {
+        return 1;
+    }
+
     public abstract String printString();
 
 }
@@ -25,13 +25,16 @@ package com.codekutter.qengine.model.conditions;
 
 import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.BatchContext;
 import com.codekutter.qengine.model.BooleanVertex;
+import com.codekutter.qengine.model.CompiledCondition;
 import com.codekutter.qengine.model.Query;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.util.BitSet;
 
 @Getter
 @Setter
@@ -40,16 +43,17 @@ public class And<E> extends BaseCondition<E> {
     public static final String __NAME = "AND";
 
     public And(@NonNull Query<E> query) {
-        super(query);
+        super(query, false);
     }
 
     @Override
     public void validate() throws ValidationException {
-        if (left() instanceof BooleanVertex) {
+        if (prepared()) return;
+        if (!(left() instanceof BooleanVertex)) {
             throw new ValidationException("Left condition missing or invalid.");
         }
         ((BooleanVertex<E>) left()).validate();
-        if (right() instanceof BooleanVertex) {
+        if (!(right() instanceof BooleanVertex)) {
             throw new ValidationException("Right condition missing or invalid");
         }
         ((BooleanVertex<E>) right()).validate();
@@ -57,9 +61,13 @@ public class And<E> extends BaseCondition<E> {
 
     @Override
     public boolean evaluate(@NonNull Object data) throws EvaluationException {
+        Order<E> order = order();
+        if (prepared()) {
+            return evaluateOperand(order.first(), data) && evaluateOperand(order.second(), data);
+        }
         try {
             validate();
-            return (((BooleanVertex<E>) right()).evaluate(data) && ((BooleanVertex<E>) left()).evaluate(data));
+            return (order.first().evaluate(data) && order.second().evaluate(data));
         } catch (EvaluationException e) {
             throw e;
         } catch (Throwable t) {
@@ -67,6 +75,51 @@ public class And<E> extends BaseCondition<E> {
         }
     }
 
+    @Override
+    public CompiledCondition compile() throws ValidationException {
+        validate();
+        Order<E> order = order();
+        CompiledCondition fc = order.first().compile();
+        CompiledCondition sc = order.second().compile();
+        return data -> fc.test(data) && sc.test(data);
+    }
+
+    @Override
+    protected BitSet evaluateBatch(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        Order<E> order = order();
+        BitSet matched = order.first().evaluate(context, selection);
+        if (matched.isEmpty()) {
+            return matched;
+        }
+        return order.second().evaluate(context, matched);
+    }
+
+    @Override
+    public boolean commutative() {
+        return true;
+    }
+
+    /**
+     * Expected cost per rejected record, cheap and selective operands first.
+     */
+    @Override
+    protected double rank(@NonNull BooleanVertex<E> operand) {
+        return operand.cost() / Math.max(1.0 - operand.selectivity(), MIN_PROBABILITY);
+    }
+
+    @Override
+    public double cost() {
+        Order<E> order = order();
+        BooleanVertex<E> first = order.first();
+        return first.cost() + first.selectivity() * order.second().cost();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected double estimateSelectivity() {
+        return ((BooleanVertex<E>) left()).selectivity() * ((BooleanVertex<E>) right()).selectivity();
+    }
+
     @Override
     public String printString() {
         return String.format("%s %s %s", left().printString(), __NAME, right().printString());
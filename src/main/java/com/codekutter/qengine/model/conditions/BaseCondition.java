@@ -23,22 +23,148 @@
 
 package com.codekutter.qengine.model.conditions;
 
+import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.model.BooleanVertex;
 import com.codekutter.qengine.model.Query;
 import com.codekutter.qengine.model.Vertex;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.util.Arrays;
+import java.util.List;
+
 @Getter
 @Setter
 @Accessors(fluent = true)
 public abstract class BaseCondition<E> extends BooleanVertex<E> {
+    protected static final double MIN_PROBABILITY = 0.01;
+
+    @Setter(AccessLevel.NONE)
     private Vertex<E> left;
+    @Setter(AccessLevel.NONE)
     private Vertex<E> right;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Order<E> order;
 
     public BaseCondition(@NonNull Query<E> query) {
+        this(query, true);
+    }
+
+    protected BaseCondition(@NonNull Query<E> query, boolean leftFirst) {
         super(query);
+        this.order = new Order<>(null, null, leftFirst);
+    }
+
+    public BaseCondition<E> left(@NonNull Vertex<E> left) {
+        checkMutable();
+        this.left = left;
+        this.order = order.with(left, right);
+        return this;
+    }
+
+    public BaseCondition<E> right(@NonNull Vertex<E> right) {
+        checkMutable();
+        this.right = right;
+        this.order = order.with(left, right);
+        return this;
+    }
+
+    @Override
+    protected List<Vertex<E>> children() {
+        return Arrays.asList(left, right);
+    }
+
+    /**
+     * Is the condition commutative (operands can be evaluated in any order).
+     *
+     * @return - Commutative?
+     */
+    public boolean commutative() {
+        return false;
+    }
+
+    /**
+     * Rank of an operand for evaluation ordering, lower ranks are evaluated first.
+     *
+     * @param operand - Operand vertex
+     * @return - Rank
+     */
+    protected double rank(@NonNull BooleanVertex<E> operand) {
+        return operand.cost();
+    }
+
+    public boolean leftFirst() {
+        return order.leftFirst;
+    }
+
+    /**
+     * Current evaluation order of the operands. The order of a prepared condition can be
+     * changed by optimize() concurrently with evaluations, callers should read the order
+     * once and use the returned pair for both operands.
+     *
+     * @return - Operand order
+     */
+    protected Order<E> order() {
+        return order;
+    }
+
+    /**
+     * Evaluate an operand and record a sample of the outcomes for selectivity tracking.
+     */
+    protected static <E> boolean evaluateOperand(@NonNull BooleanVertex<E> operand, @NonNull Object data) throws EvaluationException {
+        boolean result = operand.evaluate(data);
+        if (sample()) {
+            operand.observe(result);
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void optimize() {
+        super.optimize();
+        if (commutative() && left instanceof BooleanVertex && right instanceof BooleanVertex) {
+            Order<E> current = order;
+            double lr = rank((BooleanVertex<E>) left);
+            double rr = rank((BooleanVertex<E>) right);
+            // Only switch on a strict improvement, equal ranks keep the current order.
+            if ((current.leftFirst && rr < lr) || (!current.leftFirst && lr < rr)) {
+                order = new Order<>(left, right, !current.leftFirst);
+            }
+        }
+    }
+
+    /**
+     * Immutable operand evaluation order, published as a whole so both operands
+     * are always read from the same order.
+     */
+    protected static final class Order<E> {
+        private final Vertex<E> first;
+        private final Vertex<E> second;
+        private final boolean leftFirst;
+
+        private Order(Vertex<E> left, Vertex<E> right, boolean leftFirst) {
+            this.first = (leftFirst ? left : right);
+            this.second = (leftFirst ? right : left);
+            this.leftFirst = leftFirst;
+        }
+
+        private Order<E> with(Vertex<E> left, Vertex<E> right) {
+            return new Order<>(left, right, leftFirst);
+        }
+
+        @SuppressWarnings("unchecked")
+        public BooleanVertex<E> first() {
+            return (BooleanVertex<E>) first;
+        }
+
+        @SuppressWarnings("unchecked")
+        public BooleanVertex<E> second() {
+            return (BooleanVertex<E>) second;
+        }
     }
 }
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.conditions;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.BatchContext;
+import com.codekutter.qengine.model.BooleanVertex;
+import com.codekutter.qengine.model.CompiledCondition;
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.Vertex;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Matches if the value is within the lower and upper bounds (inclusive by default).
+ * Evaluated as a lower and an upper bound comparison, sharing their primitive fast paths.
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public class Between<E, T> extends BooleanVertex<E> {
+    public static final String __OPERATION = "BETWEEN";
+
+    private final DataType.BasicDataType<T> dataType;
+    @Setter(AccessLevel.NONE)
+    private Vertex<E> value;
+    @Setter(AccessLevel.NONE)
+    private Vertex<E> lower;
+    @Setter(AccessLevel.NONE)
+    private Vertex<E> upper;
+    @Setter(AccessLevel.NONE)
+    private boolean inclusive = true;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private GreaterThan<E, T> low;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LessThan<E, T> high;
+
+    public Between(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType) {
+        super(query);
+        this.dataType = dataType;
+    }
+
+    public Between<E, T> value(@NonNull Vertex<E> value) {
+        checkMutable();
+        this.value = value;
+        reset();
+        return this;
+    }
+
+    public Between<E, T> lower(@NonNull Vertex<E> lower) {
+        checkMutable();
+        this.lower = lower;
+        reset();
+        return this;
+    }
+
+    public Between<E, T> upper(@NonNull Vertex<E> upper) {
+        checkMutable();
+        this.upper = upper;
+        reset();
+        return this;
+    }
+
+    public Between<E, T> inclusive(boolean inclusive) {
+        checkMutable();
+        this.inclusive = inclusive;
+        reset();
+        return this;
+    }
+
+    @Override
+    protected List<Vertex<E>> children() {
+        return Arrays.asList(value, lower, upper);
+    }
+
+    @Override
+    public void prepare() throws ValidationException {
+        super.prepare();
+        low.prepare();
+        high.prepare();
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (prepared()) return;
+        if (value == null) {
+            throw new ValidationException("Value Vertex not set.");
+        }
+        if (lower == null || upper == null) {
+            throw new ValidationException("Bounds not set.");
+        }
+        // The bound comparisons are built once and reused until the operands change.
+        GreaterThan<E, T> gt = low;
+        LessThan<E, T> lt = high;
+        if (gt == null || lt == null) {
+            gt = new GreaterThan<>(query(), dataType).inclusive(inclusive);
+            gt.left(value).right(lower);
+            lt = new LessThan<>(query(), dataType).inclusive(inclusive);
+            lt.left(value).right(upper);
+        }
+        gt.validate();
+        lt.validate();
+        low = gt;
+        high = lt;
+    }
+
+    private void reset() {
+        low = null;
+        high = null;
+    }
+
+    @Override
+    public boolean evaluate(@NonNull Object data) throws EvaluationException {
+        if (!prepared()) {
+            try {
+                validate();
+            } catch (ValidationException ve) {
+                throw new EvaluationException(ve);
+            }
+        }
+        return low.evaluate(data) && high.evaluate(data);
+    }
+
+    @Override
+    public CompiledCondition compile() throws ValidationException {
+        validate();
+        CompiledCondition lc = low.compile();
+        CompiledCondition hc = high.compile();
+        return data -> lc.test(data) && hc.test(data);
+    }
+
+    @Override
+    protected BitSet evaluateBatch(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        return high.evaluate(context, low.evaluate(context, selection));
+    }
+
+    @Override
+    protected double estimateSelectivity() {
+        return 0.25;
+    }
+
+    @Override
+    public String printString() {
+        return String.format("%s %s %s AND %s", value.printString(), __OPERATION, lower.printString(), upper.printString());
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.conditions;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.BatchContext;
+import com.codekutter.qengine.model.CompiledCondition;
+import com.codekutter.qengine.model.CompiledValue;
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.Vertex;
+import com.codekutter.qengine.model.values.Constant;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.function.IntPredicate;
+
+/**
+ * Base for binary comparisons of two values. Sub-classes map the comparison result
+ * (negative, zero, positive) to the condition result.
+ * <p>
+ * The operand coercion (long, double, epoch milliseconds) is planned once from the
+ * operand types during validation, values are then compared on primitives through the
+ * DataType comparator hooks without going through DataType.compareValue().
+ * Comparisons against a constant are compiled against the pre-parsed constant.
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public abstract class ComparisonCondition<E, T> extends BaseCondition<E> {
+    private final DataType.BasicDataType<T> dataType;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private DataType.Coercion coercion;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile CompiledCondition constantMatcher;
+
+    protected ComparisonCondition(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType) {
+        super(query);
+        this.dataType = dataType;
+        this.coercion = dataType.coercion();
+    }
+
+    /**
+     * Operator used to print the condition.
+     *
+     * @return - Operator
+     */
+    protected abstract String operation();
+
+    /**
+     * Condition result for the comparison of the (non-null) left and right values.
+     *
+     * @param compare - Comparison result (left compared to right)
+     * @return - Matched?
+     */
+    protected abstract boolean test(int compare);
+
+    /**
+     * Condition result when either value is NULL.
+     */
+    protected boolean testNull(Object lv, Object rv) {
+        return false;
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (prepared()) return;
+        if (left() == null) {
+            throw new ValidationException("Left Vertex not set.");
+        }
+        if (right() == null) {
+            throw new ValidationException("Right Vertex not set.");
+        }
+        coercion = plan(value(left(), "Left"), value(right(), "Right"));
+    }
+
+    /**
+     * Plan the operand coercion from the operand types, falling back to the
+     * condition type for mixed operands.
+     */
+    private DataType.Coercion plan(ValueDefinition<E, ?> lv, ValueDefinition<E, ?> rv) {
+        DataType.Coercion plan = DataType.Coercion.plan(lv.dataType(), rv.dataType());
+        return (plan == DataType.Coercion.None ? dataType.coercion() : plan);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean evaluate(@NonNull Object data) throws EvaluationException {
+        if (prepared()) {
+            if (right() instanceof Constant) {
+                return constantMatcher().test(((ValueDefinition<E, ?>) left()).evaluate(data));
+            } else if (left() instanceof Constant) {
+                return constantMatcher().test(((ValueDefinition<E, ?>) right()).evaluate(data));
+            }
+            return matches(((ValueDefinition<E, ?>) left()).evaluate(data), ((ValueDefinition<E, ?>) right()).evaluate(data));
+        }
+        try {
+            validate();
+            Object lv = value(left(), "Left").evaluate(data);
+            Object rv = value(right(), "Right").evaluate(data);
+            return matches(lv, rv);
+        } catch (EvaluationException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new EvaluationException(t);
+        }
+    }
+
+    @Override
+    public CompiledCondition compile() throws ValidationException {
+        validate();
+        ValueDefinition<E, ?> lv = value(left(), "Left");
+        ValueDefinition<E, ?> rv = value(right(), "Right");
+        if (rv instanceof Constant) {
+            return compile(lv.compile(), (Constant<E, ?>) rv, false);
+        } else if (lv instanceof Constant) {
+            return compile(rv.compile(), (Constant<E, ?>) lv, true);
+        }
+        CompiledValue lc = lv.compile();
+        CompiledValue rc = rv.compile();
+        return data -> matches(lc.get(data), rc.get(data));
+    }
+
+    /**
+     * Batch evaluation: the non-constant side(s) are read as columns and matched
+     * in a single loop. Comparisons against a constant reuse the specialized
+     * matcher applied to the column value.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected BitSet evaluateBatch(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        BitSet result = new BitSet(context.size());
+        ValueDefinition<E, ?> lv = (ValueDefinition<E, ?>) left();
+        ValueDefinition<E, ?> rv = (ValueDefinition<E, ?>) right();
+        if (rv instanceof Constant || lv instanceof Constant) {
+            CompiledCondition matcher = constantMatcher();
+            Object[] column = context.column(rv instanceof Constant ? lv : rv, selection);
+            for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+                if (matcher.test(column[ii])) {
+                    result.set(ii);
+                }
+            }
+        } else {
+            Object[] lc = context.column(lv, selection);
+            Object[] rc = context.column(rv, selection);
+            for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+                if (matches(lc[ii], rc[ii])) {
+                    result.set(ii);
+                }
+            }
+        }
+        return result;
+    }
+
+    private CompiledCondition constantMatcher() throws EvaluationException {
+        if (constantMatcher == null) {
+            try {
+                boolean reversed = !(right() instanceof Constant);
+                constantMatcher = compile(value -> value, (Constant<E, ?>) (reversed ? left() : right()), reversed);
+            } catch (ValidationException ve) {
+                throw new EvaluationException(ve);
+            }
+        }
+        return constantMatcher;
+    }
+
+    /**
+     * Compile the comparison of a value to a constant, reversed if the constant is the left operand.
+     */
+    private CompiledCondition compile(CompiledValue value, Constant<E, ?> constant, boolean reversed) throws ValidationException {
+        final Object cv;
+        try {
+            cv = constant.getTypedValue();
+        } catch (ParseException e) {
+            throw new ValidationException(String.format("Invalid constant value. [type=%s][value=%s]", dataType.name(), constant.value()), e);
+        }
+        if (cv == null) {
+            return data -> testNull(value.get(data), null);
+        }
+        final IntPredicate test = (reversed ? c -> test(-c) : this::test);
+        final CompiledCondition fallback = (reversed ? data -> matches(cv, data) : data -> matches(data, cv));
+        if (coercion == DataType.Coercion.Long && cv instanceof Number) {
+            final long lc = ((Number) cv).longValue();
+            return data -> {
+                Object v = value.get(data);
+                if (integral(v)) {
+                    return test.test(dataType.compareLong(((Number) v).longValue(), lc));
+                }
+                return (v == null ? testNull(null, cv) : fallback.test(v));
+            };
+        } else if (coercion == DataType.Coercion.Double && cv instanceof Number) {
+            final double dc = ((Number) cv).doubleValue();
+            return data -> {
+                Object v = value.get(data);
+                if (v instanceof Number) {
+                    return test.test(dataType.compareDouble(((Number) v).doubleValue(), dc));
+                }
+                return (v == null ? testNull(null, cv) : fallback.test(v));
+            };
+        } else if (coercion == DataType.Coercion.EpochMillis && cv instanceof Date && !(cv instanceof Timestamp)) {
+            final long tc = ((Date) cv).getTime();
+            return data -> {
+                Object v = value.get(data);
+                if (v instanceof Date) {
+                    return test.test(dataType.compareEpochMillis(((Date) v).getTime(), tc));
+                }
+                return (v == null ? testNull(null, cv) : fallback.test(v));
+            };
+        } else if (cv instanceof Enum) {
+            // Enum constants are singletons, compare by ordinal.
+            final int oc = ((Enum<?>) cv).ordinal();
+            final Class<?> et = cv.getClass();
+            return data -> {
+                Object v = value.get(data);
+                if (v != null && v.getClass() == et) {
+                    return test.test(Integer.compare(((Enum<?>) v).ordinal(), oc));
+                }
+                return (v == null ? testNull(null, cv) : fallback.test(v));
+            };
+        } else if (cv instanceof String) {
+            final String sc = (String) cv;
+            return data -> {
+                Object v = value.get(data);
+                if (v instanceof String) {
+                    return test.test(((String) v).compareTo(sc));
+                }
+                return (v == null ? testNull(null, cv) : fallback.test(v));
+            };
+        }
+        return data -> {
+            Object v = value.get(data);
+            return (v == null ? testNull(null, cv) : fallback.test(v));
+        };
+    }
+
+    protected boolean matches(Object lv, Object rv) throws EvaluationException {
+        if (lv == null || rv == null) {
+            return testNull(lv, rv);
+        }
+        return test(compare(lv, rv));
+    }
+
+    /**
+     * Compare two non-null values, using primitive comparisons where both values allow it.
+     */
+    protected int compare(@NonNull Object lv, @NonNull Object rv) throws EvaluationException {
+        switch (coercion) {
+            case Long:
+                if (integral(lv) && integral(rv)) {
+                    return dataType.compareLong(((Number) lv).longValue(), ((Number) rv).longValue());
+                }
+                break;
+            case Double:
+                if (lv instanceof Number && rv instanceof Number) {
+                    return dataType.compareDouble(((Number) lv).doubleValue(), ((Number) rv).doubleValue());
+                }
+                break;
+            case EpochMillis:
+                // Timestamps keep the nanosecond part, compared by the data type.
+                if (lv instanceof Date && rv instanceof Date && !(lv instanceof Timestamp || rv instanceof Timestamp)) {
+                    return dataType.compareEpochMillis(((Date) lv).getTime(), ((Date) rv).getTime());
+                }
+                break;
+            default:
+                break;
+        }
+        try {
+            return dataType.compareValue(lv, rv);
+        } catch (ParseException e) {
+            throw new EvaluationException(e);
+        }
+    }
+
+    private static boolean integral(Object value) {
+        return (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected ValueDefinition<E, ?> value(Vertex<E> vertex, String side) throws ValidationException {
+        if (!(vertex instanceof ValueDefinition)) {
+            throw new ValidationException(String.format("%s Vertex is not a value. [vertex=%s]", side, vertex.printString()));
+        }
+        return (ValueDefinition<E, ?>) vertex;
+    }
+
+    @Override
+    public double cost() {
+        // String comparisons are costlier than the primitive ones.
+        return super.cost() + (dataType instanceof DataType.DtString ? 1 : 0);
+    }
+
+    @Override
+    public String printString() {
+        return String.format("%s %s %s", left().printString(), operation(), right().printString());
+    }
+}
@@ -23,45 +23,34 @@
 
 package com.codekutter.qengine.model.conditions;
 
-import com.codekutter.qengine.common.EvaluationException;
-import com.codekutter.qengine.common.ValidationException;
 import com.codekutter.qengine.model.DataType;
 import com.codekutter.qengine.model.Query;
-import lombok.Getter;
 import lombok.NonNull;
-import lombok.Setter;
-import lombok.experimental.Accessors;
 
-@Getter
-@Setter
-@Accessors(fluent = true)
-public class Equals<E, T> extends BaseCondition<E> {
+public class Equals<E, T> extends ComparisonCondition<E, T> {
     public static final String __OPERATION = "=";
 
-    private final DataType.BasicDataType<T> dataType;
-
     public Equals(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType) {
-        super(query);
-        this.dataType = dataType;
+        super(query, dataType);
+    }
+
+    @Override
+    protected String operation() {
+        return __OPERATION;
     }
 
     @Override
-    public void validate() throws ValidationException {
-        if (left() == null) {
-            throw new ValidationException("Left Vertex not set.");
-        }
-        if (right() == null) {
-            throw new ValidationException("Right Vertex not set.");
-        }
+    protected boolean test(int compare) {
+        return compare == 0;
     }
 
     @Override
-    public boolean evaluate(@NonNull Object data) throws EvaluationException {
-        return false;
+    protected boolean testNull(Object lv, Object rv) {
+        return (lv == rv);
     }
 
     @Override
-    public String printString() {
-        return String.format("%s %s %s", left().printString(), __OPERATION, right().printString());
+    protected double estimateSelectivity() {
+        return 0.1;
     }
 }
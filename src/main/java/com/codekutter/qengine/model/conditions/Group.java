@@ -25,26 +25,47 @@ package com.codekutter.qengine.model.conditions;
 
 import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.BatchContext;
 import com.codekutter.qengine.model.BooleanVertex;
+import com.codekutter.qengine.model.CompiledCondition;
 import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.Vertex;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
 @Getter
 @Setter
 @Accessors(fluent = true)
 public class Group<E> extends BooleanVertex<E> {
 
+    @Setter(AccessLevel.NONE)
     private BooleanVertex<E> condition;
 
     public Group(@NonNull Query<E> query) {
         super(query);
     }
 
+    public Group<E> condition(@NonNull BooleanVertex<E> condition) {
+        checkMutable();
+        this.condition = condition;
+        return this;
+    }
+
+    @Override
+    protected List<Vertex<E>> children() {
+        return Collections.singletonList(condition);
+    }
+
     @Override
     public void validate() throws ValidationException {
+        if (prepared()) return;
         if (condition == null) {
             throw new ValidationException("Empty Group condition.");
         }
@@ -53,6 +74,9 @@ public class Group<E> extends BooleanVertex<E> {
 
     @Override
     public boolean evaluate(@NonNull Object data) throws EvaluationException {
+        if (prepared()) {
+            return condition.evaluate(data);
+        }
         try {
             validate();
         } catch (ValidationException ve) {
@@ -61,6 +85,22 @@ public class Group<E> extends BooleanVertex<E> {
         return condition.evaluate(data);
     }
 
+    @Override
+    public CompiledCondition compile() throws ValidationException {
+        validate();
+        return condition.compile();
+    }
+
+    @Override
+    protected BitSet evaluateBatch(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        return condition.evaluate(context, selection);
+    }
+
+    @Override
+    protected double estimateSelectivity() {
+        return condition.selectivity();
+    }
+
     @Override
     public String printString() {
         return String.format("(%s)", condition.printString());
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.conditions;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.BatchContext;
+import com.codekutter.qengine.model.CompiledCondition;
+import com.codekutter.qengine.model.CompiledValue;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.Vertex;
+import com.codekutter.qengine.model.values.ConstantCollection;
+import com.codekutter.qengine.model.values.QueryOutput;
+import com.codekutter.qengine.model.values.ReferenceList;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import com.codekutter.qengine.model.values.ValueIndex;
+import lombok.NonNull;
+
+import java.util.BitSet;
+
+/**
+ * Matches if the left value is contained in the right values, a constant collection,
+ * reference list or query output. Lookups use the value index of the collection,
+ * resolved once per batch (reference lists not cached are read once per evaluation).
+ * NULL values never match.
+ */
+public class In<E> extends BaseCondition<E> {
+    public static final String __OPERATION = "IN";
+
+    public In(@NonNull Query<E> query) {
+        super(query);
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (prepared()) return;
+        if (!(left() instanceof ValueDefinition)) {
+            throw new ValidationException("Left Vertex not set or not a value.");
+        }
+        Vertex<E> right = right();
+        if (!(right instanceof ConstantCollection || right instanceof ReferenceList || right instanceof QueryOutput)) {
+            throw new ValidationException("Right Vertex not set or not a collection value.");
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean evaluate(@NonNull Object data) throws EvaluationException {
+        if (!prepared()) {
+            try {
+                validate();
+            } catch (ValidationException ve) {
+                throw new EvaluationException(ve);
+            }
+        }
+        Object value = ((ValueDefinition<E, ?>) left()).evaluate(data);
+        return (value != null && contains(data, value));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompiledCondition compile() throws ValidationException {
+        validate();
+        CompiledValue lc = ((ValueDefinition<E, ?>) left()).compile();
+        if (right() instanceof ConstantCollection) {
+            ValueIndex index = ((ConstantCollection<E, ?>) right()).index();
+            return data -> {
+                Object value = lc.get(data);
+                return (value != null && index.contains(value));
+            };
+        }
+        return data -> {
+            Object value = lc.get(data);
+            return (value != null && contains(data, value));
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected BitSet evaluateBatch(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        BitSet result = new BitSet(context.size());
+        Object[] column = context.column((ValueDefinition<E, ?>) left(), selection);
+        Vertex<E> right = right();
+        if (right instanceof QueryOutput) {
+            for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+                if (column[ii] != null && contains(context.get(ii), column[ii])) {
+                    result.set(ii);
+                }
+            }
+            return result;
+        }
+        ValueIndex index = (right instanceof ConstantCollection ? ((ConstantCollection<E, ?>) right).index()
+                : ((ReferenceList<E, ?>) right).index());
+        if (index == null) {
+            return result;
+        }
+        for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+            if (column[ii] != null && index.contains(column[ii])) {
+                result.set(ii);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean contains(Object data, Object value) throws EvaluationException {
+        Vertex<E> right = right();
+        if (right instanceof ConstantCollection) {
+            return ((ConstantCollection<E, ?>) right).index().contains(value);
+        } else if (right instanceof ReferenceList) {
+            return ((ReferenceList<E, ?>) right).contains(value);
+        }
+        return ((QueryOutput<E, ?>) right).contains(data, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected double estimateSelectivity() {
+        if (right() instanceof ConstantCollection) {
+            return Math.min(0.9, 0.05 * ((ConstantCollection<E, ?>) right()).index().size());
+        }
+        return 0.2;
+    }
+
+    @Override
+    public String printString() {
+        return String.format("%s %s %s", left().printString(), __OPERATION, right().printString());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.conditions;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.BatchContext;
+import com.codekutter.qengine.model.BooleanVertex;
+import com.codekutter.qengine.model.CompiledCondition;
+import com.codekutter.qengine.model.CompiledValue;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.Vertex;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Matches if the value is NULL (or not NULL, if negated).
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public class IsNull<E> extends BooleanVertex<E> {
+    public static final String __OPERATION = "IS NULL";
+    public static final String __OPERATION_NOT = "IS NOT NULL";
+
+    @Setter(AccessLevel.NONE)
+    private Vertex<E> value;
+    @Setter(AccessLevel.NONE)
+    private boolean negate = false;
+
+    public IsNull(@NonNull Query<E> query) {
+        super(query);
+    }
+
+    public IsNull<E> value(@NonNull Vertex<E> value) {
+        checkMutable();
+        this.value = value;
+        return this;
+    }
+
+    public IsNull<E> negate(boolean negate) {
+        checkMutable();
+        this.negate = negate;
+        return this;
+    }
+
+    @Override
+    protected List<Vertex<E>> children() {
+        return Collections.singletonList(value);
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (prepared()) return;
+        if (!(value instanceof ValueDefinition)) {
+            throw new ValidationException("Value Vertex not set or not a value.");
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean evaluate(@NonNull Object data) throws EvaluationException {
+        if (!prepared()) {
+            try {
+                validate();
+            } catch (ValidationException ve) {
+                throw new EvaluationException(ve);
+            }
+        }
+        return (((ValueDefinition<E, ?>) value).evaluate(data) == null) != negate;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompiledCondition compile() throws ValidationException {
+        validate();
+        CompiledValue vc = ((ValueDefinition<E, ?>) value).compile();
+        final boolean not = negate;
+        return data -> (vc.get(data) == null) != not;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected BitSet evaluateBatch(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        BitSet result = new BitSet(context.size());
+        Object[] column = context.column((ValueDefinition<E, ?>) value, selection);
+        for (int ii = selection.nextSetBit(0); ii >= 0; ii = selection.nextSetBit(ii + 1)) {
+            if ((column[ii] == null) != negate) {
+                result.set(ii);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected double estimateSelectivity() {
+        return (negate ? 0.9 : 0.1);
+    }
+
+    @Override
+    public String printString() {
+        return String.format("%s %s", value.printString(), (negate ? __OPERATION_NOT : __OPERATION));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.conditions;
+
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Matches if the left value is less than (or equal to, if inclusive) the right value,
+ * NULL values never match.
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public class LessThan<E, T> extends ComparisonCondition<E, T> {
+    public static final String __OPERATION = "<";
+    public static final String __OPERATION_INCLUSIVE = "<=";
+
+    @Setter(AccessLevel.NONE)
+    private boolean inclusive = false;
+
+    public LessThan(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType) {
+        super(query, dataType);
+    }
+
+    public LessThan<E, T> inclusive(boolean inclusive) {
+        checkMutable();
+        this.inclusive = inclusive;
+        return this;
+    }
+
+    @Override
+    protected String operation() {
+        return (inclusive ? __OPERATION_INCLUSIVE : __OPERATION);
+    }
+
+    @Override
+    protected boolean test(int compare) {
+        return (inclusive ? compare <= 0 : compare < 0);
+    }
+
+    @Override
+    protected double estimateSelectivity() {
+        return 0.33;
+    }
+}
@@ -25,20 +25,48 @@ package com.codekutter.qengine.model.conditions;
 
 import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.BatchContext;
 import com.codekutter.qengine.model.BooleanVertex;
+import com.codekutter.qengine.model.CompiledCondition;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.Vertex;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
 @Getter
 @Setter
 @Accessors(fluent = true)
-public class Not extends BooleanVertex {
-    private BooleanVertex condition;
+public class Not<E> extends BooleanVertex<E> {
+    public static final String __NAME = "NOT";
+
+    @Setter(AccessLevel.NONE)
+    private BooleanVertex<E> condition;
+
+    public Not(@NonNull Query<E> query) {
+        super(query);
+    }
+
+    public Not<E> condition(@NonNull BooleanVertex<E> condition) {
+        checkMutable();
+        this.condition = condition;
+        return this;
+    }
+
+    @Override
+    protected List<Vertex<E>> children() {
+        return Collections.singletonList(condition);
+    }
 
     @Override
     public void validate() throws ValidationException {
+        if (prepared()) return;
         if (condition == null) {
             throw new ValidationException("Condition not set.");
         }
@@ -47,6 +75,9 @@ public class Not extends BooleanVertex {
 
     @Override
     public boolean evaluate(@NonNull Object data) throws EvaluationException {
+        if (prepared()) {
+            return !condition.evaluate(data);
+        }
         try {
             condition.validate();
             return !condition.evaluate(data);
@@ -54,4 +85,28 @@ public class Not extends BooleanVertex {
             throw new EvaluationException(e);
         }
     }
+
+    @Override
+    public CompiledCondition compile() throws ValidationException {
+        validate();
+        CompiledCondition cc = condition.compile();
+        return data -> !cc.test(data);
+    }
+
+    @Override
+    protected BitSet evaluateBatch(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        BitSet result = (BitSet) selection.clone();
+        result.andNot(condition.evaluate(context, selection));
+        return result;
+    }
+
+    @Override
+    protected double estimateSelectivity() {
+        return 1.0 - condition.selectivity();
+    }
+
+    @Override
+    public String printString() {
+        return String.format("%s %s", __NAME, condition.printString());
+    }
 }
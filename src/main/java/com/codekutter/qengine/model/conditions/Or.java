@@ -25,13 +25,16 @@ package com.codekutter.qengine.model.conditions;
 
 import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.BatchContext;
 import com.codekutter.qengine.model.BooleanVertex;
+import com.codekutter.qengine.model.CompiledCondition;
 import com.codekutter.qengine.model.Query;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.util.BitSet;
 
 @Getter
 @Setter
@@ -45,11 +48,12 @@ public class Or<E> extends BaseCondition<E> {
 
     @Override
     public void validate() throws ValidationException {
-        if (left() instanceof BooleanVertex) {
+        if (prepared()) return;
+        if (!(left() instanceof BooleanVertex)) {
             throw new ValidationException("Left condition missing or invalid.");
         }
         ((BooleanVertex<E>) left()).validate();
-        if (right() instanceof BooleanVertex) {
+        if (!(right() instanceof BooleanVertex)) {
             throw new ValidationException("Right condition missing or invalid");
         }
         ((BooleanVertex<E>) right()).validate();
@@ -57,9 +61,13 @@ public class Or<E> extends BaseCondition<E> {
 
     @Override
     public boolean evaluate(@NonNull Object data) throws EvaluationException {
+        Order<E> order = order();
+        if (prepared()) {
+            return evaluateOperand(order.first(), data) || evaluateOperand(order.second(), data);
+        }
         try {
             validate();
-            return (((BooleanVertex<E>) left()).evaluate(data) || ((BooleanVertex<E>) right()).evaluate(data));
+            return (order.first().evaluate(data) || order.second().evaluate(data));
         } catch (EvaluationException e) {
             throw e;
         } catch (Throwable t) {
@@ -67,6 +75,55 @@ public class Or<E> extends BaseCondition<E> {
         }
     }
 
+    @Override
+    public CompiledCondition compile() throws ValidationException {
+        validate();
+        Order<E> order = order();
+        CompiledCondition fc = order.first().compile();
+        CompiledCondition sc = order.second().compile();
+        return data -> fc.test(data) || sc.test(data);
+    }
+
+    @Override
+    protected BitSet evaluateBatch(@NonNull BatchContext context, @NonNull BitSet selection) throws EvaluationException {
+        Order<E> order = order();
+        BitSet matched = order.first().evaluate(context, selection);
+        BitSet remaining = (BitSet) selection.clone();
+        remaining.andNot(matched);
+        if (!remaining.isEmpty()) {
+            matched.or(order.second().evaluate(context, remaining));
+        }
+        return matched;
+    }
+
+    @Override
+    public boolean commutative() {
+        return true;
+    }
+
+    /**
+     * Expected cost per accepted record, cheap and broad operands first.
+     */
+    @Override
+    protected double rank(@NonNull BooleanVertex<E> operand) {
+        return operand.cost() / Math.max(operand.selectivity(), MIN_PROBABILITY);
+    }
+
+    @Override
+    public double cost() {
+        Order<E> order = order();
+        BooleanVertex<E> first = order.first();
+        return first.cost() + (1.0 - first.selectivity()) * order.second().cost();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected double estimateSelectivity() {
+        double ls = ((BooleanVertex<E>) left()).selectivity();
+        double rs = ((BooleanVertex<E>) right()).selectivity();
+        return 1.0 - (1.0 - ls) * (1.0 - rs);
+    }
+
     @Override
     public String printString() {
         return String.format("%s %s %s", left().printString(), __NAME, right().printString());
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.expressions;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.OperationException;
+import com.codekutter.qengine.model.Operations;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.lang.reflect.Array;
+import java.text.ParseException;
+
+/**
+ * Arithmetic over numeric operands, computed by the data type Operations.
+ * Add and Multiply take two or more operands, Subtract and Divide exactly two.
+ * NULL operand values evaluate to NULL. Two operand arithmetic on long and double
+ * values is computed on primitives with the Operations kernels, without the boxed
+ * operand array.
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public class Arithmetic<E, T> extends Expression<E, T> {
+    @Setter(AccessLevel.NONE)
+    private final Operator operator;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Class<T> javaType;
+
+    public Arithmetic(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType, @NonNull Operator operator) {
+        super(query, dataType);
+        this.operator = operator;
+        this.javaType = dataType.getJavaType();
+    }
+
+    @Override
+    public Arithmetic<E, T> operand(@NonNull ValueDefinition<E, ?> operand) {
+        super.operand(operand);
+        return this;
+    }
+
+    public enum Operator {
+        Add("+", Operations.Sum.class),
+        Subtract("-", Operations.Subtract.class),
+        Multiply("*", Operations.Multiply.class),
+        Divide("/", Operations.Divide.class);
+
+        private final String symbol;
+        private final Class<?> operation;
+
+        Operator(String symbol, Class<?> operation) {
+            this.symbol = symbol;
+            this.operation = operation;
+        }
+    }
+
+    @Override
+    protected String operation() {
+        return operator.symbol;
+    }
+
+    /**
+     * Nested arithmetic expressions of the same data type, the operator is the
+     * top-level operator of the nested string.
+     */
+    @Override
+    protected ValueDefinition<E, ?> nested(@NonNull String input) throws ValidationException {
+        for (Operator op : Operator.values()) {
+            if (split(input, op.symbol).size() > 1) {
+                Arithmetic<E, T> expression = new Arithmetic<>(query(), dataType(), op);
+                expression.parse(input);
+                return expression;
+            }
+        }
+        return super.nested(input);
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (prepared()) return;
+        super.validate();
+        if (!operator.operation.isInstance(dataType())) {
+            throw new ValidationException(String.format("Operation not supported by type. [operation=%s][type=%s]",
+                    operator.name(), dataType().name()));
+        }
+        int count = operands().size();
+        boolean binary = (operator == Operator.Subtract || operator == Operator.Divide);
+        if ((binary && count != 2) || count < 2) {
+            throw new ValidationException(String.format("Invalid number of operands. [operation=%s][count=%d]",
+                    operator.name(), count));
+        }
+    }
+
+    @Override
+    public T apply(@NonNull Object[] values) throws EvaluationException {
+        if (values.length == 2) {
+            return apply(values[0], values[1]);
+        }
+        return applyBoxed(values);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T apply(Object left, Object right) throws EvaluationException {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (left instanceof Number && right instanceof Number) {
+            try {
+                if (javaType == Long.class) {
+                    return (T) Long.valueOf(apply(((Number) left).longValue(), ((Number) right).longValue()));
+                } else if (javaType == Double.class) {
+                    return (T) Double.valueOf(apply(((Number) left).doubleValue(), ((Number) right).doubleValue()));
+                }
+            } catch (OperationException ex) {
+                throw new EvaluationException(String.format("%s [expression=%s]", ex.getLocalizedMessage(), printString()), ex);
+            }
+        }
+        return applyBoxed(new Object[]{left, right});
+    }
+
+    private long apply(long left, long right) throws OperationException {
+        switch (operator) {
+            case Add:
+                return Operations.add(left, right);
+            case Subtract:
+                return Operations.subtract(left, right);
+            case Multiply:
+                return Operations.multiply(left, right);
+            default:
+                return Operations.divide(left, right);
+        }
+    }
+
+    private double apply(double left, double right) throws OperationException {
+        switch (operator) {
+            case Add:
+                return Operations.add(left, right);
+            case Subtract:
+                return Operations.subtract(left, right);
+            case Multiply:
+                return Operations.multiply(left, right);
+            default:
+                return Operations.divide(left, right);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T applyBoxed(Object[] values) throws EvaluationException {
+        Class<T> type = javaType;
+        T[] array = (T[]) Array.newInstance(type, values.length);
+        for (int ii = 0; ii < values.length; ii++) {
+            if (values[ii] == null) {
+                return null;
+            }
+            array[ii] = cast(values[ii], type);
+        }
+        try {
+            switch (operator) {
+                case Add:
+                    return ((Operations.Sum<T>) dataType()).sum(array);
+                case Subtract:
+                    return ((Operations.Subtract<T>) dataType()).subtract(array[0], array[1]);
+                case Multiply:
+                    return ((Operations.Multiply<T>) dataType()).multiply(array);
+                default:
+                    return ((Operations.Divide<T>) dataType()).divide(array[0], array[1]);
+            }
+        } catch (OperationException | RuntimeException ex) {
+            throw new EvaluationException(ex);
+        }
+    }
+
+    /**
+     * Convert the operand value to the expression type, numeric operands are narrowed/widened.
+     */
+    @SuppressWarnings("unchecked")
+    private T cast(Object value, Class<T> type) throws EvaluationException {
+        if (type.isInstance(value)) {
+            return (T) value;
+        }
+        if (value instanceof Number) {
+            Number n = (Number) value;
+            if (type == Long.class) {
+                return (T) Long.valueOf(n.longValue());
+            } else if (type == Integer.class) {
+                return (T) Integer.valueOf(n.intValue());
+            } else if (type == Short.class) {
+                return (T) Short.valueOf(n.shortValue());
+            } else if (type == Double.class) {
+                return (T) Double.valueOf(n.doubleValue());
+            } else if (type == Float.class) {
+                return (T) Float.valueOf(n.floatValue());
+            }
+        } else if (value instanceof String) {
+            try {
+                return dataType().fromString((String) value);
+            } catch (ParseException e) {
+                throw new EvaluationException(e);
+            }
+        }
+        throw new EvaluationException(String.format("Invalid operand value. [type=%s][expected=%s]",
+                value.getClass().getCanonicalName(), type.getCanonicalName()));
+    }
+}
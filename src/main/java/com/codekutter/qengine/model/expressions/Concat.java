@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.expressions;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.OperationException;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import lombok.NonNull;
+
+/**
+ * String concatenation of two or more operands, non-string operand values are
+ * converted using their string value. NULL operand values evaluate to NULL.
+ */
+public class Concat<E> extends Expression<E, String> {
+    public static final String __NAME = "||";
+
+    public Concat(@NonNull Query<E> query) {
+        super(query, new DataType.DtString());
+    }
+
+    @Override
+    public Concat<E> operand(@NonNull ValueDefinition<E, ?> operand) {
+        super.operand(operand);
+        return this;
+    }
+
+    @Override
+    protected String operation() {
+        return __NAME;
+    }
+
+    @Override
+    protected ValueDefinition<E, ?> nested(@NonNull String input) throws ValidationException {
+        if (split(input, __NAME).size() > 1) {
+            Concat<E> expression = new Concat<>(query());
+            expression.parse(input);
+            return expression;
+        }
+        return super.nested(input);
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (prepared()) return;
+        super.validate();
+        if (operands().size() < 2) {
+            throw new ValidationException(String.format("Invalid number of operands. [operation=concat][count=%d]", operands().size()));
+        }
+    }
+
+    @Override
+    public String apply(@NonNull Object[] values) throws EvaluationException {
+        String[] strings = new String[values.length];
+        for (int ii = 0; ii < values.length; ii++) {
+            if (values[ii] == null) {
+                return null;
+            }
+            strings[ii] = String.valueOf(values[ii]);
+        }
+        try {
+            return ((DataType.DtString) dataType()).concat(strings);
+        } catch (OperationException ex) {
+            throw new EvaluationException(ex);
+        }
+    }
+}
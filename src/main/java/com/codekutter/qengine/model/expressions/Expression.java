@@ -23,23 +23,275 @@
 
 package com.codekutter.qengine.model.expressions;
 
+import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.CompiledValue;
 import com.codekutter.qengine.model.DataType;
-import com.codekutter.qengine.model.Vertex;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.values.Constant;
+import com.codekutter.qengine.model.values.Field;
+import com.codekutter.qengine.model.values.Parameter;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Value computed from the values of its operands.
+ * <p>
+ * On prepare constant operand sub-trees are folded and repeated operands are
+ * shared (see ExpressionPlanner). Compiled expressions extract each distinct
+ * field/sub-expression once per record.
+ */
 @Getter
 @Setter
 @Accessors(fluent = true)
-public abstract class Expression<T> extends Vertex {
-    private final DataType.BasicDataType<T> dataType;
+public abstract class Expression<E, T> extends ValueDefinition<E, T> {
+    @Setter(AccessLevel.NONE)
+    @Getter(AccessLevel.NONE)
+    private final List<ValueDefinition<E, ?>> operands = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Object columnKey;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile CompiledValue compiled;
 
-    public Expression(@NonNull DataType.BasicDataType<T> dataType) {
-        this.dataType = dataType;
+    public Expression(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType) {
+        super(query, ValueType.Expression, dataType);
     }
 
-    public abstract T evaluate(@NonNull Object value) throws ValidationException;
+    public Expression<E, T> operand(@NonNull ValueDefinition<E, ?> operand) {
+        checkMutable();
+        operands.add(operand);
+        return this;
+    }
+
+    public List<ValueDefinition<E, ?>> operands() {
+        return Collections.unmodifiableList(operands);
+    }
+
+    void operand(int index, @NonNull ValueDefinition<E, ?> operand) {
+        operands.set(index, operand);
+    }
+
+    /**
+     * Operator used to print the expression.
+     *
+     * @return - Operator
+     */
+    protected abstract String operation();
+
+    /**
+     * Compute the value from the operand values (in operand order).
+     *
+     * @param values - Operand values
+     * @return - Computed value
+     * @throws EvaluationException
+     */
+    public abstract T apply(@NonNull Object[] values) throws EvaluationException;
+
+    /**
+     * Compute the value from two operand values. Binary expressions override this
+     * to avoid the operand array.
+     *
+     * @param left  - First operand value
+     * @param right - Second operand value
+     * @return - Computed value
+     * @throws EvaluationException
+     */
+    public T apply(Object left, Object right) throws EvaluationException {
+        return apply(new Object[]{left, right});
+    }
+
+    public void validate() throws ValidationException {
+        if (prepared()) return;
+        if (operands.isEmpty()) {
+            throw new ValidationException(String.format("Expression operands not set. [operation=%s]", operation()));
+        }
+        for (ValueDefinition<E, ?> operand : operands) {
+            if (operand instanceof Expression) {
+                ((Expression<E, ?>) operand).validate();
+            }
+        }
+    }
+
+    /**
+     * Validate, fold constant operand sub-trees and share repeated operands.
+     *
+     * @throws ValidationException
+     */
+    @Override
+    public void prepare() throws ValidationException {
+        if (prepared()) return;
+        try {
+            validate();
+            ExpressionPlanner.plan(this);
+            for (ValueDefinition<E, ?> operand : operands) {
+                operand.prepare();
+            }
+            compiled = ExpressionPlanner.compile(this);
+            super.prepare();
+        } catch (ValidationException ve) {
+            error(ve);
+            throw ve;
+        }
+    }
+
+    @Override
+    public Object evaluate(@NonNull Object data) throws EvaluationException {
+        if (compiled != null) {
+            return compiled.get(data);
+        }
+        Object[] values = new Object[operands.size()];
+        for (int ii = 0; ii < values.length; ii++) {
+            values[ii] = operands.get(ii).evaluate(data);
+        }
+        return apply(values);
+    }
+
+    @Override
+    public CompiledValue compile() throws ValidationException {
+        if (compiled != null) {
+            return compiled;
+        }
+        validate();
+        return ExpressionPlanner.compile(this);
+    }
+
+    @Override
+    public double cost() {
+        double cost = 1;
+        for (ValueDefinition<E, ?> operand : operands) {
+            cost += operand.cost();
+        }
+        return cost;
+    }
+
+    /**
+     * Structural key, expressions over the same operands share extracted columns.
+     * Cached once prepared, as the operands are not modified after planning.
+     */
+    @Override
+    public Object columnKey() {
+        if (!prepared()) {
+            return ExpressionPlanner.key(this);
+        }
+        if (columnKey == null) {
+            columnKey = ExpressionPlanner.key(this);
+        }
+        return columnKey;
+    }
+
+    @Override
+    public String printString() {
+        StringBuilder buffer = new StringBuilder("(");
+        for (int ii = 0; ii < operands.size(); ii++) {
+            if (ii > 0) {
+                buffer.append(' ').append(operation()).append(' ');
+            }
+            buffer.append(operands.get(ii).printString());
+        }
+        return buffer.append(')').toString();
+    }
+
+    /**
+     * Parse the operands from the print format "(operand OP operand ...)". Operands are
+     * fields (`field:path`), parameters (`param:name`), nested expressions (see nested())
+     * or constant values of the expression data type.
+     *
+     * @param input - Expression string
+     * @throws ValidationException
+     */
+    @Override
+    public void parse(@NonNull String input) throws ValidationException {
+        checkMutable();
+        if (!operands.isEmpty()) {
+            throw new ValidationException(String.format("Expression operands already set. [string=%s]", input));
+        }
+        for (String part : split(input, operation())) {
+            operands.add(parseOperand(part));
+        }
+    }
+
+    /**
+     * Parse a nested expression operand, expressions that support nesting override this.
+     *
+     * @param input - Nested expression string
+     * @return - Parsed expression
+     * @throws ValidationException
+     */
+    protected ValueDefinition<E, ?> nested(@NonNull String input) throws ValidationException {
+        throw new ValidationException(String.format("Nested expression not supported. [operation=%s][string=%s]",
+                operation(), input));
+    }
+
+    private ValueDefinition<E, ?> parseOperand(String input) throws ValidationException {
+        if (input.startsWith("(")) {
+            return nested(input);
+        } else if (input.length() > 1 && input.startsWith("`") && input.endsWith("`")) {
+            String reference = input.substring(1, input.length() - 1);
+            String[] parts = reference.split(":", 2);
+            if (parts.length == 2 && parts[0].trim().equalsIgnoreCase(Field.__NAME)) {
+                Field<E, T> field = new Field<>(query(), query().type(), dataType());
+                field.parse(reference);
+                return field;
+            } else if (parts.length == 2 && parts[0].trim().equalsIgnoreCase(Parameter.__NAME)) {
+                return new Parameter<>(query(), dataType(), parts[1].trim());
+            }
+            throw new ValidationException(String.format("Invalid operand reference. [string=%s]", input));
+        }
+        Constant<E, T> constant = new Constant<>(query(), dataType());
+        constant.parse(input);
+        return constant;
+    }
+
+    /**
+     * Split the print format into the top-level operands, separators in nested
+     * expressions and references are skipped.
+     *
+     * @param input     - Expression string
+     * @param operation - Operator
+     * @return - Operand strings
+     * @throws ValidationException - If the string is not enclosed in parentheses or an operand is empty
+     */
+    static List<String> split(@NonNull String input, @NonNull String operation) throws ValidationException {
+        String value = input.trim();
+        if (value.length() < 2 || value.charAt(0) != '(' || value.charAt(value.length() - 1) != ')') {
+            throw new ValidationException(String.format("Invalid Expression string. [string=%s]", input));
+        }
+        value = value.substring(1, value.length() - 1);
+        String separator = " " + operation + " ";
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        boolean quoted = false;
+        int start = 0;
+        for (int ii = 0; ii < value.length(); ii++) {
+            char c = value.charAt(ii);
+            if (c == '`') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')') {
+                depth--;
+            } else if (!quoted && depth == 0 && value.startsWith(separator, ii)) {
+                parts.add(value.substring(start, ii).trim());
+                ii += separator.length() - 1;
+                start = ii + 1;
+            }
+        }
+        parts.add(value.substring(start).trim());
+        for (String part : parts) {
+            if (part.isEmpty()) {
+                throw new ValidationException(String.format("Invalid Expression string: empty operand. [string=%s]", input));
+            }
+        }
+        return parts;
+    }
 }
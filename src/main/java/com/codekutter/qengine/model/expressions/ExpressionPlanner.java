@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.expressions;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.CompiledValue;
+import com.codekutter.qengine.model.values.Constant;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import lombok.NonNull;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepare time planning of expression trees:
+ * <p>
+ * - Constant sub-trees are evaluated once and replaced by a constant.
+ * - Operands with the same structural key (fields with the same path, equal
+ * sub-expressions) are replaced by a single shared instance.
+ * - Compiled expressions evaluate the distinct operands of the tree in dependency
+ * order, so each field path/sub-expression is extracted once per record.
+ */
+public final class ExpressionPlanner {
+    private ExpressionPlanner() {
+    }
+
+    /**
+     * Fold constant operand sub-trees and share repeated operands of the expression.
+     *
+     * @param expression - Expression to plan
+     * @throws ValidationException
+     */
+    public static <E> void plan(@NonNull Expression<E, ?> expression) throws ValidationException {
+        plan(expression, new HashMap<>());
+    }
+
+    private static <E> void plan(Expression<E, ?> expression,
+                                 Map<Object, ValueDefinition<E, ?>> shared) throws ValidationException {
+        List<ValueDefinition<E, ?>> operands = expression.operands();
+        for (int ii = 0; ii < operands.size(); ii++) {
+            ValueDefinition<E, ?> operand = operands.get(ii);
+            ValueDefinition<E, ?> planned = operand;
+            if (operand instanceof Expression && !operand.prepared()) {
+                Expression<E, ?> child = (Expression<E, ?>) operand;
+                plan(child, shared);
+                if (constant(child)) {
+                    planned = fold(child);
+                }
+            }
+            ValueDefinition<E, ?> current = shared.putIfAbsent(key(planned), planned);
+            if (current != null) {
+                planned = current;
+            }
+            if (planned != operand) {
+                expression.operand(ii, planned);
+            }
+        }
+    }
+
+    private static boolean constant(Expression<?, ?> expression) {
+        for (ValueDefinition<?, ?> operand : expression.operands()) {
+            if (!(operand instanceof Constant)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <E, T> Constant<E, T> fold(Expression<E, T> expression) throws ValidationException {
+        List<ValueDefinition<E, ?>> operands = expression.operands();
+        Object[] values = new Object[operands.size()];
+        try {
+            for (int ii = 0; ii < values.length; ii++) {
+                values[ii] = ((Constant<E, ?>) operands.get(ii)).getTypedValue();
+            }
+            return new Constant<>(expression.query(), expression.dataType()).typedValue(expression.apply(values));
+        } catch (ParseException | EvaluationException ex) {
+            throw new ValidationException(String.format("Error folding constant expression. [expression=%s]", expression.printString()), ex);
+        }
+    }
+
+    /**
+     * Structural key of the value. Constants are keyed by type and value, expressions
+     * by operation and operand keys. Values without a structural key (and expressions
+     * over them) are keyed by identity.
+     *
+     * @param value - Value Definition
+     * @return - Key
+     */
+    public static Object key(@NonNull ValueDefinition<?, ?> value) {
+        if (value instanceof Constant) {
+            return String.format("const(%s:%s)", value.dataType().name(), ((Constant<?, ?>) value).value());
+        } else if (value instanceof Expression) {
+            Expression<?, ?> expression = (Expression<?, ?>) value;
+            StringBuilder buffer = new StringBuilder(expression.operation())
+                    .append('[').append(expression.dataType().name()).append("](");
+            List<? extends ValueDefinition<?, ?>> operands = expression.operands();
+            for (int ii = 0; ii < operands.size(); ii++) {
+                Object key = operands.get(ii).columnKey();
+                if (!(key instanceof String)) {
+                    return value;
+                }
+                if (ii > 0) {
+                    buffer.append(',');
+                }
+                buffer.append(key);
+            }
+            return buffer.append(')').toString();
+        }
+        return value.columnKey();
+    }
+
+    /**
+     * Compile the expression tree into an evaluation over its distinct values.
+     *
+     * @param expression - Root expression
+     * @return - Compiled Value
+     * @throws ValidationException
+     */
+    public static CompiledValue compile(@NonNull Expression<?, ?> expression) throws ValidationException {
+        List<Node> nodes = new ArrayList<>();
+        add(expression, nodes, new HashMap<>());
+        final Node[] plan = nodes.toArray(new Node[0]);
+        return data -> {
+            Object[] slots = new Object[plan.length];
+            for (int ii = 0; ii < plan.length; ii++) {
+                slots[ii] = plan[ii].get(data, slots);
+            }
+            return slots[plan.length - 1];
+        };
+    }
+
+    private static int add(ValueDefinition<?, ?> value, List<Node> nodes, Map<Object, Integer> index) throws ValidationException {
+        Object key = (value instanceof Expression ? value.columnKey() : key(value));
+        Integer slot = index.get(key);
+        if (slot != null) {
+            return slot;
+        }
+        Node node;
+        if (value instanceof Expression) {
+            Expression<?, ?> expression = (Expression<?, ?>) value;
+            List<? extends ValueDefinition<?, ?>> operands = expression.operands();
+            int[] args = new int[operands.size()];
+            for (int ii = 0; ii < args.length; ii++) {
+                args[ii] = add(operands.get(ii), nodes, index);
+            }
+            node = new Node(expression, args, null);
+        } else {
+            node = new Node(null, null, value.compile());
+        }
+        nodes.add(node);
+        index.put(key, nodes.size() - 1);
+        return nodes.size() - 1;
+    }
+
+    private static final class Node {
+        private final Expression<?, ?> expression;
+        private final int[] args;
+        private final CompiledValue value;
+
+        private Node(Expression<?, ?> expression, int[] args, CompiledValue value) {
+            this.expression = expression;
+            this.args = args;
+            this.value = value;
+        }
+
+        private Object get(Object data, Object[] slots) throws EvaluationException {
+            if (value != null) {
+                return value.get(data);
+            }
+            if (args.length == 2) {
+                return expression.apply(slots[args[0]], slots[args[1]]);
+            }
+            Object[] values = new Object[args.length];
+            for (int ii = 0; ii < args.length; ii++) {
+                values[ii] = slots[args[ii]];
+            }
+            return expression.apply(values);
+        }
+    }
+}
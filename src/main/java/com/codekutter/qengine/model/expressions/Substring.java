@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.expressions;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.OperationException;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Sub-string of the (single) operand value, NULL operand values evaluate to NULL.
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public class Substring<E> extends Expression<E, String> {
+    public static final String __NAME = "substring";
+
+    @Setter(AccessLevel.NONE)
+    private int position = 0;
+    @Setter(AccessLevel.NONE)
+    private int length = 0;
+
+    public Substring(@NonNull Query<E> query) {
+        super(query, new DataType.DtString());
+    }
+
+    @Override
+    public Substring<E> operand(@NonNull ValueDefinition<E, ?> operand) {
+        super.operand(operand);
+        return this;
+    }
+
+    public Substring<E> position(int position) {
+        checkMutable();
+        this.position = position;
+        return this;
+    }
+
+    public Substring<E> length(int length) {
+        checkMutable();
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    protected String operation() {
+        return String.format("%s[%d,%d]", __NAME, position, length);
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (prepared()) return;
+        super.validate();
+        if (operands().size() != 1) {
+            throw new ValidationException(String.format("Invalid number of operands. [operation=%s][count=%d]", __NAME, operands().size()));
+        }
+        if (position < 0 || length < 0) {
+            throw new ValidationException(String.format("Invalid range. [position=%d][length=%d]", position, length));
+        }
+    }
+
+    @Override
+    public String apply(@NonNull Object[] values) throws EvaluationException {
+        if (values[0] == null) {
+            return null;
+        }
+        try {
+            return ((DataType.DtString) dataType()).substring(String.valueOf(values[0]), position, length);
+        } catch (OperationException | RuntimeException ex) {
+            throw new EvaluationException(ex);
+        }
+    }
+
+    @Override
+    public String printString() {
+        return String.format("%s(%s, %d, %d)", __NAME, operands().get(0).printString(), position, length);
+    }
+}
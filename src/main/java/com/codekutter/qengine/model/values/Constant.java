@@ -23,10 +23,14 @@
 
 package com.codekutter.qengine.model.values;
 
+import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.CompiledValue;
 import com.codekutter.qengine.model.DataType;
 import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.utils.Reflector;
 import com.google.common.base.Strings;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -34,110 +38,249 @@ import lombok.experimental.Accessors;
 
 import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 @Getter
 @Setter
 @Accessors(fluent = true)
 public class Constant<E, T> extends ValueDefinition<E, T> {
+    @Setter(AccessLevel.NONE)
     private String value;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Typed<T> typed;
 
     public Constant(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType) {
         super(query, ValueType.Constant, dataType);
     }
 
+    public Constant<E, T> value(String value) {
+        checkMutable();
+        this.value = value;
+        this.typed = null;
+        return this;
+    }
+
+    /**
+     * Set an already typed value, used for values computed at prepare time.
+     *
+     * @param value - Typed value
+     * @return - Self
+     */
+    public Constant<E, T> typedValue(T value) {
+        checkMutable();
+        this.value = (value == null ? null : String.valueOf(value));
+        this.typed = new Typed<>(value);
+        return this;
+    }
+
+    /**
+     * Parse the value into the typed slots, subsequent reads do not parse or allocate.
+     *
+     * @throws ValidationException
+     */
+    @Override
+    public void prepare() throws ValidationException {
+        if (prepared()) return;
+        try {
+            typed();
+            super.prepare();
+        } catch (ParseException | RuntimeException ex) {
+            ValidationException ve = new ValidationException(
+                    String.format("Invalid constant value. [type=%s][value=%s]", dataType().name(), value), ex);
+            error(ve);
+            throw ve;
+        }
+    }
+
+    public boolean isNull() throws ParseException {
+        return typed().value == null;
+    }
+
     public boolean getBooleanValue() throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
+        Typed<T> t = typed();
+        if (t.value instanceof Boolean) {
+            return (Boolean) t.value;
         }
+        checkValue();
         return Boolean.parseBoolean(value);
     }
 
-    public short getShortValue() throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
+    public short getShortValue() throws ParseException, ValidationException {
+        Typed<T> t = typed();
+        if (t.integral) {
+            if (t.longValue < Short.MIN_VALUE || t.longValue > Short.MAX_VALUE) {
+                throw new ValidationException(String.format("Value out of range for short. [value=%d]", t.longValue));
+            }
+            return (short) t.longValue;
         }
+        checkValue();
         return Short.parseShort(value);
     }
 
-    public int getIntegerValue() throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
+    public int getIntegerValue() throws ParseException, ValidationException {
+        Typed<T> t = typed();
+        if (t.integral) {
+            try {
+                return Math.toIntExact(t.longValue);
+            } catch (ArithmeticException ex) {
+                throw new ValidationException(String.format("Value out of range for integer. [value=%d]", t.longValue), ex);
+            }
         }
+        checkValue();
         return Integer.parseInt(value);
     }
 
     public long getLongValue() throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
+        Typed<T> t = typed();
+        if (t.integral) {
+            return t.longValue;
         }
+        checkValue();
         return Long.parseLong(value);
     }
 
     public float getFloatValue() throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
+        Typed<T> t = typed();
+        if (t.numeric) {
+            return (float) t.doubleValue;
         }
+        checkValue();
         return Float.parseFloat(value);
     }
 
     public double getDoubleValue() throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
+        Typed<T> t = typed();
+        if (t.numeric) {
+            return t.doubleValue;
         }
+        checkValue();
         return Double.parseDouble(value);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     public Object getEnumValue() throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
-        }
+        checkValue();
         if (!(dataType() instanceof DataType.DtEnum)) {
             throw new ParseException(String.format("Invalid DataType. [type=%s]", dataType().name()), 0);
         }
+        Typed<T> t = typed();
+        if (t.value instanceof Enum) {
+            return t.value;
+        }
         Class<Enum> et = (Class<Enum>) ((DataType.DtEnum) dataType()).type();
         return Enum.valueOf(et, value);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     public Object getEnumValue(@NonNull Class<?> type) throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
+        checkValue();
+        Typed<T> t = typed();
+        if (type.isInstance(t.value)) {
+            return t.value;
         }
         Class<Enum> et = (Class<Enum>) type;
         return Enum.valueOf(et, value);
     }
 
     public Date getDateValue() throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
-        }
-        DateFormat fmt = new SimpleDateFormat();
-        return fmt.parse(value);
+        return new Date(getEpochMillis());
     }
 
     public Date getDateValue(@NonNull String format) throws ParseException {
-        if (Strings.isNullOrEmpty(value)) {
-            throw new ParseException("Value is NULL/Empty.", 0);
-        }
-        DateFormat fmt = new SimpleDateFormat(format);
+        checkValue();
+        DateFormat fmt = Reflector.dateFormat(format);
         return fmt.parse(value);
     }
 
+    /**
+     * Get the date value as milliseconds since epoch (parsed once).
+     *
+     * @return - Epoch milliseconds
+     * @throws ParseException
+     */
+    public long getEpochMillis() throws ParseException {
+        Typed<T> t = typed();
+        if (t.temporal) {
+            return t.epochMillis;
+        }
+        checkValue();
+        return Reflector.dateFormat().parse(value).getTime();
+    }
+
     public long getTimestampValue() throws ParseException {
         return getLongValue();
     }
 
+    public T getTypedValue() throws ParseException {
+        return typed().value;
+    }
+
+    private void checkValue() throws ParseException {
+        if (Strings.isNullOrEmpty(value)) {
+            throw new ParseException("Value is NULL/Empty.", 0);
+        }
+    }
+
+    private Typed<T> typed() throws ParseException {
+        Typed<T> t = typed;
+        if (t == null) {
+            t = new Typed<>(Strings.isNullOrEmpty(value) ? null : dataType().fromString(value));
+            typed = t;
+        }
+        return t;
+    }
+
     @Override
-    public String printString() {
+    public Object evaluate(@NonNull Object data) throws EvaluationException {
+        try {
+            return getTypedValue();
+        } catch (ParseException e) {
+            throw new EvaluationException(e);
+        }
+    }
 
-        return null;
+    @Override
+    public CompiledValue compile() throws ValidationException {
+        try {
+            final T tv = getTypedValue();
+            return data -> tv;
+        } catch (ParseException e) {
+            throw new ValidationException(String.format("Invalid constant value. [type=%s][value=%s]", dataType().name(), value), e);
+        }
+    }
+
+    @Override
+    public String printString() {
+        return value;
     }
 
     @Override
     public void parse(@NonNull String input) throws ValidationException {
+        value(input.trim());
+    }
+
+    /**
+     * Parsed value with primitive slots for numeric and temporal values.
+     */
+    private static final class Typed<T> {
+        private final T value;
+        private final boolean numeric;
+        private final boolean integral;
+        private final boolean temporal;
+        private final long longValue;
+        private final double doubleValue;
+        private final long epochMillis;
 
+        private Typed(T value) {
+            this.value = value;
+            this.numeric = (value instanceof Number);
+            this.integral = (value instanceof Long || value instanceof Integer
+                    || value instanceof Short || value instanceof Byte);
+            this.temporal = (value instanceof Date);
+            this.longValue = (numeric ? ((Number) value).longValue() : 0);
+            this.doubleValue = (numeric ? ((Number) value).doubleValue() : 0);
+            this.epochMillis = (temporal ? ((Date) value).getTime() : 0);
+        }
     }
 }
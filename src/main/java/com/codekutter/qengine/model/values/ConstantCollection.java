@@ -23,68 +23,113 @@
 
 package com.codekutter.qengine.model.values;
 
+import com.codekutter.qengine.common.ValidationException;
 import com.codekutter.qengine.model.DataType;
 import com.codekutter.qengine.model.Query;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.experimental.Accessors;
 
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @Getter
 @Accessors(fluent = true)
 public class ConstantCollection<E, T> extends ValueDefinition<E, T> {
     private List<T> values;
+    @Getter(AccessLevel.NONE)
+    private volatile ValueIndex index;
 
     public ConstantCollection(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType) {
         super(query, ValueType.Constant, dataType);
     }
 
     public ConstantCollection<E, T> add(@NonNull T value) {
+        checkMutable();
         if (values == null) {
             values = new ArrayList<>();
         }
         values.add(value);
+        index = null;
 
         return this;
     }
 
-    public ConstantCollection<T> addAll(@NonNull Collection<T> source) {
+    public ConstantCollection<E, T> addAll(@NonNull Collection<T> source) {
+        checkMutable();
         if (!source.isEmpty()) {
             if (values == null) {
                 values = new ArrayList<>(source.size());
             }
             values.addAll(source);
+            index = null;
         }
         return this;
     }
 
+    /**
+     * Build the membership index, the index type is selected based on the data type.
+     *
+     * @throws ValidationException
+     */
+    @Override
+    public void prepare() throws ValidationException {
+        if (prepared()) return;
+        index();
+        super.prepare();
+    }
+
     public boolean isEmpty() {
         return (values == null || values.isEmpty());
     }
 
-    public boolean contains(@NonNull T value) {
-        if (values != null) {
-            return values.contains(value);
+    /**
+     * Get the membership index for the values, built on first use if not prepared.
+     *
+     * @return - Value Index
+     */
+    public ValueIndex index() {
+        ValueIndex idx = index;
+        if (idx == null) {
+            idx = ValueIndex.create(dataType(), (values == null ? Collections.emptyList() : values));
+            index = idx;
         }
-        return false;
+        return idx;
+    }
+
+    public boolean contains(@NonNull T value) {
+        return index().contains(value);
+    }
+
+    public boolean contains(long value) {
+        return index().contains(value);
+    }
+
+    public boolean contains(double value) {
+        return index().contains(value);
     }
 
     public boolean contains(@NonNull T[] values) {
+        ValueIndex idx = index();
         boolean ret = false;
         for (T value : values) {
-            ret = contains(value);
+            ret = idx.contains(value);
             if (!ret) break;
         }
         return ret;
     }
 
     public boolean contains(@NonNull Collection<T> values) {
+        ValueIndex idx = index();
         boolean ret = false;
         for (T value : values) {
-            ret = contains(value);
+            ret = idx.contains(value);
             if (!ret) break;
         }
         return ret;
@@ -98,4 +143,36 @@ public class ConstantCollection<E, T> extends ValueDefinition<E, T> {
         }
         return null;
     }
+
+    @Override
+    public String printString() {
+        StringBuilder builder = new StringBuilder("(");
+        if (values != null) {
+            for (int ii = 0; ii < values.size(); ii++) {
+                if (ii > 0) builder.append(", ");
+                builder.append(values.get(ii));
+            }
+        }
+        return builder.append(")").toString();
+    }
+
+    @Override
+    public void parse(@NonNull String input) throws ValidationException {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(input));
+        input = input.trim();
+        if (!input.startsWith("(") || !input.endsWith(")")) {
+            throw new ValidationException(String.format("Invalid Constant Collection string. [string=%s]", input));
+        }
+        String[] parts = input.substring(1, input.length() - 1).split(",");
+        try {
+            for (String part : parts) {
+                part = part.trim();
+                if (!Strings.isNullOrEmpty(part)) {
+                    add(dataType().fromString(part));
+                }
+            }
+        } catch (ParseException ex) {
+            throw new ValidationException(String.format("Invalid Constant Collection value. [string=%s]", input), ex);
+        }
+    }
 }
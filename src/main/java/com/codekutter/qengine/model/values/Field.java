@@ -23,7 +23,11 @@
 
 package com.codekutter.qengine.model.values;
 
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.QueryCacheManager;
 import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.ClassIndex;
+import com.codekutter.qengine.model.CompiledValue;
 import com.codekutter.qengine.model.DataType;
 import com.codekutter.qengine.model.Query;
 import com.google.common.base.Preconditions;
@@ -42,6 +46,9 @@ public class Field<E, T> extends ValueDefinition<E, T> {
     private final Class<?> entityType;
     @Setter(AccessLevel.NONE)
     private FieldPath path;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String columnKey;
 
     public Field(@NonNull Query<E> query,  @NonNull Class<?> entityType, @NonNull DataType.BasicDataType<T> dataType) {
         super(query, ValueType.Field, dataType);
@@ -49,15 +56,67 @@ public class Field<E, T> extends ValueDefinition<E, T> {
     }
 
     public Field<E, T> withPath(@NonNull String path) throws IllegalArgumentException {
+        checkMutable();
         this.path = new FieldPath();
         this.path.withPath(path, entityType);
+        // Fields on the same path read as different types are distinct values.
+        this.columnKey = String.format("%s:%s:%s", entityType.getName(), this.path.getPath(), dataType().name());
+
+        return this;
+    }
+
+    @Override
+    public Object evaluate(@NonNull Object data) throws EvaluationException {
+        try {
+            if (path == null) {
+                throw new ValidationException("Field path not set.");
+            }
+            ClassIndex<?> index = QueryCacheManager.get().getClassIndex(entityType);
+            return index.getFieldValue(data, path);
+        } catch (Exception ex) {
+            throw new EvaluationException(ex);
+        }
+    }
 
+    @Override
+    public CompiledValue compile() throws ValidationException {
+        if (path == null) {
+            throw new ValidationException("Field path not set.");
+        }
+        final FieldAccessor accessor;
+        try {
+            accessor = path.accessor(QueryCacheManager.get().getClassIndex(entityType));
+        } catch (IllegalArgumentException ex) {
+            throw new ValidationException(String.format("Error resolving field path. [path=%s]", path.getPath()), ex);
+        }
+        return data -> {
+            try {
+                return accessor.get(data);
+            } catch (RuntimeException ex) {
+                throw new EvaluationException(ex);
+            }
+        };
+    }
+
+    @Override
+    public double cost() {
+        if (path != null && path.getNodes() != null) {
+            return path.getNodes().length;
+        }
+        return 1;
+    }
+
+    @Override
+    public Object columnKey() {
+        if (columnKey != null) {
+            return columnKey;
+        }
         return this;
     }
 
     @Override
     public String printString() {
-        return String.format("`%s:%s`", __NAME, path);
+        return String.format("`%s:%s`", __NAME, (path != null ? path.getPath() : null));
     }
 
     @Override
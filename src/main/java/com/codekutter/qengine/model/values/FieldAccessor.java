@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.values;
+
+import com.codekutter.qengine.model.ClassIndex;
+import com.codekutter.qengine.utils.Reflector;
+import com.google.common.base.Preconditions;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Field path resolved against a class index: each path node is bound to its
+ * getter and any collection index/map key is parsed to its typed value, so
+ * extraction is a loop over the steps.
+ */
+@Getter
+@Accessors(fluent = true)
+public class FieldAccessor {
+    private final ClassIndex<?> index;
+    private final FieldPath path;
+    private final Step[] steps;
+
+    private FieldAccessor(ClassIndex<?> index, FieldPath path, Step[] steps) {
+        this.index = index;
+        this.path = path;
+        this.steps = steps;
+    }
+
+    /**
+     * Get the value of the field path from the source object.
+     *
+     * @param source - Source object.
+     * @return - Field value, NULL if any node in the path is NULL.
+     */
+    public Object get(@NonNull Object source) {
+        Object value = source;
+        for (Step step : steps) {
+            value = step.next(value);
+            if (value == null) break;
+        }
+        return value;
+    }
+
+    /**
+     * Get the object the leaf getter is to be applied on. Used with the
+     * primitive accessors of the leaf field.
+     *
+     * @param source - Source object.
+     * @return - Parent object, NULL if any node in the path is NULL.
+     */
+    public Object getParent(@NonNull Object source) {
+        Object value = source;
+        for (int ii = 0; ii < steps.length - 1; ii++) {
+            value = steps[ii].next(value);
+            if (value == null) break;
+        }
+        return value;
+    }
+
+    /**
+     * Get the leaf field if it's read directly (not a collection element).
+     *
+     * @return - Leaf field or NULL.
+     */
+    public ClassIndex.IndexedField leaf() {
+        Step last = steps[steps.length - 1];
+        if (last.type == StepType.Getter) {
+            return last.field;
+        }
+        return null;
+    }
+
+    public static FieldAccessor compile(@NonNull ClassIndex<?> index, @NonNull FieldPath path) throws IllegalArgumentException {
+        FieldPath.PathNode[] nodes = path.getNodes();
+        Preconditions.checkArgument(nodes != null && nodes.length > 0);
+        Step[] steps = new Step[nodes.length];
+        String journey = null;
+        for (int ii = 0; ii < nodes.length; ii++) {
+            FieldPath.PathNode pn = nodes[ii];
+            if (journey == null) {
+                journey = pn.name();
+            } else {
+                journey = String.format("%s/%s", journey, pn.name());
+            }
+            ClassIndex.IndexedField ff = index.find(journey);
+            if (ff == null) {
+                throw new IllegalArgumentException(String.format("Specified field path not found. [type=%s][path=%s]", index.type().getCanonicalName(), journey));
+            }
+            steps[ii] = step(ff, pn, path, ii == nodes.length - 1);
+        }
+        return new FieldAccessor(index, path, steps);
+    }
+
+    private static Step step(ClassIndex.IndexedField ff, FieldPath.PathNode pn, FieldPath path, boolean last) {
+        Class<?> ft = ff.field().getType();
+        boolean list = Reflector.implementsInterface(List.class, ft);
+        boolean map = Reflector.implementsInterface(Map.class, ft);
+        if (pn instanceof FieldPath.CollectionPathNode) {
+            String key = ((FieldPath.CollectionPathNode) pn).key();
+            if (list) {
+                try {
+                    return new Step(ff, StepType.ListIndex, Integer.parseInt(key), null);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(String.format("Invalid list index. [path=%s][node=%s][key=%s]", path.getPath(), pn.name(), key), e);
+                }
+            } else if (map) {
+                Class<?> kt = Reflector.getGenericMapKeyType(ff.field());
+                try {
+                    Object kv = Reflector.parseValue(kt, key);
+                    if (kv == null) {
+                        throw new IllegalArgumentException(String.format("Invalid map key. [path=%s][node=%s][key=%s]", path.getPath(), pn.name(), key));
+                    }
+                    return new Step(ff, StepType.MapKey, -1, kv);
+                } catch (ParseException e) {
+                    throw new IllegalArgumentException(String.format("Invalid map key. [path=%s][node=%s][key=%s]", path.getPath(), pn.name(), key), e);
+                }
+            }
+            throw new IllegalArgumentException(String.format("Type mismatch. [path=%s][node=%s][field type=%s]", path.getPath(), pn.name(), ft.getCanonicalName()));
+        } else if (!last && (list || map)) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid Path node. [expected collection path node.][path=%s][node=%s]",
+                            path.getPath(), pn.name()));
+        }
+        return new Step(ff, StepType.Getter, -1, null);
+    }
+
+    private enum StepType {
+        Getter,
+        ListIndex,
+        MapKey
+    }
+
+    private static final class Step {
+        private final ClassIndex.IndexedField field;
+        private final Function<Object, Object> getter;
+        private final StepType type;
+        private final int index;
+        private final Object key;
+
+        private Step(ClassIndex.IndexedField field, StepType type, int index, Object key) {
+            this.field = field;
+            this.getter = field.accessor();
+            this.type = type;
+            this.index = index;
+            this.key = key;
+        }
+
+        @SuppressWarnings("rawtypes")
+        private Object next(Object source) {
+            Object value = getter.apply(source);
+            if (value == null) return null;
+            switch (type) {
+                case ListIndex:
+                    List list = (List) value;
+                    return (index < list.size() ? list.get(index) : null);
+                case MapKey:
+                    return ((Map) value).get(key);
+                default:
+                    return value;
+            }
+        }
+    }
+}
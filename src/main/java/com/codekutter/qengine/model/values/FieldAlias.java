@@ -26,6 +26,7 @@ package com.codekutter.qengine.model.values;
 import com.codekutter.qengine.common.ValidationException;
 import com.codekutter.qengine.model.DataType;
 import com.codekutter.qengine.model.Query;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -36,12 +37,19 @@ import lombok.experimental.Accessors;
 @Accessors(fluent = true)
 public class FieldAlias<E, T> extends Field<E, T> {
     public static final String __NAME = "alias";
+    @Setter(AccessLevel.NONE)
     private String name;
 
     public FieldAlias(@NonNull Query<E> query, @NonNull Class<?> entityType, DataType.@NonNull BasicDataType<T> dataType) {
         super(query, entityType, dataType);
     }
 
+    public FieldAlias<E, T> name(String name) {
+        checkMutable();
+        this.name = name;
+        return this;
+    }
+
     @Override
     public String printString() {
         return String.format("%s:%s", __NAME, name);
@@ -27,6 +27,7 @@ import com.codekutter.qengine.model.ClassIndex;
 import com.codekutter.qengine.utils.Reflector;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -42,6 +43,9 @@ public class FieldPath {
     private static final Pattern PARAM_PATTERN = Pattern.compile(PARAM_REGEX);
     private String path;
     private PathNode[] nodes;
+    private String indexPath;
+    @Getter(AccessLevel.NONE)
+    private volatile FieldAccessor accessor;
 
     public FieldPath withPath(@NonNull String path, @NonNull Class<?> type) throws IllegalArgumentException {
         Preconditions.checkArgument(!Strings.isNullOrEmpty(path));
@@ -64,6 +68,8 @@ public class FieldPath {
             nodes[ii] = pn;
         }
         this.path = path;
+        this.indexPath = journey.replace('.', '/');
+        this.accessor = null;
         return this;
     }
 
@@ -88,9 +94,28 @@ public class FieldPath {
             nodes[ii] = pn;
         }
         this.path = path;
+        this.indexPath = journey;
+        this.accessor = FieldAccessor.compile(index, this);
         return this;
     }
 
+    /**
+     * Get the accessor chain for this path resolved against the class index.
+     * The accessor is compiled once and reused for subsequent calls.
+     *
+     * @param index - Class Index to resolve against.
+     * @return - Field Accessor.
+     * @throws IllegalArgumentException
+     */
+    public FieldAccessor accessor(@NonNull ClassIndex<?> index) throws IllegalArgumentException {
+        FieldAccessor fa = accessor;
+        if (fa == null || fa.index() != index) {
+            fa = FieldAccessor.compile(index, this);
+            accessor = fa;
+        }
+        return fa;
+    }
+
     private PathNode parse(String name) throws IllegalArgumentException {
         name = name.trim();
         Matcher matcher = PARAM_PATTERN.matcher(name);
@@ -23,16 +23,21 @@
 
 package com.codekutter.qengine.model.values;
 
+import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.CompiledValue;
 import com.codekutter.qengine.model.DataType;
 import com.codekutter.qengine.model.Query;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.text.ParseException;
+
 @Getter
 @Setter
 @Accessors(fluent = true)
@@ -40,6 +45,7 @@ public class Parameter<E, T> extends ValueDefinition<E, T> {
     public static final String __NAME = "param";
 
     private final String name;
+    @Setter(AccessLevel.NONE)
     private boolean dynamic = true;
 
     public Parameter(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType, @NonNull String name) {
@@ -48,6 +54,39 @@ public class Parameter<E, T> extends ValueDefinition<E, T> {
         this.name = name;
     }
 
+    public Parameter<E, T> dynamic(boolean dynamic) {
+        checkMutable();
+        this.dynamic = dynamic;
+        return this;
+    }
+
+    @Override
+    public Object evaluate(@NonNull Object data) throws EvaluationException {
+        String value = query().getParameter(name);
+        if (Strings.isNullOrEmpty(value)) {
+            return null;
+        }
+        try {
+            return dataType().fromString(value);
+        } catch (ParseException e) {
+            throw new EvaluationException(e);
+        }
+    }
+
+    @Override
+    public CompiledValue compile() throws ValidationException {
+        if (dynamic) {
+            return this::evaluate;
+        }
+        String value = query().getParameter(name);
+        try {
+            final T tv = (Strings.isNullOrEmpty(value) ? null : dataType().fromString(value));
+            return data -> tv;
+        } catch (ParseException e) {
+            throw new ValidationException(String.format("Invalid parameter value. [name=%s][value=%s]", name, value), e);
+        }
+    }
+
     @Override
     public String printString() {
         return String.format("`%s:%s`", __NAME, name);
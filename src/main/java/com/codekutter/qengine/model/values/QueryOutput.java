@@ -24,21 +24,180 @@
 package com.codekutter.qengine.model.values;
 
 import com.codekutter.qengine.common.ConnectionManager;
+import com.codekutter.qengine.common.DataStoreException;
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.QueryCacheManager;
+import com.codekutter.qengine.common.QueryDataLoader;
+import com.codekutter.qengine.common.ValidationException;
 import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.utils.LogUtils;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Values returned by a subquery executed on a data store connection. Results are memoized
+ * (see QueryCacheManager) per query and bound parameter values, records binding the
+ * same parameter values share a single execution.
+ */
 @Getter
 @Setter
 @Accessors(fluent = true)
-public class QueryOutput<T> extends ValueDefinition<T> {
-    private String query;
+public class QueryOutput<E, T> extends ValueDefinition<E, T> {
+    public static final String __NAME = "query";
+
+    @Setter(AccessLevel.NONE)
+    private String queryString;
+    @Setter(AccessLevel.NONE)
     private String connection;
+    @Setter(AccessLevel.NONE)
     private ConnectionManager.ConnectionTypes connectionType = ConnectionManager.ConnectionTypes.Hibernate;
+    @Setter(AccessLevel.NONE)
+    private final List<ValueDefinition<E, ?>> params = new ArrayList<>();
+
+    public QueryOutput(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType) {
+        super(query, ValueType.Query, dataType);
+    }
+
+    public QueryOutput<E, T> queryString(String queryString) {
+        checkMutable();
+        this.queryString = queryString;
+        return this;
+    }
+
+    public QueryOutput<E, T> connection(String connection) {
+        checkMutable();
+        this.connection = connection;
+        return this;
+    }
+
+    public QueryOutput<E, T> connectionType(ConnectionManager.ConnectionTypes connectionType) {
+        checkMutable();
+        this.connectionType = connectionType;
+        return this;
+    }
+
+    /**
+     * Add a query parameter, bound (in order) to the value evaluated for the record.
+     *
+     * @param param - Parameter value
+     * @return - Self
+     */
+    public QueryOutput<E, T> param(@NonNull ValueDefinition<E, ?> param) {
+        checkMutable();
+        params.add(param);
+        return this;
+    }
+
+    @Override
+    public void prepare() throws ValidationException {
+        if (prepared()) return;
+        if (Strings.isNullOrEmpty(queryString)) {
+            throw new ValidationException("Query string not set.");
+        }
+        if (Strings.isNullOrEmpty(connection) || connectionType == null) {
+            throw new ValidationException(String.format("Query connection not set. [query=%s]", queryString));
+        }
+        for (ValueDefinition<E, ?> param : params) {
+            param.prepare();
+        }
+        super.prepare();
+    }
+
+    /**
+     * Get the query results for the record.
+     */
+    @Override
+    public Object evaluate(@NonNull Object data) throws EvaluationException {
+        return result(data).values;
+    }
+
+    /**
+     * Check if the query results for the record contain the value (indexed lookup).
+     *
+     * @param data  - Record
+     * @param value - Value to check
+     * @return - Is contained?
+     * @throws EvaluationException
+     */
+    public boolean contains(@NonNull Object data, Object value) throws EvaluationException {
+        return result(data).index.contains(value);
+    }
+
+    private Result result(Object data) throws EvaluationException {
+        Object[] bound = new Object[params.size()];
+        for (int ii = 0; ii < bound.length; ii++) {
+            bound[ii] = params.get(ii).evaluate(data);
+        }
+        // Results are typed (and indexed) by the data type, queries read as different types are cached apart.
+        List<Object> key = Arrays.asList(connectionType, connection, queryString, dataType().name(), Arrays.asList(bound));
+        try {
+            return QueryCacheManager.get().getQueryResult(key, () -> load(bound));
+        } catch (DataStoreException ex) {
+            throw new EvaluationException(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C> Result load(Object[] bound) throws DataStoreException {
+        QueryDataLoader<C, T> loader = ConnectionManager.get().getDataLoader(connection, connectionType);
+        if (loader == null) {
+            throw new DataStoreException(String.format("Data Store connection not found: [name=%s][type=%s]", connection, connectionType.name()));
+        }
+        Collection<T> values;
+        try {
+            values = loader.read(queryString, dataType().getJavaType(), new ArrayList<>(Arrays.asList(bound)));
+        } finally {
+            try {
+                loader.close();
+            } catch (IOException ex) {
+                LogUtils.warn(getClass(), String.format("Error closing data loader. [name=%s]", connection));
+            }
+        }
+        if (values == null) {
+            values = Collections.emptyList();
+        }
+        return new Result(Collections.unmodifiableCollection(values), ValueIndex.create(dataType(), values));
+    }
+
+    @Override
+    public String printString() {
+        return String.format("`%s:%s`", __NAME, queryString);
+    }
+
+    @Override
+    public void parse(@NonNull String input) throws ValidationException {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(input));
+        String[] parts = input.trim().split(":", 2);
+        if (parts.length != 2 || Strings.isNullOrEmpty(parts[1].trim())) {
+            throw new ValidationException(String.format("Invalid Query string. [string=%s]", input));
+        }
+        if (parts[0].trim().compareToIgnoreCase(__NAME) != 0) {
+            throw new ValidationException(String.format("Invalid Query string: query keyword missing. [string=%s]", input));
+        }
+        checkMutable();
+        queryString = parts[1].trim();
+    }
+
+    private static final class Result {
+        private final Collection<?> values;
+        private final ValueIndex index;
 
-    public QueryOutput(@NonNull DataType.BasicDataType<T> dataType) {
-        super(ValueType.Query, dataType);
+        private Result(Collection<?> values, ValueIndex index) {
+            this.values = values;
+            this.index = index;
+        }
     }
 }
@@ -23,28 +23,39 @@
 
 package com.codekutter.qengine.model.values;
 
+import com.codekutter.qengine.common.DataStoreException;
+import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ReferenceDataManager;
 import com.codekutter.qengine.common.StateException;
+import com.codekutter.qengine.common.ValidationException;
 import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.experimental.Accessors;
 
 import java.util.Collection;
 
 @Getter
+@Setter
 @Accessors(fluent = true)
-public class ReferenceList<T> extends ValueDefinition<T> {
-    private final String name;
+public class ReferenceList<E, T> extends ValueDefinition<E, T> {
+    public static final String __NAME = "reference";
 
-    public ReferenceList(@NonNull DataType.BasicDataType<T> dataType, @NonNull String name) {
-        super(ValueType.Reference, dataType);
+    @Setter(AccessLevel.NONE)
+    private String name;
+
+    public ReferenceList(@NonNull Query<E> query, @NonNull DataType.BasicDataType<T> dataType, @NonNull String name) {
+        super(query, ValueType.Reference, dataType);
         this.name = name;
     }
 
     @SuppressWarnings("unchecked")
-    public Collection<T> getReferenceList(@NonNull Class<T> type) throws ClassCastException, StateException {
+    public Collection<T> getReferenceList(@NonNull Class<T> type) throws ClassCastException, StateException, DataStoreException {
         Preconditions.checkArgument(dataType() != null);
         DataType dt = DataType.convert(type);
         if (dt == null) {
@@ -53,6 +64,67 @@ public class ReferenceList<T> extends ValueDefinition<T> {
         if (!dataType().equals(dt)) {
             throw new ClassCastException(String.format("Expected=%s, Passed=%s", dataType().name(), dt.name()));
         }
-        return (Collection<T>) ReferenceDataManager.get();
+        return ReferenceDataManager.get().get(name);
+    }
+
+    /**
+     * Check if the reference list contains the value (indexed lookup).
+     *
+     * @param value - Value to check
+     * @return - Is contained?
+     * @throws EvaluationException
+     */
+    public boolean contains(Object value) throws EvaluationException {
+        try {
+            return ReferenceDataManager.get().contains(name, value);
+        } catch (StateException | DataStoreException ex) {
+            throw new EvaluationException(ex);
+        }
+    }
+
+    /**
+     * Get the lookup index of the reference list.
+     *
+     * @return - Value Index or NULL if the list does not exist
+     * @throws EvaluationException
+     */
+    public ValueIndex index() throws EvaluationException {
+        try {
+            return ReferenceDataManager.get().index(name);
+        } catch (StateException | DataStoreException ex) {
+            throw new EvaluationException(ex);
+        }
+    }
+
+    /**
+     * Get the values of the reference list.
+     */
+    @Override
+    public Object evaluate(@NonNull Object data) throws EvaluationException {
+        try {
+            return ReferenceDataManager.get().get(name);
+        } catch (StateException | DataStoreException ex) {
+            throw new EvaluationException(ex);
+        }
+    }
+
+    @Override
+    public String printString() {
+        return String.format("`%s:%s`", __NAME, name);
+    }
+
+    @Override
+    public void parse(@NonNull String input) throws ValidationException {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(input));
+        input = input.replaceAll("\\s*", "");
+        String[] parts = input.split(":");
+        if (parts.length != 2) {
+            throw new ValidationException(String.format("Invalid Reference string. [string=%s]", input));
+        }
+        if (Strings.isNullOrEmpty(parts[0]) || parts[0].compareToIgnoreCase(__NAME) != 0) {
+            throw new ValidationException(String.format("Invalid Reference string: reference keyword missing. [string=%s]", input));
+        }
+        checkMutable();
+        name = parts[1];
     }
 }
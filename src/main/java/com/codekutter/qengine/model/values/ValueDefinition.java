@@ -23,7 +23,9 @@
 
 package com.codekutter.qengine.model.values;
 
+import com.codekutter.qengine.common.EvaluationException;
 import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.CompiledValue;
 import com.codekutter.qengine.model.DataType;
 import com.codekutter.qengine.model.Query;
 import com.codekutter.qengine.model.Vertex;
@@ -52,8 +54,46 @@ public abstract class ValueDefinition<E, T> extends Vertex<E> {
         Parameter,
         Reference,
         Query,
-        Field
+        Field,
+        Expression
     }
 
     public abstract void parse(@NonNull String input) throws ValidationException;
+
+    /**
+     * Default cost by value type, reference and query values require lookups.
+     */
+    @Override
+    public double cost() {
+        switch (type) {
+            case Constant:
+                return 0;
+            case Parameter:
+                return 0.5;
+            case Reference:
+                return 50;
+            case Query:
+                return 100;
+            default:
+                return 1;
+        }
+    }
+
+    public Object evaluate(@NonNull Object data) throws EvaluationException {
+        throw new EvaluationException(String.format("Value evaluation not supported. [type=%s]", type.name()));
+    }
+
+    public CompiledValue compile() throws ValidationException {
+        return this::evaluate;
+    }
+
+    /**
+     * Key used to share extracted column values in a batch evaluation.
+     * Definitions reading the same value should return equal keys.
+     *
+     * @return - Column Key
+     */
+    public Object columnKey() {
+        return this;
+    }
 }
@@ -0,0 +1,653 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.values;
+
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.utils.LongHashSet;
+import com.codekutter.qengine.utils.OffHeapLongHashSet;
+import com.codekutter.qengine.utils.OffHeapStringSet;
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Membership index over a set of values. The backing structure is selected
+ * based on the data type of the values:
+ * <pre>
+ *     Short/Integer/Long    : primitive long hash set
+ *     Float/Double          : primitive long hash set (of the double bits)
+ *     Date/DateTime/Timestamp : sorted epoch milliseconds (binary search)
+ *     Others (String, Enum) : HashSet
+ * </pre>
+ * Indexes are immutable once created and safe for concurrent reads.
+ * <p>
+ * Off-heap indexes (see createOffHeap) keep the values outside the Java heap
+ * and can be used in place of the source collection.
+ */
+public abstract class ValueIndex {
+
+    public abstract int size();
+
+    /**
+     * Check if the value is contained in the index. NULL values are never contained.
+     *
+     * @param value - Value to check
+     * @return - Is contained?
+     */
+    public abstract boolean contains(Object value);
+
+    /**
+     * Get the indexed values, only supported by indexes that retain the values (off-heap).
+     *
+     * @return - Values view or NULL if not retained
+     */
+    public Collection<?> values() {
+        return null;
+    }
+
+    /**
+     * Get the buffer backing the index, only supported by off-heap indexes.
+     *
+     * @return - Read-only buffer or NULL if not off-heap
+     */
+    public ByteBuffer buffer() {
+        return null;
+    }
+
+    public boolean contains(long value) {
+        return contains((Object) value);
+    }
+
+    public boolean contains(double value) {
+        return contains((Object) value);
+    }
+
+    /**
+     * Create an index for the passed values.
+     *
+     * @param dataType - Data Type of the values
+     * @param values   - Values to index
+     * @return - Value Index
+     */
+    public static ValueIndex create(@NonNull DataType.BasicDataType<?> dataType, @NonNull Collection<?> values) {
+        if (dataType instanceof DataType.DtShort || dataType instanceof DataType.DtInteger
+                || dataType instanceof DataType.DtLong) {
+            return new LongIndex(values);
+        } else if (dataType instanceof DataType.DtFloat || dataType instanceof DataType.DtDouble) {
+            return new DoubleIndex(values);
+        } else if (dataType instanceof DataType.DtDate || dataType instanceof DataType.DtDateTime
+                || dataType instanceof DataType.DtTimestamp) {
+            return new DateIndex(values);
+        }
+        return new HashIndex(values);
+    }
+
+    /**
+     * Create an index stored outside the Java heap for the passed values. Numeric and date
+     * values are stored in a primitive hash set, strings as UTF-8. Other types are not
+     * supported off-heap and use the heap index.
+     *
+     * @param dataType - Data Type of the values
+     * @param values   - Values to index
+     * @return - Value Index
+     */
+    public static ValueIndex createOffHeap(@NonNull DataType.BasicDataType<?> dataType, @NonNull Collection<?> values) {
+        return offHeap(dataType, values, null);
+    }
+
+    /**
+     * Open an off-heap index over a buffer with the index layout (see buffer()),
+     * for example a memory mapped snapshot.
+     *
+     * @param dataType - Data Type of the values
+     * @param buffer   - Index buffer
+     * @return - Value Index
+     * @throws IllegalArgumentException - If the data type is not supported off-heap
+     */
+    public static ValueIndex wrapOffHeap(@NonNull DataType.BasicDataType<?> dataType, @NonNull ByteBuffer buffer) {
+        return offHeap(dataType, null, buffer);
+    }
+
+    /**
+     * Create a builder that indexes values off-heap as they are added, the values are
+     * not collected on the heap (for example rows streamed from a data store).
+     *
+     * @param dataType - Data Type of the values
+     * @return - Index builder or NULL if the data type is not supported off-heap
+     */
+    public static OffHeapBuilder offHeapBuilder(@NonNull DataType.BasicDataType<?> dataType) {
+        if (dataType instanceof DataType.DtString) {
+            return new OffHeapStringBuilder();
+        }
+        LongFunction<Object> decoder = decoder(dataType);
+        if (decoder != null) {
+            return new OffHeapLongBuilder(floating(dataType), decoder);
+        }
+        return null;
+    }
+
+    private static ValueIndex offHeap(DataType.BasicDataType<?> dataType, Collection<?> values, ByteBuffer buffer) {
+        if (dataType instanceof DataType.DtString) {
+            return new OffHeapStringIndex(values, buffer);
+        }
+        LongFunction<Object> decoder = decoder(dataType);
+        if (decoder != null) {
+            return new OffHeapLongIndex(values, buffer, floating(dataType), decoder);
+        }
+        if (buffer != null) {
+            throw new IllegalArgumentException(String.format("Data type not supported off-heap. [type=%s]", dataType.name()));
+        }
+        return create(dataType, values);
+    }
+
+    private static boolean floating(DataType.BasicDataType<?> dataType) {
+        return (dataType instanceof DataType.DtFloat || dataType instanceof DataType.DtDouble);
+    }
+
+    /**
+     * Get the decoder from the stored long to the typed value for types stored in a long set.
+     *
+     * @param dataType - Data Type of the values
+     * @return - Decoder or NULL if not stored as longs
+     */
+    private static LongFunction<Object> decoder(DataType.BasicDataType<?> dataType) {
+        if (dataType instanceof DataType.DtShort) {
+            return v -> (short) v;
+        } else if (dataType instanceof DataType.DtInteger) {
+            return v -> (int) v;
+        } else if (dataType instanceof DataType.DtLong) {
+            return v -> v;
+        } else if (dataType instanceof DataType.DtFloat) {
+            return v -> (float) Double.longBitsToDouble(v);
+        } else if (dataType instanceof DataType.DtDouble) {
+            return Double::longBitsToDouble;
+        } else if (dataType instanceof DataType.DtDate) {
+            return java.sql.Date::new;
+        } else if (dataType instanceof DataType.DtDateTime) {
+            return Date::new;
+        } else if (dataType instanceof DataType.DtTimestamp) {
+            return Timestamp::new;
+        }
+        return null;
+    }
+
+    /**
+     * Create a hash index for the passed values (data type not known).
+     *
+     * @param values - Values to index
+     * @return - Value Index
+     */
+    public static ValueIndex create(@NonNull Collection<?> values) {
+        return new HashIndex(values);
+    }
+
+    private static boolean isIntegral(Object value) {
+        return (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte);
+    }
+
+    private static final class LongIndex extends ValueIndex {
+        private final LongHashSet values;
+
+        private LongIndex(Collection<?> source) {
+            values = new LongHashSet(source.size());
+            for (Object value : source) {
+                if (value instanceof Number) {
+                    values.add(((Number) value).longValue());
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            if (isIntegral(value)) {
+                return values.contains(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                return contains(((Number) value).doubleValue());
+            }
+            return false;
+        }
+
+        @Override
+        public boolean contains(long value) {
+            return values.contains(value);
+        }
+
+        @Override
+        public boolean contains(double value) {
+            long lv = (long) value;
+            return (lv == value && values.contains(lv));
+        }
+    }
+
+    private static final class DoubleIndex extends ValueIndex {
+        private final LongHashSet values;
+
+        private DoubleIndex(Collection<?> source) {
+            values = new LongHashSet(source.size());
+            for (Object value : source) {
+                if (value instanceof Number) {
+                    values.add(Double.doubleToLongBits(((Number) value).doubleValue()));
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            if (value instanceof Number) {
+                return contains(((Number) value).doubleValue());
+            }
+            return false;
+        }
+
+        @Override
+        public boolean contains(long value) {
+            return contains((double) value);
+        }
+
+        @Override
+        public boolean contains(double value) {
+            // Same equality semantics as Double.compare(...) == 0
+            return values.contains(Double.doubleToLongBits(value));
+        }
+    }
+
+    private static final class DateIndex extends ValueIndex {
+        private final long[] values;
+
+        private DateIndex(Collection<?> source) {
+            long[] array = new long[source.size()];
+            int size = 0;
+            for (Object value : source) {
+                if (value instanceof Date) {
+                    array[size++] = ((Date) value).getTime();
+                }
+            }
+            Arrays.sort(array, 0, size);
+            // Remove duplicates
+            int count = 0;
+            for (int ii = 0; ii < size; ii++) {
+                if (count == 0 || array[count - 1] != array[ii]) {
+                    array[count++] = array[ii];
+                }
+            }
+            values = Arrays.copyOf(array, count);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            if (value instanceof Date) {
+                return contains(((Date) value).getTime());
+            }
+            return false;
+        }
+
+        @Override
+        public boolean contains(long value) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+
+        @Override
+        public boolean contains(double value) {
+            return contains((long) value);
+        }
+    }
+
+    private static final class HashIndex extends ValueIndex {
+        private final Set<Object> values;
+
+        private HashIndex(Collection<?> source) {
+            values = new HashSet<>(source);
+            values.remove(null);
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            return (value != null && values.contains(value));
+        }
+    }
+
+    /**
+     * Off-heap index for numeric (long value or double bits) and date (epoch millis) values.
+     */
+    private static final class OffHeapLongIndex extends ValueIndex {
+        private final OffHeapLongHashSet values;
+        private final boolean floating;
+        private final LongFunction<Object> decoder;
+
+        private OffHeapLongIndex(Collection<?> source, ByteBuffer buffer, boolean floating, LongFunction<Object> decoder) {
+            this.floating = floating;
+            this.decoder = decoder;
+            if (buffer != null) {
+                values = OffHeapLongHashSet.wrap(buffer);
+            } else {
+                values = OffHeapLongHashSet.allocate(source.size());
+                for (Object value : source) {
+                    if (value instanceof Number || value instanceof Date) {
+                        values.add(key(value, floating));
+                    }
+                }
+            }
+        }
+
+        private OffHeapLongIndex(OffHeapLongHashSet values, boolean floating, LongFunction<Object> decoder) {
+            this.values = values;
+            this.floating = floating;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return values.buffer();
+        }
+
+        private static long key(Object value, boolean floating) {
+            if (value instanceof Date) {
+                return ((Date) value).getTime();
+            } else if (floating) {
+                return Double.doubleToLongBits(((Number) value).doubleValue());
+            }
+            return ((Number) value).longValue();
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            if (value instanceof Date) {
+                return !floating && values.contains(((Date) value).getTime());
+            } else if (value instanceof Number) {
+                if (floating || isIntegral(value)) {
+                    return values.contains(key(value, floating));
+                }
+                return contains(((Number) value).doubleValue());
+            }
+            return false;
+        }
+
+        @Override
+        public boolean contains(long value) {
+            if (floating) {
+                return values.contains(Double.doubleToLongBits((double) value));
+            }
+            return values.contains(value);
+        }
+
+        @Override
+        public boolean contains(double value) {
+            if (floating) {
+                return values.contains(Double.doubleToLongBits(value));
+            }
+            long lv = (long) value;
+            return (lv == value && values.contains(lv));
+        }
+
+        @Override
+        public Collection<?> values() {
+            return new AbstractCollection<Object>() {
+                @Override
+                public Iterator<Object> iterator() {
+                    PrimitiveIterator.OfLong iterator = values.iterator();
+                    return new Iterator<Object>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Object next() {
+                            return decoder.apply(iterator.nextLong());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return OffHeapLongIndex.this.contains(o);
+                }
+            };
+        }
+    }
+
+    /**
+     * Incremental builder for off-heap indexes, not thread-safe.
+     */
+    public static abstract class OffHeapBuilder {
+        /**
+         * Add a value to the index. NULL values and values of an unexpected type are skipped.
+         *
+         * @param value - Value to add
+         */
+        public abstract void add(Object value);
+
+        /**
+         * Build the index, the builder should not be used after.
+         *
+         * @return - Value Index
+         */
+        public abstract ValueIndex build();
+    }
+
+    /**
+     * Adds to an off-heap long set, the set is doubled (and copied) when full.
+     */
+    private static final class OffHeapLongBuilder extends OffHeapBuilder {
+        private static final int INITIAL_SIZE = 1024;
+
+        private final boolean floating;
+        private final LongFunction<Object> decoder;
+        private OffHeapLongHashSet values = OffHeapLongHashSet.allocate(INITIAL_SIZE);
+
+        private OffHeapLongBuilder(boolean floating, LongFunction<Object> decoder) {
+            this.floating = floating;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public void add(Object value) {
+            if (value instanceof Number || value instanceof Date) {
+                if (values.full()) {
+                    values = values.resize(values.size() * 2);
+                }
+                values.add(OffHeapLongIndex.key(value, floating));
+            }
+        }
+
+        @Override
+        public ValueIndex build() {
+            return new OffHeapLongIndex(values, floating, decoder);
+        }
+    }
+
+    /**
+     * Stages the UTF-8 encoded strings in a growing direct buffer, the string set is
+     * built from the staged data (sized and de-duplicated) on build().
+     */
+    private static final class OffHeapStringBuilder extends OffHeapBuilder {
+        private static final int INITIAL_SIZE = 64 * 1024;
+
+        private ByteBuffer staged = ByteBuffer.allocateDirect(INITIAL_SIZE);
+        private int count = 0;
+
+        @Override
+        public void add(Object value) {
+            if (value == null) {
+                return;
+            }
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            reserve(Integer.BYTES + bytes.length);
+            staged.putInt(bytes.length);
+            staged.put(bytes);
+            count++;
+        }
+
+        private void reserve(int bytes) {
+            if (staged.remaining() >= bytes) {
+                return;
+            }
+            long required = (long) staged.position() + bytes;
+            Preconditions.checkArgument(required <= Integer.MAX_VALUE, "Staged data exceeds maximum buffer size.");
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE,
+                    Math.max(required, staged.capacity() * 2L)));
+            staged.flip();
+            buffer.put(staged);
+            staged = buffer;
+        }
+
+        @Override
+        public ValueIndex build() {
+            ByteBuffer data = staged.duplicate();
+            data.flip();
+            int size = count;
+            Collection<Object> source = new AbstractCollection<Object>() {
+                @Override
+                public Iterator<Object> iterator() {
+                    ByteBuffer bb = data.duplicate();
+                    return new Iterator<Object>() {
+                        @Override
+                        public boolean hasNext() {
+                            return bb.hasRemaining();
+                        }
+
+                        @Override
+                        public Object next() {
+                            if (!bb.hasRemaining()) {
+                                throw new NoSuchElementException();
+                            }
+                            byte[] bytes = new byte[bb.getInt()];
+                            bb.get(bytes);
+                            return new String(bytes, StandardCharsets.UTF_8);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+            ValueIndex index = new OffHeapStringIndex(source, null);
+            staged = null;
+            return index;
+        }
+    }
+
+    /**
+     * Off-heap index for string values.
+     */
+    private static final class OffHeapStringIndex extends ValueIndex {
+        private final OffHeapStringSet values;
+
+        private OffHeapStringIndex(Collection<?> source, ByteBuffer buffer) {
+            values = (buffer != null ? OffHeapStringSet.wrap(buffer) : OffHeapStringSet.create(source));
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return values.buffer();
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public boolean contains(Object value) {
+            return (value instanceof String && values.contains((String) value));
+        }
+
+        @Override
+        public Collection<?> values() {
+            return new AbstractCollection<Object>() {
+                @Override
+                public Iterator<Object> iterator() {
+                    Iterator<String> iterator = values.iterator();
+                    return new Iterator<Object>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Object next() {
+                            return iterator.next();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return OffHeapStringIndex.this.contains(o);
+                }
+            };
+        }
+    }
+}
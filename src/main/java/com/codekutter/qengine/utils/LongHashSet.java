@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.utils;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing (linear probing) hash set of primitive longs.
+ * Avoids boxing for membership checks on numeric value lists.
+ * <p>
+ * Not thread-safe for updates, safe for concurrent reads once populated.
+ */
+public class LongHashSet {
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private boolean hasEmptyKey = false;
+    private int size = 0;
+    private int mask;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expected) {
+        Preconditions.checkArgument(expected >= 0);
+        int capacity = tableSize(expected);
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Add a value to the set.
+     *
+     * @param key - Value to add
+     * @return - True if the value was not already present
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (hasEmptyKey) return false;
+            hasEmptyKey = true;
+            size++;
+            return true;
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) return false;
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        size++;
+        if (size > (keys.length * LOAD_FACTOR)) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return hasEmptyKey;
+        }
+        int slot = slot(key);
+        long k;
+        while ((k = keys[slot]) != EMPTY) {
+            if (k == key) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public long[] toArray() {
+        long[] values = new long[size];
+        int index = 0;
+        if (hasEmptyKey) {
+            values[index++] = EMPTY;
+        }
+        for (long key : keys) {
+            if (key != EMPTY) {
+                values[index++] = key;
+            }
+        }
+        return values;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        hasEmptyKey = false;
+        size = 0;
+    }
+
+    private int slot(long key) {
+        // Murmur3 finalizer, spreads sequential keys across the table.
+        long h = key;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return (int) h & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        keys = new long[capacity];
+        mask = capacity - 1;
+        for (long key : old) {
+            if (key != EMPTY) {
+                int slot = slot(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private static int tableSize(int expected) {
+        long required = Math.max(4L, (long) Math.ceil(expected / LOAD_FACTOR) + 1);
+        Preconditions.checkArgument(required <= (1 << 30), "Set size exceeds maximum capacity.");
+        return Integer.highestOneBit((int) (required - 1)) << 1;
+    }
+}
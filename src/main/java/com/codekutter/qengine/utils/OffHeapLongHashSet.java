@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.utils;
+
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Open addressing (linear probing) hash set of longs stored outside the Java heap
+ * (direct or memory mapped ByteBuffer). The set is populated once and read-only after,
+ * reads are safe from multiple threads.
+ * <p>
+ * Layout: [long: size][long: has zero][long: capacity][capacity x long: slots]
+ */
+public class OffHeapLongHashSet {
+    private static final long EMPTY = 0L;
+    private static final int HEADER_SIZE = 3 * Long.BYTES;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    private int size;
+    private boolean hasEmptyKey;
+
+    private OffHeapLongHashSet(ByteBuffer buffer, int capacity, int size, boolean hasEmptyKey) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.size = size;
+        this.hasEmptyKey = hasEmptyKey;
+    }
+
+    /**
+     * Allocate a new set in a direct buffer.
+     *
+     * @param expected - Expected number of values
+     * @return - Empty set
+     */
+    public static OffHeapLongHashSet allocate(int expected) {
+        int capacity = tableSize(expected);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize(capacity)).order(ByteOrder.nativeOrder());
+        buffer.putLong(Long.BYTES * 2, capacity);
+        return new OffHeapLongHashSet(buffer, capacity, 0, false);
+    }
+
+    /**
+     * Open a set from a buffer with the set layout (for example a mapped snapshot file).
+     *
+     * @param buffer - Buffer positioned at the start of the set
+     * @return - Set backed by the buffer
+     */
+    public static OffHeapLongHashSet wrap(@NonNull ByteBuffer buffer) {
+        ByteBuffer bb = buffer.slice().order(buffer.order());
+        long size = bb.getLong(0);
+        long hasEmpty = bb.getLong(Long.BYTES);
+        long capacity = bb.getLong(Long.BYTES * 2);
+        Preconditions.checkArgument(capacity > 0 && Long.bitCount(capacity) == 1
+                        && bb.capacity() >= bufferSize((int) capacity),
+                String.format("Invalid set buffer. [capacity=%d]", capacity));
+        return new OffHeapLongHashSet(bb, (int) capacity, (int) size, hasEmpty != 0);
+    }
+
+    public static int bufferSize(int capacity) {
+        long bytes = HEADER_SIZE + (long) capacity * Long.BYTES;
+        Preconditions.checkArgument(bytes <= Integer.MAX_VALUE, "Set size exceeds maximum buffer size.");
+        return (int) bytes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the backing buffer (header and slots), position 0.
+     *
+     * @return - Read-only view of the buffer
+     */
+    public ByteBuffer buffer() {
+        ByteBuffer bb = buffer.asReadOnlyBuffer().order(buffer.order());
+        bb.position(0);
+        return bb;
+    }
+
+    /**
+     * Check if the set has reached its load factor, add() will fail for new non-zero keys.
+     *
+     * @return - Is full?
+     */
+    public boolean full() {
+        return size >= capacity * LOAD_FACTOR;
+    }
+
+    /**
+     * Copy the values to a new set sized for the expected number of values,
+     * used to grow a set that is being populated incrementally.
+     *
+     * @param expected - Expected number of values
+     * @return - New set
+     */
+    public OffHeapLongHashSet resize(int expected) {
+        Preconditions.checkArgument(expected >= size,
+                String.format("Expected size less than current size. [size=%d][expected=%d]", size, expected));
+        OffHeapLongHashSet set = allocate(expected);
+        forEach(set::add);
+        return set;
+    }
+
+    /**
+     * Add a value, not thread-safe. The set is not resized, it is sized at allocation (see resize()).
+     *
+     * @param key - Value to add
+     * @return - True if the value was not already present
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (hasEmptyKey) return false;
+            hasEmptyKey = true;
+            buffer.putLong(Long.BYTES, 1);
+        } else {
+            Preconditions.checkState(size < capacity * LOAD_FACTOR, "Set capacity exceeded.");
+            int slot = slot(key);
+            long k;
+            while ((k = buffer.getLong(offset(slot))) != EMPTY) {
+                if (k == key) return false;
+                slot = (slot + 1) & mask;
+            }
+            buffer.putLong(offset(slot), key);
+        }
+        size++;
+        buffer.putLong(0, size);
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return hasEmptyKey;
+        }
+        int slot = slot(key);
+        long k;
+        while ((k = buffer.getLong(offset(slot))) != EMPTY) {
+            if (k == key) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public void forEach(@NonNull LongConsumer consumer) {
+        if (hasEmptyKey) {
+            consumer.accept(EMPTY);
+        }
+        for (int ii = 0; ii < capacity; ii++) {
+            long k = buffer.getLong(offset(ii));
+            if (k != EMPTY) {
+                consumer.accept(k);
+            }
+        }
+    }
+
+    /**
+     * Iterate the values, reads the buffer as the iteration progresses.
+     *
+     * @return - Value iterator
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private boolean zero = hasEmptyKey;
+            private int slot = next(0);
+
+            private int next(int from) {
+                while (from < capacity && buffer.getLong(offset(from)) == EMPTY) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return zero || slot < capacity;
+            }
+
+            @Override
+            public long nextLong() {
+                if (zero) {
+                    zero = false;
+                    return EMPTY;
+                }
+                if (slot >= capacity) {
+                    throw new NoSuchElementException();
+                }
+                long value = buffer.getLong(offset(slot));
+                slot = next(slot + 1);
+                return value;
+            }
+        };
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + (slot << 3);
+    }
+
+    private int slot(long key) {
+        long h = key;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return (int) h & mask;
+    }
+
+    private static int tableSize(int expected) {
+        Preconditions.checkArgument(expected >= 0);
+        long required = Math.max(4L, (long) Math.ceil(expected / LOAD_FACTOR) + 1);
+        Preconditions.checkArgument(required <= (1 << 27), "Set size exceeds maximum capacity.");
+        return Integer.highestOneBit((int) (required - 1)) << 1;
+    }
+}
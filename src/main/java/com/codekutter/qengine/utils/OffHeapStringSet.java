@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Utf8;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Read-only hash set of strings stored outside the Java heap. Strings are stored
+ * as UTF-8 in a data region, the hash table slots pack the string hash code (high 32 bits)
+ * and the data offset + 1 (low 32 bits, 0 = empty slot).
+ * <p>
+ * Layout: [int: size][int: capacity][int: data size][int: reserved][capacity x long: slots][data: (int length, bytes)*]
+ */
+public class OffHeapStringSet {
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int capacity;
+    private final int mask;
+    private final int dataStart;
+
+    private OffHeapStringSet(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(0);
+        this.capacity = buffer.getInt(Integer.BYTES);
+        this.mask = capacity - 1;
+        this.dataStart = HEADER_SIZE + capacity * Long.BYTES;
+    }
+
+    /**
+     * Build a set in a direct buffer from the passed values. NULL values are skipped.
+     *
+     * @param values - Values to add
+     * @return - String Set
+     */
+    public static OffHeapStringSet create(@NonNull Collection<?> values) {
+        int capacity = tableSize(values.size());
+        long dataSize = 0;
+        for (Object value : values) {
+            if (value != null) {
+                dataSize += Integer.BYTES + Utf8.encodedLength(value.toString());
+            }
+        }
+        long total = HEADER_SIZE + (long) capacity * Long.BYTES + dataSize;
+        Preconditions.checkArgument(total <= Integer.MAX_VALUE, "Set size exceeds maximum buffer size.");
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) total).order(ByteOrder.nativeOrder());
+        int dataStart = HEADER_SIZE + capacity * Long.BYTES;
+        int mask = capacity - 1;
+        int size = 0;
+        int position = dataStart;
+        for (Object value : values) {
+            if (value == null) continue;
+            String sv = value.toString();
+            int hash = sv.hashCode();
+            byte[] bytes = sv.getBytes(StandardCharsets.UTF_8);
+            int slot = slot(hash, mask);
+            long entry;
+            boolean exists = false;
+            while ((entry = buffer.getLong(HEADER_SIZE + (slot << 3))) != 0) {
+                if ((int) (entry >>> 32) == hash && equals(buffer, dataStart + (int) entry - 1, bytes)) {
+                    exists = true;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (exists) continue;
+            buffer.putInt(position, bytes.length);
+            for (int ii = 0; ii < bytes.length; ii++) {
+                buffer.put(position + Integer.BYTES + ii, bytes[ii]);
+            }
+            buffer.putLong(HEADER_SIZE + (slot << 3), ((long) hash << 32) | ((position - dataStart + 1) & 0xFFFFFFFFL));
+            position += Integer.BYTES + bytes.length;
+            size++;
+        }
+        buffer.putInt(0, size);
+        buffer.putInt(Integer.BYTES, capacity);
+        buffer.putInt(Integer.BYTES * 2, position - dataStart);
+        return new OffHeapStringSet(buffer);
+    }
+
+    /**
+     * Open a set from a buffer with the set layout (for example a mapped snapshot file).
+     *
+     * @param buffer - Buffer positioned at the start of the set
+     * @return - Set backed by the buffer
+     */
+    public static OffHeapStringSet wrap(@NonNull ByteBuffer buffer) {
+        ByteBuffer bb = buffer.slice().order(buffer.order());
+        int capacity = bb.getInt(Integer.BYTES);
+        int dataSize = bb.getInt(Integer.BYTES * 2);
+        Preconditions.checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1
+                        && bb.capacity() >= HEADER_SIZE + (long) capacity * Long.BYTES + dataSize,
+                String.format("Invalid set buffer. [capacity=%d]", capacity));
+        return new OffHeapStringSet(bb);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the backing buffer (header, slots and data), position 0.
+     *
+     * @return - Read-only view of the buffer
+     */
+    public ByteBuffer buffer() {
+        ByteBuffer bb = buffer.asReadOnlyBuffer().order(buffer.order());
+        bb.position(0);
+        bb.limit(dataStart + buffer.getInt(Integer.BYTES * 2));
+        return bb;
+    }
+
+    public boolean contains(String value) {
+        if (value == null) {
+            return false;
+        }
+        int hash = value.hashCode();
+        int slot = slot(hash, mask);
+        long entry;
+        byte[] bytes = null;
+        while ((entry = buffer.getLong(HEADER_SIZE + (slot << 3))) != 0) {
+            if ((int) (entry >>> 32) == hash) {
+                // Only encode on a hash match.
+                if (bytes == null) {
+                    bytes = value.getBytes(StandardCharsets.UTF_8);
+                }
+                if (equals(buffer, dataStart + (int) entry - 1, bytes)) {
+                    return true;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public void forEach(@NonNull Consumer<String> consumer) {
+        for (int ii = 0; ii < capacity; ii++) {
+            long entry = buffer.getLong(HEADER_SIZE + (ii << 3));
+            if (entry != 0) {
+                consumer.accept(read(dataStart + (int) entry - 1));
+            }
+        }
+    }
+
+    /**
+     * Iterate the values, strings are decoded as the iteration progresses.
+     *
+     * @return - Value iterator
+     */
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int slot = next(0);
+
+            private int next(int from) {
+                while (from < capacity && buffer.getLong(HEADER_SIZE + (from << 3)) == 0) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < capacity;
+            }
+
+            @Override
+            public String next() {
+                if (slot >= capacity) {
+                    throw new NoSuchElementException();
+                }
+                long entry = buffer.getLong(HEADER_SIZE + (slot << 3));
+                slot = next(slot + 1);
+                return read(dataStart + (int) entry - 1);
+            }
+        };
+    }
+
+    private String read(int offset) {
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+        for (int ii = 0; ii < length; ii++) {
+            bytes[ii] = buffer.get(offset + Integer.BYTES + ii);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean equals(ByteBuffer buffer, int offset, byte[] bytes) {
+        if (buffer.getInt(offset) != bytes.length) {
+            return false;
+        }
+        int start = offset + Integer.BYTES;
+        for (int ii = 0; ii < bytes.length; ii++) {
+            if (buffer.get(start + ii) != bytes[ii]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int slot(int hash, int mask) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int tableSize(int expected) {
+        long required = Math.max(4L, (long) Math.ceil(expected / LOAD_FACTOR) + 1);
+        Preconditions.checkArgument(required <= (1 << 27), "Set size exceeds maximum capacity.");
+        return Integer.highestOneBit((int) (required - 1)) << 1;
+    }
+}
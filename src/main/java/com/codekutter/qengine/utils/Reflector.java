@@ -26,10 +26,16 @@ package com.codekutter.qengine.utils;
 import com.codekutter.qengine.model.values.FieldPath;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.primitives.Primitives;
 import lombok.NonNull;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.MethodUtils;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -38,8 +44,22 @@ import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 public class Reflector {
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = ThreadLocal.withInitial(SimpleDateFormat::new);
+    private static final ThreadLocal<Map<String, SimpleDateFormat>> DATE_FORMATS = ThreadLocal.withInitial(HashMap::new);
+
+    private static final ClassValue<Map<Field, Function<Object, Object>>> ACCESSORS = new ClassValue<Map<Field, Function<Object, Object>>>() {
+        @Override
+        protected Map<Field, Function<Object, Object>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
     /**
      * Find the field with the specified name in this type or a parent type.
@@ -239,6 +259,26 @@ public class Reflector {
         return type == String.class;
     }
 
+    /**
+     * Get the default date format. SimpleDateFormat is not thread-safe,
+     * instances are cached per thread.
+     *
+     * @return - Date Format
+     */
+    public static SimpleDateFormat dateFormat() {
+        return DATE_FORMAT.get();
+    }
+
+    /**
+     * Get a date format for the specified pattern, instances are cached per thread.
+     *
+     * @param pattern - Date Format pattern
+     * @return - Date Format
+     */
+    public static SimpleDateFormat dateFormat(@NonNull String pattern) {
+        return DATE_FORMATS.get().computeIfAbsent(pattern, SimpleDateFormat::new);
+    }
+
     /**
      * Get the parsed value of the type specified from the
      * string value passed.
@@ -256,10 +296,10 @@ public class Reflector {
                 Class<Enum> et = (Class<Enum>) type;
                 return (T) Enum.valueOf(et, value);
             } else if (type.equals(Date.class)) {
-                SimpleDateFormat format = new SimpleDateFormat();
+                SimpleDateFormat format = dateFormat();
                 return (T) format.parse(value);
             } else if (type.equals(java.sql.Date.class)) {
-                SimpleDateFormat format = new SimpleDateFormat();
+                SimpleDateFormat format = dateFormat();
                 Date dt = format.parse(value);
                 return (T) new java.sql.Date(dt.getTime());
             } else if (type.equals(Timestamp.class)) {
@@ -465,15 +505,203 @@ public class Reflector {
         Preconditions.checkArgument(o != null);
         Preconditions.checkArgument(field != null);
 
-        Method m = getAccessor(o.getClass(), field);
-        if (m == null)
-            if (!ignore)
-                throw new Exception("No accessable method found for field. [field="
-                        + field.getName() + "][class="
-                        + o.getClass().getCanonicalName() + "]");
-            else return null;
+        Map<Field, Function<Object, Object>> accessors = ACCESSORS.get(o.getClass());
+        Function<Object, Object> accessor = accessors.get(field);
+        if (accessor == null) {
+            Method m = getAccessor(o.getClass(), field);
+            if (m == null)
+                if (!ignore)
+                    throw new Exception("No accessable method found for field. [field="
+                            + field.getName() + "][class="
+                            + o.getClass().getCanonicalName() + "]");
+                else return null;
+            accessor = createGetter(m);
+            accessors.putIfAbsent(field, accessor);
+        }
+        return accessor.apply(o);
+    }
+
+    /**
+     * Get a method handle for the getter, adapted to the signature (Object)Object.
+     * Getters of non-public classes are made accessible, or invoked reflectively
+     * if access can't be suppressed.
+     *
+     * @param getter - Getter method.
+     * @return - Method Handle.
+     * @throws IllegalAccessException
+     */
+    public static MethodHandle getHandle(@NonNull Method getter) throws IllegalAccessException {
+        return unreflect(getter).asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    private static MethodHandle unreflect(Method getter) throws IllegalAccessException {
+        try {
+            return MethodHandles.publicLookup().unreflect(getter);
+        } catch (IllegalAccessException ex) {
+            try {
+                getter.setAccessible(true);
+                return MethodHandles.lookup().unreflect(getter);
+            } catch (RuntimeException | IllegalAccessException e) {
+                LogUtils.debug(Reflector.class, String.format("Getter not accessible, using reflection. [method=%s][error=%s]", getter.toString(), e.getLocalizedMessage()));
+            }
+            try {
+                // Method.invoke(target) bound to the getter: (Object)Object.
+                MethodHandle invoke = MethodHandles.publicLookup().findVirtual(Method.class, "invoke",
+                        MethodType.methodType(Object.class, Object.class, Object[].class));
+                return MethodHandles.insertArguments(invoke.bindTo(getter), 1, (Object) new Object[0]);
+            } catch (NoSuchMethodException e) {
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Create a function that invokes the getter directly. The function is
+     * generated using the LambdaMetafactory, falling back to a method handle
+     * if the declaring type isn't visible to this class loader.
+     *
+     * @param getter - Getter method.
+     * @return - Accessor function.
+     */
+    @SuppressWarnings("unchecked")
+    public static Function<Object, Object> createGetter(@NonNull Method getter) {
+        Function<Object, Object> function = createLambda(getter, Function.class, "apply", Object.class);
+        if (function == null) {
+            final MethodHandle handle = handle(getter);
+            function = (o) -> {
+                try {
+                    return handle.invokeExact(o);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new RuntimeException(t);
+                }
+            };
+        }
+        return function;
+    }
+
+    /**
+     * Create a non-boxing accessor for getters returning int/short/byte/char.
+     *
+     * @param getter - Getter method.
+     * @return - Accessor function or NULL if the return type isn't supported.
+     */
+    @SuppressWarnings("unchecked")
+    public static ToIntFunction<Object> createIntGetter(@NonNull Method getter) {
+        Class<?> rt = getter.getReturnType();
+        if (rt != int.class && rt != short.class && rt != byte.class && rt != char.class) {
+            return null;
+        }
+        ToIntFunction<Object> function = createLambda(getter, ToIntFunction.class, "applyAsInt", int.class);
+        if (function == null) {
+            final MethodHandle handle = handle(getter, int.class);
+            function = (o) -> {
+                try {
+                    return (int) handle.invokeExact(o);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new RuntimeException(t);
+                }
+            };
+        }
+        return function;
+    }
+
+    /**
+     * Create a non-boxing accessor for getters returning long (or narrower integral types).
+     *
+     * @param getter - Getter method.
+     * @return - Accessor function or NULL if the return type isn't supported.
+     */
+    @SuppressWarnings("unchecked")
+    public static ToLongFunction<Object> createLongGetter(@NonNull Method getter) {
+        Class<?> rt = getter.getReturnType();
+        if (rt != long.class && rt != int.class && rt != short.class && rt != byte.class && rt != char.class) {
+            return null;
+        }
+        ToLongFunction<Object> function = createLambda(getter, ToLongFunction.class, "applyAsLong", long.class);
+        if (function == null) {
+            final MethodHandle handle = handle(getter, long.class);
+            function = (o) -> {
+                try {
+                    return (long) handle.invokeExact(o);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new RuntimeException(t);
+                }
+            };
+        }
+        return function;
+    }
+
+    /**
+     * Create a non-boxing accessor for getters returning a primitive numeric type.
+     *
+     * @param getter - Getter method.
+     * @return - Accessor function or NULL if the return type isn't supported.
+     */
+    @SuppressWarnings("unchecked")
+    public static ToDoubleFunction<Object> createDoubleGetter(@NonNull Method getter) {
+        Class<?> rt = getter.getReturnType();
+        if (!rt.isPrimitive() || rt == boolean.class || rt == void.class) {
+            return null;
+        }
+        ToDoubleFunction<Object> function = createLambda(getter, ToDoubleFunction.class, "applyAsDouble", double.class);
+        if (function == null) {
+            final MethodHandle handle = handle(getter, double.class);
+            function = (o) -> {
+                try {
+                    return (double) handle.invokeExact(o);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new RuntimeException(t);
+                }
+            };
+        }
+        return function;
+    }
 
-        return MethodUtils.invokeMethod(o, m.getName());
+    private static MethodHandle handle(Method getter) {
+        try {
+            return getHandle(getter);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format("Getter not accessible. [method=%s]", getter.toString()), e);
+        }
+    }
+
+    private static MethodHandle handle(Method getter, Class<?> returnType) {
+        try {
+            return unreflect(getter).asType(MethodType.methodType(returnType, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format("Getter not accessible. [method=%s]", getter.toString()), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <F> F createLambda(Method getter, Class<?> type, String name, Class<?> returnType) {
+        Class<?> owner = getter.getDeclaringClass();
+        try {
+            // Generated lambda classes resolve the owner through this class loader.
+            if (Class.forName(owner.getName(), false, Reflector.class.getClassLoader()) != owner) {
+                return null;
+            }
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(getter);
+            Class<?> rt = (returnType == Object.class ? Primitives.wrap(getter.getReturnType()) : getter.getReturnType());
+            CallSite site = LambdaMetafactory.metafactory(lookup, name,
+                    MethodType.methodType(type),
+                    MethodType.methodType(returnType, Object.class),
+                    handle,
+                    MethodType.methodType(rt, owner));
+            return (F) site.getTarget().invoke();
+        } catch (Throwable t) {
+            LogUtils.debug(Reflector.class, String.format("LambdaMetafactory accessor failed, using method handle. [method=%s][error=%s]", getter.toString(), t.getLocalizedMessage()));
+            return null;
+        }
     }
 
 
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.utils.LogUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileDataLoaderTest {
+
+    @Test
+    void read() {
+        try {
+            File dir = Files.createTempDirectory("qengine-files").toFile();
+            File csv = new File(dir, "countries.csv");
+            Files.write(csv.toPath(), Arrays.asList("code,name,population",
+                    "IN,India,1380",
+                    "FR,\"France, Republic\",67",
+                    "XX,,"), StandardCharsets.UTF_8);
+            Map<String, List<?>> columns = new LinkedHashMap<>();
+            columns.put("code", Arrays.asList("IN", "FR", "XX"));
+            columns.put("population", Arrays.asList(1380L, 67L, null));
+            File qcol = new File(dir, "countries" + ColumnarFile.FILE_EXTENSION);
+            ColumnarFile.write(qcol, columns);
+            csv.deleteOnExit();
+            qcol.deleteOnExit();
+            dir.deleteOnExit();
+
+            FileDataLoader<String> names = new FileDataLoader<>();
+            names.withConnection(dir);
+            assertEquals(Arrays.asList("India", "France, Republic"), new ArrayList<>(names.read("countries.csv#name", String.class)));
+            FileDataLoader<Long> population = new FileDataLoader<>();
+            population.withConnection(dir);
+            assertEquals(Arrays.asList(1380L, 67L), new ArrayList<>(population.read("countries.csv#population", Long.class)));
+            assertEquals(Arrays.asList(1380L, 67L), new ArrayList<>(population.read("countries.qcol#population", Long.class)));
+            assertEquals(Arrays.asList("IN", "FR", "XX"), new ArrayList<>(names.read("countries.qcol#code", String.class)));
+            assertThrows(DataStoreException.class, () -> names.read("countries.qcol#missing", String.class));
+            assertThrows(DataStoreException.class, () -> names.read("countries.csv", String.class));
+
+            // Paths are resolved within the connection directory.
+            File outside = new File(dir.getParentFile(), dir.getName() + ".csv");
+            Files.copy(csv.toPath(), outside.toPath());
+            outside.deleteOnExit();
+            assertThrows(DataStoreException.class, () -> names.read("../" + outside.getName() + "#name", String.class));
+            assertThrows(DataStoreException.class, () -> names.read(outside.getAbsolutePath() + "#name", String.class));
+            assertEquals(2, names.read("./sub/../countries.csv#name", String.class).size());
+
+            // Narrowing of long columns fails on overflow.
+            FileDataLoader<Integer> counts = new FileDataLoader<>();
+            counts.withConnection(dir);
+            assertEquals(Arrays.asList(1380, 67), new ArrayList<>(counts.read("countries.qcol#population", Integer.class)));
+            columns.put("population", Arrays.asList(1L << 40, 67L, null));
+            ColumnarFile.write(qcol, columns);
+            assertThrows(DataStoreException.class, () -> counts.read("countries.qcol#population", Integer.class));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.utils.LogUtils;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.codekutter.qengine.common.TestStubs.proxy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HibernateDataLoaderTest {
+    static final Object[][] ROWS = {{1L, 10L}, {1L, 11L}, {2L, 20L}, {3L, 30L}};
+
+    @Test
+    void readBatch() {
+        try {
+            AtomicInteger queries = new AtomicInteger();
+            HibernateDataLoader<Long> loader = new HibernateDataLoader<>();
+            loader.withConnection(session(queries));
+            Map<Long, Collection<Long>> batch = loader.readBatch("SELECT key, value FROM Codes WHERE key IN (:keys)",
+                    Long.class, Arrays.asList(1L, 2L, 3L, 4L, 1L), 3);
+            assertEquals(2, queries.get());
+            assertEquals(Arrays.asList(10L, 11L), new ArrayList<>(batch.get(1L)));
+            assertEquals(Collections.singletonList(20L), new ArrayList<>(batch.get(2L)));
+            assertEquals(Collections.singletonList(30L), new ArrayList<>(batch.get(3L)));
+            assertTrue(batch.get(4L).isEmpty());
+
+            List<Collection<Long>> union = loader.readUnion("SELECT value FROM Codes WHERE key = ?0", Long.class,
+                    Arrays.asList(Collections.singletonList(3L), Collections.singletonList(5L)), 10);
+            assertEquals(2, union.size());
+            assertEquals(Collections.singletonList(30L), new ArrayList<>(union.get(0)));
+            assertTrue(union.get(1).isEmpty());
+            loader.close();
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void stream() {
+        try {
+            List<String> events = new ArrayList<>();
+            HibernateDataLoader<Long> loader = new HibernateDataLoader<>();
+            // Session: cursor iterated, session cleared every clearInterval rows, cursor closed when exhausted.
+            loader.stateless(false).clearInterval(2).withConnection(scrollSession(events));
+            try (Stream<Long> stream = loader.stream("SELECT value FROM Codes", Long.class)) {
+                assertEquals(Arrays.asList(10L, 11L, 20L, 30L), stream.collect(Collectors.toList()));
+                assertEquals(2, Collections.frequency(events, "clear"));
+                assertEquals(1, Collections.frequency(events, "close:results"));
+            }
+            assertEquals(1, Collections.frequency(events, "close:results"));
+            assertFalse(events.contains("close:session"));
+
+            // Stateless session: closed on exhaustion, without closing the stream.
+            events.clear();
+            loader.stateless(true);
+            Stream<Long> stream = loader.stream("SELECT value FROM Codes", Long.class);
+            assertEquals(4, stream.count());
+            assertEquals(Arrays.asList("close:results", "close:session"), events);
+            stream.close();
+            assertEquals(2, events.size());
+
+            // Stateless session: closed on early close.
+            events.clear();
+            stream = loader.stream("SELECT value FROM Codes", Long.class);
+            Iterator<Long> iterator = stream.iterator();
+            assertEquals(10L, iterator.next().longValue());
+            assertTrue(events.isEmpty());
+            stream.close();
+            assertEquals(Arrays.asList("close:results", "close:session"), events);
+            assertFalse(events.contains("clear"));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    /**
+     * Session factory opening sessions over ROWS, queries selecting "key, value" return
+     * the (key, value) rows for the bound keys, other queries the values for the bound key.
+     */
+    static SessionFactory sessionFactory(AtomicInteger queries) {
+        return sessionFactory(queries, new CountDownLatch(0));
+    }
+
+    /**
+     * Session factory whose queries block till the gate is opened.
+     */
+    static SessionFactory sessionFactory(AtomicInteger queries, CountDownLatch gate) {
+        return proxy(SessionFactory.class, (proxy, name, args) -> name.equals("openSession") ? session(queries, gate) : null);
+    }
+
+    static Session session(AtomicInteger queries) {
+        return session(queries, new CountDownLatch(0));
+    }
+
+    private static Session session(AtomicInteger queries, CountDownLatch gate) {
+        return proxy(Session.class, (proxy, name, args) -> {
+            switch (name) {
+                case "createQuery":
+                    return query((String) args[0], queries, gate);
+                case "isOpen":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * Session whose queries scroll the values of ROWS, session clear() and cursor/stateless
+     * session close() calls are recorded in the events.
+     */
+    private static Session scrollSession(List<String> events) {
+        StatelessSession stateless = proxy(StatelessSession.class, (proxy, name, args) -> {
+            switch (name) {
+                case "createQuery":
+                    return scrollQuery(events);
+                case "close":
+                    events.add("close:session");
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        SessionFactory factory = proxy(SessionFactory.class,
+                (proxy, name, args) -> name.equals("openStatelessSession") ? stateless : null);
+        return proxy(Session.class, (proxy, name, args) -> {
+            switch (name) {
+                case "createQuery":
+                    return scrollQuery(events);
+                case "getSessionFactory":
+                    return factory;
+                case "clear":
+                    events.add("clear");
+                    return null;
+                case "isOpen":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Query scrollQuery(List<String> events) {
+        return proxy(Query.class, (proxy, name, args) -> {
+            if (!name.equals("scroll")) {
+                return null;
+            }
+            int[] row = {-1};
+            return proxy(ScrollableResults.class, (results, method, params) -> {
+                switch (method) {
+                    case "next":
+                        return ++row[0] < ROWS.length;
+                    case "get":
+                        return ROWS[row[0]][1];
+                    case "close":
+                        events.add("close:results");
+                        return null;
+                    default:
+                        return null;
+                }
+            });
+        });
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Query query(String hql, AtomicInteger queries, CountDownLatch gate) {
+        boolean keyed = hql.startsWith("SELECT key, value");
+        List<Object> params = new ArrayList<>();
+        return proxy(Query.class, (proxy, name, args) -> {
+            switch (name) {
+                case "setParameterList":
+                    params.addAll((Collection<?>) args[1]);
+                    return proxy;
+                case "setParameter":
+                    params.add(args[1]);
+                    return proxy;
+                case "getResultList":
+                    queries.incrementAndGet();
+                    gate.await();
+                    List<Object> rows = new ArrayList<>();
+                    for (Object[] row : ROWS) {
+                        if (params.contains(row[0])) rows.add(keyed ? row : row[1]);
+                    }
+                    return rows;
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.utils.LogUtils;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.codekutter.qengine.common.TestStubs.proxy;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the loader against a minimal in-memory JDBC stub, rows are (key, value) pairs
+ * filtered by the bound parameters.
+ */
+class JdbcDataLoaderTest {
+    private static final Object[][] ROWS = {{1L, 10L}, {1L, 11L}, {2L, 20L}, {3L, null}, {3L, 30L}};
+
+    @Test
+    void read() {
+        try {
+            AtomicInteger prepared = new AtomicInteger();
+            JdbcDataLoader<Long> loader = new JdbcDataLoader<>(dataSource(prepared));
+            String sql = "SELECT VALUE FROM CODES WHERE KEY = ?";
+            assertEquals(Arrays.asList(10L, 11L), new ArrayList<>(loader.read(sql, Long.class, 1L)));
+            assertEquals(Collections.singletonList(30L), new ArrayList<>(loader.read(sql, Long.class, 3L)));
+            assertNull(loader.read(sql, Long.class, 4L));
+            assertEquals(1, prepared.get());
+            assertArrayEquals(new long[]{20L}, loader.readLongs(sql, Collections.singletonList(2L)));
+
+            Map<Long, Collection<Long>> batch = loader.readBatch("SELECT KEY, VALUE FROM CODES WHERE KEY IN (:keys)",
+                    Long.class, Arrays.asList(1L, 2L, 3L, 4L), 2);
+            assertEquals(2, batch.get(1L).size());
+            assertEquals(1, batch.get(2L).size());
+            assertEquals(1, batch.get(3L).size());
+            assertTrue(batch.get(4L).isEmpty());
+
+            List<Collection<Long>> union = loader.readUnion(sql, Long.class,
+                    Arrays.asList(Collections.singletonList(3L), Collections.singletonList(4L), Collections.singletonList(1L)), 2);
+            assertEquals(Collections.singletonList(30L), new ArrayList<>(union.get(0)));
+            assertTrue(union.get(1).isEmpty());
+            assertEquals(Arrays.asList(10L, 11L), new ArrayList<>(union.get(2)));
+
+            try (Stream<Long> stream = loader.stream(sql, Long.class, 1L)) {
+                assertEquals(Arrays.asList(10L, 11L), stream.collect(Collectors.toList()));
+            }
+            loader.close();
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void reuse() {
+        try {
+            AtomicInteger prepared = new AtomicInteger();
+            List<String> statements = new ArrayList<>();
+            AtomicBoolean readOnly = new AtomicBoolean();
+            ConnectionManager.get().addJdbcDataSource("test.jdbc.reuse", dataSource(prepared, statements, readOnly), 1);
+            String sql = "SELECT KEY, VALUE FROM CODES WHERE KEY IN (:keys) AND CODE <> :keys2";
+            JdbcDataLoader<Long> loader = ConnectionManager.get().getJdbcDataLoader("test.jdbc.reuse");
+            assertEquals(2, loader.readBatch(sql, Long.class, Arrays.asList(1L, 2L, 3L), 2).get(1L).size());
+            assertTrue(readOnly.get());
+            loader.close();
+            assertTrue(readOnly.get());
+
+            JdbcDataLoader<Long> reused = ConnectionManager.get().getJdbcDataLoader("test.jdbc.reuse");
+            assertSame(loader, reused);
+            assertEquals(1, reused.readBatch(sql, Long.class, Collections.singletonList(2L), 2).get(2L).size());
+            assertEquals(1, prepared.get());
+            assertEquals(Collections.singletonList("SELECT KEY, VALUE FROM CODES WHERE KEY IN (?, ?) AND CODE <> :keys2"),
+                    statements);
+
+            JdbcDataLoader<Long> other = ConnectionManager.get().getJdbcDataLoader("test.jdbc.reuse");
+            assertNotSame(reused, other);
+            reused.close();
+            // Idle limit reached, the second loader releases its connection.
+            other.close();
+
+            ConnectionManager.get().addJdbcDataSource("test.jdbc.reuse", dataSource(new AtomicInteger()), 1);
+            assertFalse(readOnly.get());
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    private static DataSource dataSource(AtomicInteger prepared) {
+        return dataSource(prepared, new ArrayList<>(), new AtomicBoolean());
+    }
+
+    private static DataSource dataSource(AtomicInteger prepared, List<String> statements, AtomicBoolean readOnly) {
+        Connection connection = proxy(Connection.class, (proxy, name, args) -> {
+            switch (name) {
+                case "prepareStatement":
+                    prepared.incrementAndGet();
+                    statements.add((String) args[0]);
+                    return statement((String) args[0]);
+                case "isReadOnly":
+                    return readOnly.get();
+                case "setReadOnly":
+                    readOnly.set((Boolean) args[0]);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        return proxy(DataSource.class, (proxy, name, args) -> name.equals("getConnection") ? connection : null);
+    }
+
+    private static PreparedStatement statement(String sql) {
+        boolean keyed = sql.startsWith("SELECT KEY, VALUE");
+        boolean union = sql.contains(JdbcDataLoader.UNION_TUPLE_COLUMN);
+        List<Object> params = new ArrayList<>();
+        return proxy(PreparedStatement.class, (proxy, name, args) -> {
+            switch (name) {
+                case "setObject":
+                    int index = (Integer) args[0];
+                    while (params.size() < index) params.add(null);
+                    params.set(index - 1, args[1]);
+                    return null;
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "isClosed":
+                    return false;
+                case "executeQuery":
+                    List<Object[]> rows = new ArrayList<>();
+                    if (union) {
+                        // Each folded select binds one key, the tuple index is the parameter position.
+                        for (int ii = 0; ii < params.size(); ii++) {
+                            for (Object[] row : ROWS) {
+                                if (row[0].equals(params.get(ii))) rows.add(new Object[]{ii, row[1]});
+                            }
+                        }
+                        return resultSet(rows);
+                    }
+                    for (Object[] row : ROWS) {
+                        if (params.contains(row[0])) rows.add(keyed ? row : new Object[]{row[1]});
+                    }
+                    return resultSet(rows);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) {
+        int[] cursor = {-1};
+        Object[] last = {null};
+        return proxy(ResultSet.class, (proxy, name, args) -> {
+            switch (name) {
+                case "next":
+                    return ++cursor[0] < rows.size();
+                case "getInt":
+                case "getLong":
+                case "getObject":
+                    last[0] = rows.get(cursor[0])[(Integer) args[0] - 1];
+                    return (name.equals("getLong") && last[0] == null ? 0L : last[0]);
+                case "wasNull":
+                    return last[0] == null;
+                default:
+                    return null;
+            }
+        });
+    }
+}
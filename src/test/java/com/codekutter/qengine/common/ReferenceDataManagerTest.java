@@ -0,0 +1,451 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.values.ValueIndex;
+import com.codekutter.qengine.utils.LogUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static com.codekutter.qengine.common.TestStubs.proxy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceDataManagerTest {
+
+    @Test
+    void contains() {
+        try {
+            ReferenceDataManager.setup();
+            List<Long> codes = new ArrayList<>();
+            for (long ii = 0; ii < 10000; ii += 3) {
+                codes.add(ii);
+            }
+            ReferenceDataManager.get().put("test.codes", codes);
+            ReferenceDataManager.get().put("test.names", new DataType.DtString(), Arrays.asList("alpha", "beta"));
+
+            assertTrue(ReferenceDataManager.get().contains("test.codes", 9999L));
+            assertTrue(ReferenceDataManager.get().contains("test.codes", 3));
+            assertFalse(ReferenceDataManager.get().contains("test.codes", 10L));
+            assertTrue(ReferenceDataManager.get().contains("test.names", "beta"));
+            assertFalse(ReferenceDataManager.get().contains("test.names", "gamma"));
+            assertFalse(ReferenceDataManager.get().contains("test.missing", "alpha"));
+
+            Collection<Long> values = ReferenceDataManager.get().get("test.codes");
+            assertEquals(codes.size(), values.size());
+            assertThrows(UnsupportedOperationException.class, () -> values.add(1L));
+            assertEquals(2, ReferenceDataManager.get().<String>getAsync("test.names").get().size());
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void offHeap() {
+        try {
+            ReferenceDataManager.setup();
+            List<Long> codes = new ArrayList<>();
+            for (long ii = -4998; ii < 5000; ii += 7) {
+                codes.add(ii);
+            }
+            List<String> names = new ArrayList<>();
+            for (int ii = 0; ii < 2000; ii++) {
+                names.add(UUID.randomUUID().toString());
+            }
+            names.add("");
+            ReferenceDataManager.get().put("test.offheap.codes", new DataType.DtLong(), codes, true);
+            ReferenceDataManager.get().put("test.offheap.names", new DataType.DtString(), names, true);
+
+            for (Long code : codes) {
+                assertTrue(ReferenceDataManager.get().contains("test.offheap.codes", code));
+            }
+            assertTrue(ReferenceDataManager.get().contains("test.offheap.codes", 0L));
+            assertFalse(ReferenceDataManager.get().contains("test.offheap.codes", 1L));
+            for (String name : names) {
+                assertTrue(ReferenceDataManager.get().contains("test.offheap.names", name));
+            }
+            assertFalse(ReferenceDataManager.get().contains("test.offheap.names", UUID.randomUUID().toString()));
+
+            Collection<Long> values = ReferenceDataManager.get().get("test.offheap.codes");
+            assertEquals(codes.size(), values.size());
+            assertEquals(new HashSet<>(codes), new HashSet<>(values));
+            Collection<String> strings = ReferenceDataManager.get().get("test.offheap.names");
+            Set<String> read = new HashSet<>(strings);
+            assertEquals(new HashSet<>(names), read);
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void snapshot() {
+        try {
+            File dir = Files.createTempDirectory("qengine-snapshots").toFile();
+            dir.deleteOnExit();
+            List<Long> codes = new ArrayList<>();
+            for (long ii = -1000; ii < 1000; ii += 3) {
+                codes.add(ii);
+            }
+            DataType.DtLong dataType = new DataType.DtLong();
+            File file = ReferenceSnapshot.file(dir, "test.snapshot/codes");
+            file.deleteOnExit();
+            ReferenceSnapshot.write(file, dataType, ValueIndex.createOffHeap(dataType, codes));
+
+            ValueIndex index = ReferenceSnapshot.read(file, dataType);
+            assertNotNull(index);
+            assertEquals(codes.size(), index.size());
+            for (Long code : codes) {
+                assertTrue(index.contains(code));
+            }
+            assertFalse(index.contains(0L));
+            assertEquals(new HashSet<>(codes), new HashSet<>(index.values()));
+            assertNull(ReferenceSnapshot.read(file, new DataType.DtString()));
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(raf.length() - 1);
+                int b = raf.read();
+                raf.seek(raf.length() - 1);
+                raf.write(b ^ 0xFF);
+            }
+            assertNull(ReferenceSnapshot.read(file, dataType));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void warmStart() {
+        try {
+            ReferenceDataManager.setup();
+            ReferenceDataManager manager = ReferenceDataManager.get();
+            File dir = Files.createTempDirectory("qengine-warm").toFile();
+            dir.deleteOnExit();
+            DataType.DtLong dataType = new DataType.DtLong();
+            File file = ReferenceSnapshot.file(dir, "test.warm.codes");
+            file.deleteOnExit();
+            ReferenceSnapshot.write(file, dataType, ValueIndex.createOffHeap(dataType, Arrays.asList(100L, 200L)));
+
+            AtomicInteger loads = new AtomicInteger();
+            Gate gate = new Gate();
+            gate.close();
+            ConnectionManager.get().addHibernateSession("test.warm", countingFactory(loads, gate));
+            manager.snapshots(dir).register(list("test.warm.codes", "test.warm").snapshot(true));
+
+            // Served from the snapshot, the load from the data store runs in the background.
+            assertTrue(manager.contains("test.warm.codes", 100L));
+            assertTrue(manager.contains("test.warm.codes", 200L));
+            await(() -> gate.held.get() == 1);
+            assertTrue(manager.contains("test.warm.codes", 100L));
+
+            gate.open();
+            await(() -> manager.<Long>getAsync("test.warm.codes").getNow(null).contains(1L));
+            assertFalse(manager.contains("test.warm.codes", 100L));
+            assertEquals(1, loads.get());
+            // The snapshot is replaced with the loaded values.
+            await(() -> {
+                ValueIndex index = ReferenceSnapshot.read(file, dataType);
+                return (index != null && index.contains(1L));
+            });
+            File[] files = dir.listFiles();
+            assertNotNull(files);
+            assertEquals(1, files.length);
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void serializer() {
+        try {
+            Timestamp ts = new Timestamp(System.currentTimeMillis());
+            ts.setNanos(123456789);
+            List<Object> values = Arrays.asList(1L, 2, (short) 3, 4.5, 5.5f, "alpha", "", null, true, 1L,
+                    ts, new java.sql.Date(1000L), new Date(2000L), ConnectionManager.ConnectionTypes.File);
+            CollectionSerializer serializer = new CollectionSerializer();
+            ByteBuffer buffer = serializer.serialize(values);
+            Collection<?> read = serializer.read(buffer);
+            // Order, duplicates and timestamp nanos are kept.
+            assertEquals(values, new ArrayList<>(read));
+            assertEquals(123456789, ((Timestamp) new ArrayList<>(read).get(10)).getNanos());
+            assertTrue(serializer.equals(values, buffer));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void preload() {
+        try {
+            ReferenceDataManager.setup();
+            AtomicInteger queries = new AtomicInteger();
+            ConnectionManager.get().addHibernateSession("test.preload", HibernateDataLoaderTest.sessionFactory(queries));
+            List<String> names = new ArrayList<>();
+            for (long key = 1; key <= 3; key++) {
+                ExternalDataList el = new ExternalDataList("test.preload.batch." + key, new DataType.DtLong())
+                        .connection("test.preload")
+                        .connectionType(ConnectionManager.ConnectionTypes.Hibernate)
+                        .batchQuery("SELECT key, value FROM Codes WHERE key IN (:keys)")
+                        .batchKey(key);
+                ReferenceDataManager.get().register(el);
+                names.add(el.name());
+            }
+            for (long key = 1; key <= 2; key++) {
+                ExternalDataList el = new ExternalDataList("test.preload.union." + key, new DataType.DtLong())
+                        .connection("test.preload")
+                        .connectionType(ConnectionManager.ConnectionTypes.Hibernate)
+                        .query("SELECT value FROM Codes WHERE key = ?0")
+                        .params(Collections.singletonList(key));
+                ReferenceDataManager.get().register(el);
+                names.add(el.name());
+            }
+            ReferenceDataManager.get().batchSize(2).preload(names);
+            // 2 batch queries (3 keys, chunks of 2) + a query per union tuple.
+            assertEquals(4, queries.get());
+            assertTrue(ReferenceDataManager.get().contains("test.preload.batch.1", 11L));
+            assertTrue(ReferenceDataManager.get().contains("test.preload.batch.3", 30L));
+            assertFalse(ReferenceDataManager.get().contains("test.preload.batch.2", 10L));
+            assertTrue(ReferenceDataManager.get().contains("test.preload.union.2", 20L));
+            assertEquals(4, queries.get());
+
+            // Reloads of batch lists use the batch query, with the loaded lists of the group.
+            ReferenceDataManager.get().invalidate("test.preload.batch.2");
+            assertTrue(ReferenceDataManager.get().contains("test.preload.batch.2", 20L));
+            assertEquals(6, queries.get());
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        } finally {
+            try {
+                ReferenceDataManager.get().batchSize(QueryDataLoader.DEFAULT_BATCH_SIZE);
+            } catch (StateException ex) {
+                LogUtils.error(getClass(), ex);
+            }
+        }
+    }
+
+    @Test
+    void singleFlight() {
+        try {
+            ReferenceDataManager.setup();
+            AtomicInteger queries = new AtomicInteger();
+            CountDownLatch gate = new CountDownLatch(1);
+            ConnectionManager.get().addHibernateSession("test.flight", HibernateDataLoaderTest.sessionFactory(queries, gate));
+            ReferenceDataManager.get().register(list("test.flight.codes", "test.flight"));
+
+            List<CompletableFuture<Collection<Long>>> futures = new ArrayList<>();
+            for (int ii = 0; ii < 8; ii++) {
+                futures.add(ReferenceDataManager.get().getAsync("test.flight.codes"));
+            }
+            gate.countDown();
+            for (CompletableFuture<Collection<Long>> future : futures) {
+                assertEquals(Arrays.asList(10L, 11L), new ArrayList<>(future.get(5, TimeUnit.SECONDS)));
+            }
+            assertEquals(1, queries.get());
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void expire() {
+        try {
+            ReferenceDataManager.setup();
+            AtomicInteger queries = new AtomicInteger();
+            ConnectionManager.get().addHibernateSession("test.ttl", HibernateDataLoaderTest.sessionFactory(queries));
+            ReferenceDataManager.get().register(list("test.ttl.codes", "test.ttl").ttl(50));
+
+            assertTrue(ReferenceDataManager.get().contains("test.ttl.codes", 10L));
+            assertTrue(ReferenceDataManager.get().contains("test.ttl.codes", 11L));
+            assertEquals(1, queries.get());
+            Thread.sleep(100);
+            // Expired values are not served, the read blocks on a reload.
+            assertTrue(ReferenceDataManager.get().contains("test.ttl.codes", 10L));
+            assertEquals(2, queries.get());
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void refreshAfter() {
+        try {
+            ReferenceDataManager.setup();
+            ReferenceDataManager manager = ReferenceDataManager.get();
+            AtomicInteger loads = new AtomicInteger();
+            Gate gate = new Gate();
+            ConnectionManager.get().addHibernateSession("test.refresh", countingFactory(loads, gate));
+            manager.register(list("test.refresh.codes", "test.refresh").refreshAfter(200));
+
+            assertTrue(manager.contains("test.refresh.codes", 1L));
+            assertEquals(1, loads.get());
+            Thread.sleep(250);
+            // Stale values are served while the reload is blocked in the background.
+            gate.close();
+            assertTrue(manager.contains("test.refresh.codes", 1L));
+            assertTrue(manager.contains("test.refresh.codes", 1L));
+            await(() -> gate.held.get() == 1);
+            assertTrue(manager.contains("test.refresh.codes", 1L));
+            assertEquals(2, loads.get());
+
+            gate.open();
+            await(() -> manager.<Long>getAsync("test.refresh.codes").getNow(null).contains(2L));
+            assertFalse(manager.contains("test.refresh.codes", 1L));
+            assertEquals(2, loads.get());
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void refreshAhead() {
+        try {
+            ReferenceDataManager.setup();
+            ReferenceDataManager manager = ReferenceDataManager.get();
+            AtomicInteger loads = new AtomicInteger();
+            Gate gate = new Gate();
+            ConnectionManager.get().addHibernateSession("test.ahead", countingFactory(loads, gate));
+            manager.register(list("test.ahead.codes", "test.ahead").refreshAfter(50).refreshAhead(true));
+
+            assertTrue(manager.contains("test.ahead.codes", 1L));
+            // Reloaded by the scheduled refresh, each completed load schedules the next one.
+            await(() -> loads.get() >= 3);
+
+            // Invalidate while a scheduled reload is in flight, it is neither published nor rescheduled.
+            gate.close();
+            await(() -> gate.held.get() == 1);
+            manager.invalidate("test.ahead.codes");
+            int count = loads.get();
+            gate.open();
+            Thread.sleep(200);
+            assertEquals(count, loads.get());
+
+            // The next read reloads.
+            assertTrue(manager.contains("test.ahead.codes", (long) count + 1));
+            assertEquals(count + 1, loads.get());
+            manager.invalidate("test.ahead.codes");
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    /**
+     * Holds the loads passing it while closed.
+     */
+    private static final class Gate {
+        private final AtomicInteger held = new AtomicInteger();
+        private volatile CountDownLatch latch;
+
+        private void close() {
+            held.set(0);
+            latch = new CountDownLatch(1);
+        }
+
+        private void open() {
+            CountDownLatch current = latch;
+            latch = null;
+            current.countDown();
+        }
+
+        private void pass() throws InterruptedException {
+            CountDownLatch current = latch;
+            if (current != null) {
+                held.incrementAndGet();
+                current.await(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Session factory counting the loads, each load returns the load count as the only value.
+     */
+    @SuppressWarnings("rawtypes")
+    private static SessionFactory countingFactory(AtomicInteger loads, Gate gate) {
+        Query query = proxy(Query.class, (proxy, name, args) -> {
+            if (name.equals("getResultList")) {
+                long count = loads.incrementAndGet();
+                gate.pass();
+                return new ArrayList<>(Collections.singletonList(count));
+            }
+            return null;
+        });
+        Session session = proxy(Session.class, (proxy, name, args) -> {
+            switch (name) {
+                case "createQuery":
+                    return query;
+                case "isOpen":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+        return proxy(SessionFactory.class, (proxy, name, args) -> name.equals("openSession") ? session : null);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < timeout, "Timed out waiting for condition.");
+            Thread.sleep(5);
+        }
+    }
+
+    private static ExternalDataList list(String name, String connection) {
+        return new ExternalDataList(name, new DataType.DtLong())
+                .connection(connection)
+                .connectionType(ConnectionManager.ConnectionTypes.Hibernate)
+                .query("SELECT value FROM Codes WHERE key = ?0")
+                .params(Collections.singletonList(1L));
+    }
+}
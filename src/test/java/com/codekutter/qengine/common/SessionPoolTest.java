@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import com.codekutter.qengine.utils.LogUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.codekutter.qengine.common.TestStubs.proxy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionPoolTest {
+
+    @Test
+    void borrow() {
+        try {
+            SessionPool pool = new SessionPool("test", sessionFactory(), 2, 1, 50);
+            StatelessSession s1 = pool.borrow();
+            StatelessSession s2 = pool.borrow();
+            assertNotSame(s1, s2);
+            assertEquals(2, pool.active());
+            assertThrows(DataStoreException.class, pool::borrow);
+
+            pool.release(s1);
+            pool.release(s2);
+            assertEquals(0, pool.active());
+            assertEquals(1, pool.idle());
+            assertFalse(s1.isOpen() && s2.isOpen());
+
+            StatelessSession s3 = pool.borrow();
+            assertTrue(s3 == s1 || s3 == s2);
+            assertEquals(2, pool.createdCount());
+            assertEquals(3, pool.borrowCount());
+
+            pool.leakTimeout(1).idleTimeout(1);
+            Thread.sleep(5);
+            pool.evict();
+            assertEquals(1, pool.leakCount());
+            pool.release(s3);
+            Thread.sleep(5);
+            pool.evict();
+            assertEquals(0, pool.idle());
+            assertFalse(s3.isOpen());
+
+            StatelessSession s4 = pool.borrow();
+            pool.release(s4, true);
+            assertEquals(0, pool.idle());
+            assertFalse(s4.isOpen());
+            pool.close();
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    private static SessionFactory sessionFactory() {
+        return proxy(SessionFactory.class, (proxy, name, args) -> {
+            if (name.equals("openStatelessSession")) {
+                return session();
+            }
+            throw new UnsupportedOperationException(name);
+        });
+    }
+
+    private static StatelessSession session() {
+        AtomicBoolean open = new AtomicBoolean(true);
+        return proxy(StatelessSession.class, (proxy, name, args) -> {
+            switch (name) {
+                case "isOpen":
+                case "isConnected":
+                    return open.get();
+                case "close":
+                    open.set(false);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+}
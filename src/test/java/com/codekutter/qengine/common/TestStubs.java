@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.common;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Interface stubs for data store tests (JDBC, Hibernate) using dynamic proxies.
+ * Object methods (hashCode, equals, toString) use the proxy identity, all other
+ * calls are passed to the handler.
+ */
+public class TestStubs {
+    public interface Handler {
+        Object handle(Object proxy, String method, Object[] args) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(TestStubs.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return type.getSimpleName() + "@" + System.identityHashCode(proxy);
+                        default:
+                            return handler.handle(proxy, method.getName(), args);
+                    }
+                });
+    }
+}
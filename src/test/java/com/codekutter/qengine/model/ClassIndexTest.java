@@ -24,15 +24,20 @@
 package com.codekutter.qengine.model;
 
 import com.codekutter.qengine.common.QueryCacheManager;
+import com.codekutter.qengine.model.values.FieldAccessor;
 import com.codekutter.qengine.model.values.FieldPath;
 import com.codekutter.qengine.utils.LogUtils;
 import com.codekutter.qengine.utils.TestClasses;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assertions.*;
 
 class ClassIndexTest {
 
@@ -116,9 +121,100 @@ class ClassIndexTest {
             assertNotNull(value);
             LogUtils.info(getClass(), String.format("Value = %s", value));
 
+            path = "tc/list[5]";
+            fp = idx.parse(path);
+            value = idx.getFieldValue(outer, fp);
+            assertEquals(outer.tc().getList().get(5), value);
+
+            path = "tc/values[" + kv + "]/name";
+            fp = idx.parse(path);
+            FieldAccessor accessor = fp.accessor(idx);
+            assertSame(accessor, fp.accessor(idx));
+            assertEquals(kv, accessor.get(outer));
+            assertNotNull(accessor.leaf());
+            assertEquals(kv, accessor.leaf().getValue(accessor.getParent(outer)));
+
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void accessors() {
+        try {
+            TestClasses.TestClassOuter outer = new TestClasses.TestClassOuter();
+            outer.dv(((double) System.currentTimeMillis()) / 3.142);
+            outer.sv(UUID.randomUUID().toString());
+
+            ClassIndex<TestClasses.TestClassOuter> idx = QueryCacheManager.get().getClassIndex(TestClasses.TestClassOuter.class);
+            ClassIndex.IndexedField ff = idx.find("dv");
+            assertNotNull(ff);
+            assertNotNull(ff.doubleAccessor());
+            assertNull(ff.longAccessor());
+            assertEquals(outer.dv(), ff.doubleAccessor().applyAsDouble(outer));
+            assertEquals(outer.dv(), ff.getValue(outer));
+            assertEquals(outer.dv(), (Object) ff.handle().invokeExact((Object) outer));
+
+            ff = idx.find("sv");
+            assertNotNull(ff);
+            assertNull(ff.doubleAccessor());
+            assertEquals(outer.sv(), ff.getValue(outer));
+
+            TestClasses.TestClassInner inner = new TestClasses.TestClassInner();
+            inner.value(42);
+            ff = idx.find("tc/values/value");
+            assertNotNull(ff);
+            assertEquals(42, ff.intAccessor().applyAsInt(inner));
+            assertEquals(42L, ff.longAccessor().applyAsLong(inner));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void recursiveSetup() {
+        try {
+            QueryCacheManager.get().evict(TestClasses.TestNodeA.class);
+            QueryCacheManager.get().evict(TestClasses.TestNodeB.class);
+            ClassIndex<TestClasses.TestNodeA> idx = QueryCacheManager.get().getClassIndex(TestClasses.TestNodeA.class);
+            assertNotNull(idx.find("name"));
+            assertNotNull(idx.find("parent"));
+            assertNotNull(idx.find("node/id"));
+            assertNotNull(idx.find("node/nodes"));
+            LogUtils.debug(getClass(), idx.toString());
+            // B copied the partial index of A, and is rebuilt (and cached) once A completes.
+            assertTrue(QueryCacheManager.get().cached(TestClasses.TestNodeB.class));
+
+            ClassIndex<TestClasses.TestNodeB> bdx = QueryCacheManager.get().getClassIndex(TestClasses.TestNodeB.class);
+            assertNotNull(bdx.find("nodes/name"));
+            assertNotNull(bdx.find("nodes/node"));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void concurrentSetup() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            QueryCacheManager.get().evict(TestClasses.TestClassOuter.class);
+            List<Future<ClassIndex<TestClasses.TestClassOuter>>> futures = new ArrayList<>();
+            for (int ii = 0; ii < 32; ii++) {
+                futures.add(executor.submit(() -> QueryCacheManager.get().getClassIndex(TestClasses.TestClassOuter.class)));
+            }
+            ClassIndex<TestClasses.TestClassOuter> idx = futures.get(0).get();
+            assertNotNull(idx);
+            for (Future<ClassIndex<TestClasses.TestClassOuter>> future : futures) {
+                assertSame(idx, future.get());
+            }
         } catch (Throwable t) {
             LogUtils.error(getClass(), t);
             fail(t);
+        } finally {
+            executor.shutdownNow();
         }
     }
-}
\ No newline at end of file
+}
@@ -103,6 +103,34 @@ class DataTypeTest {
         }
     }
 
+    @Test
+    void comparePrimitives() {
+        try {
+            DataType.DtLong lt = new DataType.DtLong();
+            assertTrue(lt.compareValue(Long.MAX_VALUE, -1L) > 0);
+            assertTrue(lt.compareValue(Long.MIN_VALUE, 1) < 0);
+            assertEquals(0, lt.compareValue(7, 7L));
+            assertTrue(lt.compareValue("12", 3L) > 0);
+
+            DataType.DtDouble dt = new DataType.DtDouble();
+            assertTrue(dt.compareValue(1.2, 1.5) < 0);
+            assertTrue(dt.compareValue(1.5f, 1) > 0);
+
+            DataType.DtTimestamp tt = new DataType.DtTimestamp();
+            Timestamp t1 = new Timestamp(1000L);
+            Timestamp t2 = new Timestamp(1000L);
+            t2.setNanos(t1.getNanos() + 1);
+            assertTrue(tt.compareValue(t1, t2) < 0);
+
+            assertEquals(DataType.Coercion.Double, DataType.Coercion.plan(lt, dt));
+            assertEquals(DataType.Coercion.Long, DataType.Coercion.plan(lt, new DataType.DtInteger()));
+            assertEquals(DataType.Coercion.None, DataType.Coercion.plan(lt, new DataType.DtString()));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
     public enum TestEnum {
         ONE, TWO, THREE
     }
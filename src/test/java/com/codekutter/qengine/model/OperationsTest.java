@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model;
+
+import com.codekutter.qengine.model.values.Field;
+import com.codekutter.qengine.utils.LogUtils;
+import com.codekutter.qengine.utils.TestClasses;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationsTest {
+
+    @Test
+    void aggregates() {
+        try {
+            long[] longs = new long[]{5, -3, 12, 7, 0};
+            assertEquals(21, Operations.sum(longs));
+            assertEquals(16, Operations.sum(longs, 1, 4));
+            assertEquals(-3, Operations.min(longs, 0, longs.length));
+            assertEquals(12, Operations.max(longs, 0, longs.length));
+            assertEquals(4.2, Operations.avg(longs, 0, longs.length), 1e-9);
+            assertTrue(Double.isNaN(Operations.avg(longs, 2, 2)));
+            assertThrows(OperationException.class, () -> Operations.min(longs, 2, 2));
+            assertThrows(OperationException.class,
+                    () -> Operations.sumExact(new long[]{Long.MAX_VALUE, 1}, 0, 2));
+
+            double[] doubles = new double[10001];
+            doubles[0] = 1e16;
+            for (int ii = 1; ii < doubles.length; ii++) {
+                doubles[ii] = 1.0;
+            }
+            assertEquals(1e16 + 10000, Operations.sumCompensated(doubles, 0, doubles.length), 0);
+            assertEquals(10000, Operations.sum(doubles, 1, doubles.length), 0);
+            assertEquals(1.0, Operations.min(doubles, 0, doubles.length));
+            assertEquals(1e16, Operations.max(doubles, 0, doubles.length));
+
+            Query<TestClasses.TestClassOuter> query = new Query<>(TestClasses.TestClassOuter.class);
+            Object[] records = new Object[20];
+            for (int ii = 0; ii < records.length; ii++) {
+                TestClasses.TestClassOuter record = new TestClasses.TestClassOuter();
+                record.dv(ii * 0.5);
+                records[ii] = record;
+            }
+            BatchContext context = new BatchContext(records);
+            BitSet selection = new BitSet();
+            selection.set(4, 10);
+            double[] column = context.doubleColumn(new Field<>(query, TestClasses.TestClassOuter.class, new DataType.DtDouble()).withPath("dv"), selection);
+            assertEquals(6, column.length);
+            assertEquals(19.5, Operations.sum(column, 0, column.length), 0);
+            assertEquals(3.25, Operations.avg(column, 0, column.length), 0);
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+}
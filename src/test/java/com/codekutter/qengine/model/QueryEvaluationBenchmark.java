@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.utils.TestClasses;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the interpreted condition tree against the compiled query
+ * and the batch (column-wise) evaluation.
+ * Run using the main method (test classpath).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryEvaluationBenchmark {
+    private static final int RECORD_COUNT = 1024;
+
+    private Query<TestClasses.TestClassOuter> query;
+    private CompiledQuery<TestClasses.TestClassOuter> compiled;
+    private TestClasses.TestClassOuter[] records;
+
+    @Setup
+    public void setup() throws Exception {
+        String sv = UUID.randomUUID().toString();
+        query = QueryTest.buildQuery(sv, 100.0);
+        compiled = query.compile();
+        records = new TestClasses.TestClassOuter[RECORD_COUNT];
+        for (int ii = 0; ii < RECORD_COUNT; ii++) {
+            TestClasses.TestClassOuter outer = new TestClasses.TestClassOuter();
+            outer.sv(ii % 2 == 0 ? sv : UUID.randomUUID().toString());
+            outer.dv(ii % 3 == 0 ? 100.0 : ii);
+            records[ii] = outer;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void interpreted(Blackhole bh) throws EvaluationException {
+        for (TestClasses.TestClassOuter record : records) {
+            bh.consume(query.evaluate(record));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void compiled(Blackhole bh) throws EvaluationException {
+        for (TestClasses.TestClassOuter record : records) {
+            bh.consume(compiled.evaluate(record));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORD_COUNT)
+    public void batch(Blackhole bh) throws EvaluationException {
+        bh.consume(query.evaluate(records));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(QueryEvaluationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
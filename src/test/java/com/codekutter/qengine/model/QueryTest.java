@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model;
+
+import com.codekutter.qengine.model.conditions.And;
+import com.codekutter.qengine.model.conditions.BaseCondition;
+import com.codekutter.qengine.model.conditions.Equals;
+import com.codekutter.qengine.model.conditions.Not;
+import com.codekutter.qengine.model.values.Constant;
+import com.codekutter.qengine.model.values.Field;
+import com.codekutter.qengine.utils.LogUtils;
+import com.codekutter.qengine.utils.TestClasses;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryTest {
+
+    static Query<TestClasses.TestClassOuter> buildQuery(String sv, double dv) throws Exception {
+        Query<TestClasses.TestClassOuter> query = new Query<>(TestClasses.TestClassOuter.class);
+
+        Equals<TestClasses.TestClassOuter, String> se = new Equals<>(query, new DataType.DtString());
+        se.left(new Field<>(query, TestClasses.TestClassOuter.class, new DataType.DtString()).withPath("sv"));
+        se.right(new Constant<>(query, new DataType.DtString()).value(sv));
+
+        Equals<TestClasses.TestClassOuter, Double> de = new Equals<>(query, new DataType.DtDouble());
+        de.left(new Field<>(query, TestClasses.TestClassOuter.class, new DataType.DtDouble()).withPath("dv"));
+        de.right(new Constant<>(query, new DataType.DtDouble()).value(String.valueOf(dv)));
+
+        Not<TestClasses.TestClassOuter> not = new Not<>(query);
+        not.condition(de);
+
+        And<TestClasses.TestClassOuter> and = new And<>(query);
+        and.left(se);
+        and.right(not);
+
+        query.condition(and);
+        return query;
+    }
+
+    private static BaseCondition<TestClasses.TestClassOuter> root(Query<TestClasses.TestClassOuter> query) {
+        return (BaseCondition<TestClasses.TestClassOuter>) query.condition();
+    }
+
+    @Test
+    void evaluate() {
+        try {
+            String sv = UUID.randomUUID().toString();
+            Query<TestClasses.TestClassOuter> query = buildQuery(sv, 100.0);
+            LogUtils.debug(getClass(), query.condition().printString());
+
+            TestClasses.TestClassOuter outer = new TestClasses.TestClassOuter();
+            outer.sv(sv);
+            outer.dv(200.0);
+            assertTrue(query.evaluate(outer));
+
+            outer.dv(100.0);
+            assertFalse(query.evaluate(outer));
+
+            outer.dv(200.0);
+            outer.sv(UUID.randomUUID().toString());
+            assertFalse(query.evaluate(outer));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void compile() {
+        try {
+            String sv = UUID.randomUUID().toString();
+            Query<TestClasses.TestClassOuter> query = buildQuery(sv, 100.0);
+            CompiledQuery<TestClasses.TestClassOuter> compiled = query.compile();
+            assertNotNull(compiled);
+
+            for (int ii = 0; ii < 100; ii++) {
+                TestClasses.TestClassOuter outer = new TestClasses.TestClassOuter();
+                outer.sv(ii % 2 == 0 ? sv : UUID.randomUUID().toString());
+                outer.dv(ii % 3 == 0 ? 100.0 : ii);
+                assertEquals(query.evaluate(outer), compiled.evaluate(outer));
+                assertEquals(query.evaluate(outer), compiled.test(outer));
+            }
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void prepare() {
+        try {
+            String sv = UUID.randomUUID().toString();
+            Query<TestClasses.TestClassOuter> query = buildQuery(sv, 100.0);
+            query.prepare();
+            assertTrue(query.prepared());
+            assertTrue(query.condition().prepared());
+
+            TestClasses.TestClassOuter outer = new TestClasses.TestClassOuter();
+            outer.sv(sv);
+            outer.dv(200.0);
+            assertTrue(query.evaluate(outer));
+            outer.dv(100.0);
+            assertFalse(query.evaluate(outer));
+
+            assertThrows(IllegalStateException.class, () -> query.condition(query.condition()));
+            assertThrows(IllegalStateException.class, () -> root(query).left(root(query).right()));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void filter() {
+        try {
+            String sv = UUID.randomUUID().toString();
+            Query<TestClasses.TestClassOuter> query = buildQuery(sv, 100.0);
+            List<TestClasses.TestClassOuter> records = new ArrayList<>();
+            for (int ii = 0; ii < 200; ii++) {
+                TestClasses.TestClassOuter outer = new TestClasses.TestClassOuter();
+                outer.sv(ii % 2 == 0 ? sv : UUID.randomUUID().toString());
+                outer.dv(ii % 3 == 0 ? 100.0 : ii);
+                records.add(outer);
+            }
+            BitSet selection = query.filter(records);
+            assertNotNull(selection);
+            assertTrue(selection.cardinality() > 0);
+            for (int ii = 0; ii < records.size(); ii++) {
+                assertEquals(query.evaluate(records.get(ii)), selection.get(ii));
+            }
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void filterParallel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            String sv = UUID.randomUUID().toString();
+            Query<TestClasses.TestClassOuter> query = buildQuery(sv, 100.0);
+            query.splitSize(100).pool(pool);
+            assertEquals(128, query.splitSize());
+
+            List<TestClasses.TestClassOuter> records = new ArrayList<>();
+            for (int ii = 0; ii < 5001; ii++) {
+                TestClasses.TestClassOuter outer = new TestClasses.TestClassOuter();
+                outer.sv(ii % 2 == 0 ? sv : UUID.randomUUID().toString());
+                outer.dv(ii % 3 == 0 ? 100.0 : ii);
+                records.add(outer);
+            }
+            BitSet selection = query.filterParallel(records);
+            assertEquals(query.filter(records), selection);
+            for (int ii = 0; ii < records.size(); ii++) {
+                assertEquals(query.evaluate(records.get(ii)), selection.get(ii));
+            }
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void optimize() {
+        try {
+            String sv = UUID.randomUUID().toString();
+            Query<TestClasses.TestClassOuter> query = buildQuery(sv, 100.0);
+            assertFalse(root(query).leftFirst());
+            query.prepare();
+            // Estimated: the equality (left) rejects more records than the negation.
+            assertTrue(root(query).leftFirst());
+
+            TestClasses.TestClassOuter outer = new TestClasses.TestClassOuter();
+            outer.sv(sv);
+            outer.dv(100.0);
+            // Outcomes are sampled, evaluate enough records to collect MIN_SAMPLES observations.
+            for (int ii = 0; ii < BooleanVertex.MIN_SAMPLES * BooleanVertex.SAMPLE_RATE * 4; ii++) {
+                assertFalse(query.evaluate(outer));
+            }
+            query.optimize();
+            // Observed: the equality always matches, the negation rejects.
+            assertFalse(root(query).leftFirst());
+            assertFalse(query.evaluate(outer));
+            outer.dv(200.0);
+            assertTrue(query.evaluate(outer));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+}
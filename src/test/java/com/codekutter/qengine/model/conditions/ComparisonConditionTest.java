@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.conditions;
+
+import com.codekutter.qengine.model.BatchContext;
+import com.codekutter.qengine.model.BooleanVertex;
+import com.codekutter.qengine.model.CompiledCondition;
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.values.Constant;
+import com.codekutter.qengine.model.values.ConstantCollection;
+import com.codekutter.qengine.model.values.Field;
+import com.codekutter.qengine.utils.LogUtils;
+import com.codekutter.qengine.utils.TestClasses;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonConditionTest {
+    private final Query<TestClasses.TestClassOuter> query = new Query<>(TestClasses.TestClassOuter.class);
+
+    @Test
+    void compare() {
+        try {
+            LessThan<TestClasses.TestClassOuter, Double> lt = new LessThan<>(query, new DataType.DtDouble());
+            lt.left(dv()).right(constant("10.5"));
+            check(lt, r -> r.dv() < 10.5);
+
+            GreaterThan<TestClasses.TestClassOuter, Double> ge = new GreaterThan<>(query, new DataType.DtDouble()).inclusive(true);
+            ge.left(constant("10.5")).right(dv());
+            check(ge, r -> 10.5 >= r.dv());
+
+            NotEquals<TestClasses.TestClassOuter, Double> ne = new NotEquals<>(query, new DataType.DtDouble());
+            ne.left(dv()).right(constant("12"));
+            check(ne, r -> r.dv() != 12);
+
+            Between<TestClasses.TestClassOuter, Double> bt = new Between<>(query, new DataType.DtDouble())
+                    .value(dv()).lower(constant("5")).upper(constant("15.5"));
+            check(bt, r -> r.dv() >= 5 && r.dv() <= 15.5);
+
+            ConstantCollection<TestClasses.TestClassOuter, Double> values = new ConstantCollection<>(query, new DataType.DtDouble());
+            values.add(1.0).add(7.5).add(19.0);
+            In<TestClasses.TestClassOuter> in = new In<>(query);
+            in.left(dv()).right(values);
+            check(in, r -> r.dv() == 1.0 || r.dv() == 7.5 || r.dv() == 19.0);
+
+            IsNull<TestClasses.TestClassOuter> isNull = new IsNull<>(query)
+                    .value(new Field<>(query, TestClasses.TestClassOuter.class, new DataType.DtString()).withPath("sv"));
+            check(isNull, r -> r.sv() == null);
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    private Field<TestClasses.TestClassOuter, Double> dv() throws Exception {
+        return new Field<>(query, TestClasses.TestClassOuter.class, new DataType.DtDouble()).withPath("dv");
+    }
+
+    private Constant<TestClasses.TestClassOuter, Double> constant(String value) {
+        return new Constant<>(query, new DataType.DtDouble()).value(value);
+    }
+
+    /**
+     * Check the interpreted, compiled, prepared and batch evaluation against the expected predicate.
+     */
+    private void check(BooleanVertex<TestClasses.TestClassOuter> condition,
+                       Predicate<TestClasses.TestClassOuter> expected) throws Exception {
+        Object[] records = new Object[40];
+        for (int ii = 0; ii < records.length; ii++) {
+            TestClasses.TestClassOuter record = new TestClasses.TestClassOuter();
+            record.dv(ii * 0.5);
+            record.sv(ii % 3 == 0 ? null : String.valueOf(ii));
+            records[ii] = record;
+        }
+        CompiledCondition compiled = condition.compile();
+        for (Object record : records) {
+            boolean result = expected.test((TestClasses.TestClassOuter) record);
+            assertEquals(result, condition.evaluate(record), condition.printString());
+            assertEquals(result, compiled.test(record), condition.printString());
+        }
+        condition.prepare();
+        BatchContext context = new BatchContext(records);
+        BitSet selection = condition.evaluate(context, context.all());
+        for (int ii = 0; ii < records.length; ii++) {
+            boolean result = expected.test((TestClasses.TestClassOuter) records[ii]);
+            assertEquals(result, condition.evaluate(records[ii]), condition.printString());
+            assertEquals(result, selection.get(ii), condition.printString());
+        }
+    }
+}
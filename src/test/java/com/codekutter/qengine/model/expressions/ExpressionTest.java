@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.expressions;
+
+import com.codekutter.qengine.common.EvaluationException;
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.BatchContext;
+import com.codekutter.qengine.model.CompiledValue;
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.model.values.Constant;
+import com.codekutter.qengine.model.values.Field;
+import com.codekutter.qengine.model.values.ValueDefinition;
+import com.codekutter.qengine.utils.LogUtils;
+import com.codekutter.qengine.utils.TestClasses;
+import lombok.NonNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionTest {
+    private final Query<TestClasses.TestClassOuter> query = new Query<>(TestClasses.TestClassOuter.class);
+
+    @Test
+    void fold() {
+        try {
+            Arithmetic<TestClasses.TestClassOuter, Double> product = arithmetic(Arithmetic.Operator.Multiply)
+                    .operand(constant("2")).operand(constant("3.5"));
+            Arithmetic<TestClasses.TestClassOuter, Double> sum = arithmetic(Arithmetic.Operator.Add);
+            sum.operand(new Field<>(query, TestClasses.TestClassOuter.class, new DataType.DtDouble()).withPath("dv"))
+                    .operand(product);
+            sum.prepare();
+            assertTrue(sum.operands().get(1) instanceof Constant);
+            assertEquals(7.0, ((Constant<?, ?>) sum.operands().get(1)).getTypedValue());
+
+            TestClasses.TestClassOuter record = new TestClasses.TestClassOuter();
+            record.dv(1.5);
+            assertEquals(8.5, sum.evaluate(record));
+            assertEquals(8.5, sum.compile().get(record));
+
+            Arithmetic<TestClasses.TestClassOuter, Double> divide = arithmetic(Arithmetic.Operator.Divide)
+                    .operand(constant("1"));
+            assertThrows(Exception.class, divide::prepare);
+
+            Concat<TestClasses.TestClassOuter> concat = new Concat<>(query);
+            concat.operand(new Constant<>(query, new DataType.DtString()).value("value-"))
+                    .operand(new Substring<>(query).position(0).length(2)
+                            .operand(new Field<>(query, TestClasses.TestClassOuter.class, new DataType.DtString()).withPath("sv")));
+            record.sv("abcd");
+            assertEquals("value-ab", concat.compile().get(record));
+            record.sv(null);
+            assertNull(concat.compile().get(record));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void commonSubExpressions() {
+        try {
+            AtomicInteger reads = new AtomicInteger();
+            // (dv + dv) * (dv + 1), the two (dv + dv) and all dv references are shared.
+            Arithmetic<TestClasses.TestClassOuter, Double> expression = arithmetic(Arithmetic.Operator.Multiply)
+                    .operand(arithmetic(Arithmetic.Operator.Add).operand(counted(reads)).operand(counted(reads)))
+                    .operand(arithmetic(Arithmetic.Operator.Add).operand(counted(reads)).operand(counted(reads)))
+                    .operand(arithmetic(Arithmetic.Operator.Add).operand(counted(reads)).operand(constant("1")));
+            expression.prepare();
+            assertSame(expression.operands().get(0), expression.operands().get(1));
+
+            CompiledValue compiled = expression.compile();
+            Object[] records = new Object[10];
+            for (int ii = 0; ii < records.length; ii++) {
+                TestClasses.TestClassOuter record = new TestClasses.TestClassOuter();
+                record.dv(ii);
+                records[ii] = record;
+                assertEquals((2.0 * ii) * (2.0 * ii) * (ii + 1), compiled.get(record));
+            }
+            assertEquals(records.length, reads.get());
+
+            reads.set(0);
+            BatchContext context = new BatchContext(records);
+            Object[] values = context.column(expression, context.all());
+            assertEquals(records.length, reads.get());
+            for (int ii = 0; ii < records.length; ii++) {
+                assertEquals((2.0 * ii) * (2.0 * ii) * (ii + 1), values[ii]);
+            }
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void primitives() {
+        try {
+            // Fields on the same path with different types are not shared.
+            Arithmetic<TestClasses.TestClassOuter, Long> difference = new Arithmetic<>(query, new DataType.DtLong(), Arithmetic.Operator.Subtract);
+            difference.operand(new Field<>(query, TestClasses.TestClassOuter.class, new DataType.DtLong()).withPath("dv"))
+                    .operand(new Field<>(query, TestClasses.TestClassOuter.class, new DataType.DtDouble()).withPath("dv"));
+            difference.prepare();
+            assertNotSame(difference.operands().get(0), difference.operands().get(1));
+
+            TestClasses.TestClassOuter record = new TestClasses.TestClassOuter();
+            record.dv(7.9);
+            assertEquals(0L, difference.compile().get(record));
+            assertEquals(4L, difference.apply(9, 5L));
+            assertEquals(2.5, arithmetic(Arithmetic.Operator.Divide).apply(5L, 2.0));
+            assertNull(difference.apply(null, 5L));
+            Arithmetic<TestClasses.TestClassOuter, Long> divide = new Arithmetic<>(query, new DataType.DtLong(), Arithmetic.Operator.Divide);
+            assertThrows(EvaluationException.class, () -> divide.apply(1L, 0L));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    @Test
+    void parse() {
+        try {
+            String input = "(`field:dv` + (2 * 3.5) + (`field:dv` - 1))";
+            Arithmetic<TestClasses.TestClassOuter, Double> sum = arithmetic(Arithmetic.Operator.Add);
+            sum.parse(input);
+            assertEquals(3, sum.operands().size());
+            assertTrue(sum.operands().get(0) instanceof Field);
+            assertEquals(Arithmetic.Operator.Multiply, ((Arithmetic<?, ?>) sum.operands().get(1)).operator());
+            assertEquals(input, sum.printString());
+            sum.prepare();
+            TestClasses.TestClassOuter record = new TestClasses.TestClassOuter();
+            record.dv(1.5);
+            assertEquals(9.0, sum.evaluate(record));
+
+            assertThrows(ValidationException.class, () -> arithmetic(Arithmetic.Operator.Add).parse("(`field:dv` + )"));
+            assertThrows(ValidationException.class, () -> arithmetic(Arithmetic.Operator.Add).parse("`field:dv` + 1"));
+            assertThrows(ValidationException.class, () -> arithmetic(Arithmetic.Operator.Add).parse("(1 + (`field:sv` || x))"));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    private Arithmetic<TestClasses.TestClassOuter, Double> arithmetic(Arithmetic.Operator operator) {
+        return new Arithmetic<>(query, new DataType.DtDouble(), operator);
+    }
+
+    private Constant<TestClasses.TestClassOuter, Double> constant(String value) {
+        return new Constant<>(query, new DataType.DtDouble()).value(value);
+    }
+
+    /**
+     * Field value that counts the number of reads, all instances share the same column key.
+     */
+    private ValueDefinition<TestClasses.TestClassOuter, Double> counted(AtomicInteger reads) {
+        return new ValueDefinition<TestClasses.TestClassOuter, Double>(query, ValueDefinition.ValueType.Field, new DataType.DtDouble()) {
+            @Override
+            public Object evaluate(@NonNull Object data) throws EvaluationException {
+                reads.incrementAndGet();
+                return ((TestClasses.TestClassOuter) data).dv();
+            }
+
+            @Override
+            public Object columnKey() {
+                return "counted:dv";
+            }
+
+            @Override
+            public void parse(@NonNull String input) {
+            }
+
+            @Override
+            public String printString() {
+                return "dv";
+            }
+        };
+    }
+}
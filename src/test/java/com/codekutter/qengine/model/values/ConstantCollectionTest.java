@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.values;
+
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.utils.LogUtils;
+import com.codekutter.qengine.utils.TestClasses;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstantCollectionTest {
+
+    @Test
+    void contains() {
+        try {
+            Query<TestClasses.TestClassOuter> query = new Query<>(TestClasses.TestClassOuter.class);
+
+            ConstantCollection<TestClasses.TestClassOuter, Long> lc = new ConstantCollection<>(query, new DataType.DtLong());
+            for (long ii = 0; ii < 5000; ii += 5) {
+                lc.add(ii);
+            }
+            lc.prepare();
+            assertTrue(lc.contains(0L));
+            assertTrue(lc.contains(4995L));
+            assertFalse(lc.contains(4996L));
+            assertTrue(lc.contains(Arrays.asList(5L, 10L)));
+            assertFalse(lc.contains(Arrays.asList(5L, 11L)));
+            assertThrows(IllegalStateException.class, () -> lc.add(1L));
+
+            ConstantCollection<TestClasses.TestClassOuter, Double> dc = new ConstantCollection<>(query, new DataType.DtDouble());
+            dc.add(1.5).add(-0.25);
+            assertTrue(dc.contains(1.5));
+            assertFalse(dc.contains(1.25));
+
+            String sv = UUID.randomUUID().toString();
+            ConstantCollection<TestClasses.TestClassOuter, String> sc = new ConstantCollection<>(query, new DataType.DtString());
+            sc.add(sv).add(UUID.randomUUID().toString());
+            assertTrue(sc.contains(sv));
+            assertFalse(sc.contains(UUID.randomUUID().toString()));
+
+            long now = System.currentTimeMillis();
+            ConstantCollection<TestClasses.TestClassOuter, Date> tc = new ConstantCollection<>(query, new DataType.DtDateTime());
+            tc.add(new Date(now)).add(new Date(now - 1000)).add(new Date(now));
+            assertEquals(2, tc.index().size());
+            assertTrue(tc.contains(new Date(now - 1000)));
+            assertFalse(tc.contains(new Date(now + 1)));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.values;
+
+import com.codekutter.qengine.common.ValidationException;
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.utils.LogUtils;
+import com.codekutter.qengine.utils.TestClasses;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstantTest {
+
+    @Test
+    void prepare() {
+        try {
+            Query<TestClasses.TestClassOuter> query = new Query<>(TestClasses.TestClassOuter.class);
+            Constant<TestClasses.TestClassOuter, Long> lc = new Constant<>(query, new DataType.DtLong()).value("1024");
+            lc.prepare();
+            assertTrue(lc.prepared());
+            assertEquals(1024L, lc.getLongValue());
+            assertEquals(1024, lc.getIntegerValue());
+            assertEquals(1024.0, lc.getDoubleValue());
+            assertSame(lc.getTypedValue(), lc.getTypedValue());
+            assertEquals((short) 1024, lc.getShortValue());
+
+            Constant<TestClasses.TestClassOuter, Long> bc = new Constant<>(query, new DataType.DtLong()).value("4294967296");
+            bc.prepare();
+            assertThrows(ValidationException.class, bc::getIntegerValue);
+            assertThrows(ValidationException.class, bc::getShortValue);
+
+            Constant<TestClasses.TestClassOuter, Double> dc = new Constant<>(query, new DataType.DtDouble()).value("12.5");
+            dc.prepare();
+            assertEquals(12.5, dc.getDoubleValue());
+            assertFalse(dc.isNull());
+
+            Constant<TestClasses.TestClassOuter, Long> nc = new Constant<>(query, new DataType.DtLong());
+            nc.prepare();
+            assertTrue(nc.isNull());
+
+            Constant<TestClasses.TestClassOuter, Long> ic = new Constant<>(query, new DataType.DtLong()).value("xyz");
+            assertThrows(ValidationException.class, ic::prepare);
+            assertFalse(ic.prepared());
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+}
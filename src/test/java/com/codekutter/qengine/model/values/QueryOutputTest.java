@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.values;
+
+import com.codekutter.qengine.common.ConnectionManager;
+import com.codekutter.qengine.common.QueryCacheManager;
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.model.Query;
+import com.codekutter.qengine.utils.LogUtils;
+import com.codekutter.qengine.utils.TestClasses;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryOutputTest {
+
+    @Test
+    void evaluate() {
+        try {
+            File dir = Files.createTempDirectory("qengine-query").toFile();
+            File csv = new File(dir, "codes.csv");
+            Files.write(csv.toPath(), Arrays.asList("code", "10", "20", "30"), StandardCharsets.UTF_8);
+            csv.deleteOnExit();
+            dir.deleteOnExit();
+            ConnectionManager.get().addFileSource("test.query.files", dir);
+
+            Query<TestClasses.TestClassOuter> query = new Query<>(TestClasses.TestClassOuter.class);
+            QueryOutput<TestClasses.TestClassOuter, Long> output = new QueryOutput<>(query, new DataType.DtLong())
+                    .queryString("codes.csv#code")
+                    .connection("test.query.files")
+                    .connectionType(ConnectionManager.ConnectionTypes.File);
+            output.prepare();
+
+            long misses = QueryCacheManager.get().queryResultStats().missCount();
+            TestClasses.TestClassOuter record = new TestClasses.TestClassOuter();
+            for (int ii = 0; ii < 1000; ii++) {
+                assertTrue(output.contains(record, 20L));
+                assertFalse(output.contains(record, 25L));
+            }
+            assertEquals(3, ((Collection<?>) output.evaluate(record)).size());
+            assertEquals(1, QueryCacheManager.get().queryResultStats().missCount() - misses);
+            assertEquals("`query:codes.csv#code`", output.printString());
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.model.values;
+
+import com.codekutter.qengine.model.DataType;
+import com.codekutter.qengine.utils.LogUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueIndexTest {
+
+    @Test
+    void offHeapBuilder() {
+        try {
+            // Grows past the initial set size, duplicates and NULLs are skipped.
+            ValueIndex.OffHeapBuilder longs = ValueIndex.offHeapBuilder(new DataType.DtLong());
+            assertNotNull(longs);
+            for (long ii = 0; ii < 5000; ii++) {
+                longs.add(ii % 4000);
+            }
+            longs.add(null);
+            ValueIndex index = longs.build();
+            assertEquals(4000, index.size());
+            assertTrue(index.contains(0L));
+            assertTrue(index.contains(3999L));
+            assertFalse(index.contains(4000L));
+            assertNotNull(index.buffer());
+
+            ValueIndex.OffHeapBuilder strings = ValueIndex.offHeapBuilder(new DataType.DtString());
+            assertNotNull(strings);
+            Set<String> expected = new HashSet<>();
+            for (int ii = 0; ii < 20000; ii++) {
+                String value = "value-" + (ii % 15000) + "-é";
+                strings.add(value);
+                expected.add(value);
+            }
+            index = strings.build();
+            assertEquals(expected.size(), index.size());
+            for (String value : expected) {
+                assertTrue(index.contains(value));
+            }
+            assertFalse(index.contains("value-15000-é"));
+            assertEquals(expected, new HashSet<>(index.values()));
+
+            assertNull(ValueIndex.offHeapBuilder(new DataType.DtBoolean()));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+}
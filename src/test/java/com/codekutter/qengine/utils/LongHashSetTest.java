@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * Copyright (c) 2021
+ *  * Date: 13/03/21, 2:45 PM
+ *  * Subho Ghosh (subho dot ghosh at outlook.com)
+ */
+
+package com.codekutter.qengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+
+    @Test
+    void addAndContains() {
+        try {
+            LongHashSet set = new LongHashSet(4);
+            Set<Long> expected = new HashSet<>();
+            Random rnd = new Random(17);
+            for (int ii = 0; ii < 10000; ii++) {
+                long value = (ii % 3 == 0 ? ii : rnd.nextLong());
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertTrue(set.add(0L) || expected.contains(0L));
+            expected.add(0L);
+            assertEquals(expected.size(), set.size());
+            for (Long value : expected) {
+                assertTrue(set.contains(value));
+            }
+            assertFalse(set.contains(-1L));
+            assertEquals(expected.size(), set.toArray().length);
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+}
@@ -26,8 +26,10 @@ package com.codekutter.qengine.utils;
 import com.codekutter.qengine.model.values.FieldPath;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Method;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -85,4 +87,24 @@ class ReflectorTest {
             fail(t);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void nonPublicGetter() {
+        try {
+            Hidden hidden = new Hidden();
+            Method getter = Hidden.class.getMethod("getValue");
+            assertEquals(42L, (Object) Reflector.getHandle(getter).invokeExact((Object) hidden));
+            assertEquals(42L, Reflector.createGetter(getter).apply(hidden));
+            assertEquals(42L, Reflector.createLongGetter(getter).applyAsLong(hidden));
+        } catch (Throwable t) {
+            LogUtils.error(getClass(), t);
+            fail(t);
+        }
+    }
+
+    private static class Hidden {
+        public long getValue() {
+            return 42L;
+        }
+    }
+}
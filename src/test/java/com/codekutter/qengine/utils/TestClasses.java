@@ -56,4 +56,19 @@ public class TestClasses {
         private String sv;
         private TestClass tc = new TestClass();
     }
+
+    @Getter
+    @Setter
+    public static class TestNodeA {
+        private String name;
+        private TestNodeA parent;
+        private TestNodeB node;
+    }
+
+    @Getter
+    @Setter
+    public static class TestNodeB {
+        private long id;
+        private List<TestNodeA> nodes = new ArrayList<>();
+    }
 }